@@ -0,0 +1,57 @@
+package com.cyberspeed.benchmark;
+
+import com.cyberspeed.BatchEvaluator;
+import com.cyberspeed.RewardCalculator;
+import com.cyberspeed.RoundBatch;
+import com.cyberspeed.SymbolGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Batch evaluation of the simulator over one pre-generated batch, per round: finding the rounds
+ * that hit with each {@link BatchEvaluator}, and settling every round of the batch.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@State(Scope.Thread)
+public class BatchBenchmark {
+
+    private static final int ROUNDS = 1024;
+
+    @Param({"SCALAR", "VECTOR"})
+    public BatchEvaluator.Method method;
+
+    private RoundBatch batch;
+    private BatchEvaluator evaluator;
+    private RewardCalculator calculator;
+
+    @Setup(Level.Trial)
+    public void setUp(GameState state) {
+        batch = new RoundBatch(state.model, ROUNDS);
+        batch.generate(new SymbolGenerator(state.model, state.rand), ROUNDS);
+        evaluator = BatchEvaluator.create(method, state.model);
+        calculator = new RewardCalculator(state.model, state.rand);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROUNDS)
+    public RoundBatch evaluate() {
+        evaluator.evaluate(batch);
+        return batch;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROUNDS)
+    public double evaluateAndCalculate() {
+        evaluator.evaluate(batch);
+        double total = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            total += calculator.calculate(batch, round, GameState.BET_AMOUNT);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,109 @@
+package com.cyberspeed.benchmark;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Builds configs for the benchmarks: same symbols and bonus symbols as config.json,
+ * on a square grid of the requested size, with weights scaled up and a choice of win combinations.
+ */
+final class BenchmarkConfigs {
+
+    static final String SAME_SYMBOLS = "same_symbols";
+    static final String ALL = "all";
+
+    private static final String[] STANDARD_SYMBOLS = {"A", "B", "C", "D", "E", "F"};
+    private static final double[] STANDARD_MULTIPLIERS = {5, 3, 2.5, 2, 1.2, 1};
+    private static final int[] STANDARD_WEIGHTS = {1, 2, 3, 4, 5, 6};
+    private static final String[] BONUS_SYMBOLS = {"10x", "5x", "+1000", "+500", "MISS"};
+    private static final int[] BONUS_WEIGHTS = {1, 2, 3, 4, 5};
+
+    private BenchmarkConfigs() {
+    }
+
+    /**
+     * @param size         number of rows and columns
+     * @param weightScale  factor applied to every probability weight
+     * @param combinations {@link #SAME_SYMBOLS} for count combinations only,
+     *                     {@link #ALL} to add horizontal, vertical and diagonal lines
+     */
+    static JSONObject create(int size, int weightScale, String combinations) {
+        JSONObject config = new JSONObject();
+        config.put("rows", size);
+        config.put("columns", size);
+
+        JSONObject symbols = new JSONObject();
+        for (int i = 0; i < STANDARD_SYMBOLS.length; i++) {
+            symbols.put(STANDARD_SYMBOLS[i], new JSONObject()
+                    .put("reward_multiplier", STANDARD_MULTIPLIERS[i])
+                    .put("type", "standard"));
+        }
+        symbols.put("10x", new JSONObject().put("reward_multiplier", 10).put("type", "bonus").put("impact", "multiply_reward"));
+        symbols.put("5x", new JSONObject().put("reward_multiplier", 5).put("type", "bonus").put("impact", "multiply_reward"));
+        symbols.put("+1000", new JSONObject().put("extra", 1000).put("type", "bonus").put("impact", "extra_bonus"));
+        symbols.put("+500", new JSONObject().put("extra", 500).put("type", "bonus").put("impact", "extra_bonus"));
+        symbols.put("MISS", new JSONObject().put("type", "bonus").put("impact", "miss"));
+        config.put("symbols", symbols);
+
+        JSONArray standardProbabilities = new JSONArray();
+        for (int column = 0; column < size; column++) {
+            for (int row = 0; row < size; row++) {
+                JSONObject weights = new JSONObject();
+                for (int i = 0; i < STANDARD_SYMBOLS.length; i++) {
+                    weights.put(STANDARD_SYMBOLS[i], STANDARD_WEIGHTS[i] * weightScale);
+                }
+                standardProbabilities.put(new JSONObject().put("column", column).put("row", row).put("symbols", weights));
+            }
+        }
+        JSONObject bonusWeights = new JSONObject();
+        for (int i = 0; i < BONUS_SYMBOLS.length; i++) {
+            bonusWeights.put(BONUS_SYMBOLS[i], BONUS_WEIGHTS[i] * weightScale);
+        }
+        config.put("probabilities", new JSONObject()
+                .put("standard_symbols", standardProbabilities)
+                .put("bonus_symbols", new JSONObject().put("symbols", bonusWeights)));
+
+        JSONObject winCombinations = new JSONObject();
+        for (int count = 3; count <= size * size; count++) {
+            winCombinations.put("same_symbol_" + count + "_times", new JSONObject()
+                    .put("reward_multiplier", count - 2)
+                    .put("when", "same_symbols")
+                    .put("count", count)
+                    .put("group", "same_symbols"));
+        }
+        if (ALL.equals(combinations)) {
+            JSONArray horizontal = new JSONArray();
+            JSONArray vertical = new JSONArray();
+            JSONArray leftToRight = new JSONArray();
+            JSONArray rightToLeft = new JSONArray();
+            for (int i = 0; i < size; i++) {
+                JSONArray row = new JSONArray();
+                JSONArray column = new JSONArray();
+                for (int j = 0; j < size; j++) {
+                    row.put(i + ":" + j);
+                    column.put(j + ":" + i);
+                }
+                horizontal.put(row);
+                vertical.put(column);
+                leftToRight.put(i + ":" + i);
+                rightToLeft.put(i + ":" + (size - 1 - i));
+            }
+            winCombinations.put("same_symbols_horizontally", linear(horizontal, "horizontally_linear_symbols"));
+            winCombinations.put("same_symbols_vertically", linear(vertical, "vertically_linear_symbols"));
+            winCombinations.put("same_symbols_diagonally_left_to_right",
+                    linear(new JSONArray().put(leftToRight), "ltr_diagonally_linear_symbols"));
+            winCombinations.put("same_symbols_diagonally_right_to_left",
+                    linear(new JSONArray().put(rightToLeft), "rtl_diagonally_linear_symbols"));
+        }
+        config.put("win_combinations", winCombinations);
+        return config;
+    }
+
+    private static JSONObject linear(JSONArray coveredAreas, String group) {
+        return new JSONObject()
+                .put("reward_multiplier", 2)
+                .put("when", "linear_symbols")
+                .put("group", group)
+                .put("covered_areas", coveredAreas);
+    }
+}
@@ -0,0 +1,40 @@
+package com.cyberspeed.benchmark;
+
+import com.cyberspeed.GameModel;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.SplittableRandom;
+
+/**
+ * Benchmark parameters shared by all stages: grid size, weight magnitude and win combinations.
+ */
+@State(Scope.Thread)
+public class GameState {
+
+    static final int BET_AMOUNT = 100;
+
+    @Param({"3", "5", "10"})
+    public int size;
+
+    @Param({"1", "1000"})
+    public int weightScale;
+
+    @Param({BenchmarkConfigs.SAME_SYMBOLS, BenchmarkConfigs.ALL})
+    public String combinations;
+
+    JSONObject config;
+    GameModel model;
+    SplittableRandom rand;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        config = BenchmarkConfigs.create(size, weightScale, combinations);
+        model = new GameModel(config);
+        rand = new SplittableRandom(42);
+    }
+}
@@ -0,0 +1,38 @@
+package com.cyberspeed.benchmark;
+
+import com.cyberspeed.SymbolGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Matrix generation: into a reusable symbol id buffer (as every round is played), and into a new String[][] matrix of names.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GenerationBenchmark {
+
+    private SymbolGenerator generator;
+    private int[] symbolIds;
+
+    @Setup(Level.Trial)
+    public void setUp(GameState state) {
+        generator = new SymbolGenerator(state.model, state.rand);
+        symbolIds = new int[state.model.getRows() * state.model.getColumns()];
+    }
+
+    @Benchmark
+    public int[] generateSymbolIds() {
+        generator.generateSymbolIds(symbolIds);
+        return symbolIds;
+    }
+
+    @Benchmark
+    public String[][] generateMatrix(GameState state) {
+        return generator.generateMatrix(state.model.getRows(), state.model.getColumns());
+    }
+}
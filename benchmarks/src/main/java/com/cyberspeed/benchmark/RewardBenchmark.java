@@ -0,0 +1,42 @@
+package com.cyberspeed.benchmark;
+
+import com.cyberspeed.RewardCalculator;
+import com.cyberspeed.SymbolGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reward calculation over a fixed set of pre-generated grids, so generation is not measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RewardBenchmark {
+
+    private static final int GRIDS = 1024;
+
+    private RewardCalculator calculator;
+    private int[][] grids;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp(GameState state) {
+        SymbolGenerator generator = new SymbolGenerator(state.model, state.rand);
+        grids = new int[GRIDS][state.model.getRows() * state.model.getColumns()];
+        for (int[] grid : grids) {
+            generator.generateSymbolIds(grid);
+        }
+        calculator = new RewardCalculator(state.model, state.rand);
+    }
+
+    @Benchmark
+    public double calculate() {
+        int[] grid = grids[next];
+        next = (next + 1) & (GRIDS - 1);
+        return calculator.calculate(grid, GameState.BET_AMOUNT);
+    }
+}
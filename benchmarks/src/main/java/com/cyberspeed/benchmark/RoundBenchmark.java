@@ -0,0 +1,42 @@
+package com.cyberspeed.benchmark;
+
+import com.cyberspeed.PuzzleGame;
+import com.cyberspeed.RewardCalculator;
+import com.cyberspeed.SymbolGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end rounds per second: the headless simulation loop and a full round including JSON output.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RoundBenchmark {
+
+    private SymbolGenerator generator;
+    private RewardCalculator calculator;
+    private int[] symbolIds;
+
+    @Setup(Level.Trial)
+    public void setUp(GameState state) {
+        generator = new SymbolGenerator(state.model, state.rand);
+        calculator = new RewardCalculator(state.model, state.rand);
+        symbolIds = new int[state.model.getRows() * state.model.getColumns()];
+    }
+
+    @Benchmark
+    public double simulatedRound() {
+        generator.generateSymbolIds(symbolIds);
+        return calculator.calculate(symbolIds, GameState.BET_AMOUNT);
+    }
+
+    @Benchmark
+    public String playedRound(GameState state) {
+        return new PuzzleGame(state.model, state.rand).playRound(GameState.BET_AMOUNT);
+    }
+}
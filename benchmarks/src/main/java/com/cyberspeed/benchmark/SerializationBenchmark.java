@@ -0,0 +1,48 @@
+package com.cyberspeed.benchmark;
+
+import com.cyberspeed.GameModel;
+import com.cyberspeed.OutputFormatter;
+import com.cyberspeed.RewardCalculator;
+import com.cyberspeed.SymbolGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON output of a single round, on a winning round so applied combinations are serialized too.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SerializationBenchmark {
+
+    private GameModel model;
+    private int[] symbolIds;
+    private String appliedBonusSymbol;
+    private Map<String, List<String>> appliedWinningCombinations;
+    private double reward;
+
+    @Setup(Level.Trial)
+    public void setUp(GameState state) {
+        SymbolGenerator generator = new SymbolGenerator(state.model, state.rand);
+        RewardCalculator calculator = new RewardCalculator(state.model, state.rand);
+        model = state.model;
+        symbolIds = new int[model.getRows() * model.getColumns()];
+        do {
+            generator.generateSymbolIds(symbolIds);
+            reward = calculator.calculate(symbolIds, GameState.BET_AMOUNT);
+            appliedBonusSymbol = calculator.getSelectedBonusSymbol();
+            appliedWinningCombinations = calculator.getAppliedWinningCombinations();
+        } while (reward == 0);
+    }
+
+    @Benchmark
+    public String formatOutput() {
+        return new OutputFormatter(model, symbolIds, appliedBonusSymbol, appliedWinningCombinations, reward, 0).formatOutput();
+    }
+}
@@ -0,0 +1,46 @@
+package com.cyberspeed.benchmark;
+
+import com.cyberspeed.ConfigValidator;
+import com.cyberspeed.GameModel;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Config validation and model compilation, i.e. the per-config cost paid at load time:
+ * from an org.json tree, and from the config text (read and validated in one pass).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ValidationBenchmark {
+
+    private String content;
+
+    @Setup(Level.Trial)
+    public void setUp(GameState state) {
+        content = state.config.toString();
+    }
+
+    @Benchmark
+    public ConfigValidator validate(GameState state) {
+        ConfigValidator validator = new ConfigValidator(state.config);
+        validator.validate();
+        return validator;
+    }
+
+    @Benchmark
+    public ConfigValidator readAndValidate() {
+        ConfigValidator validator = new ConfigValidator(content);
+        validator.validate();
+        return validator;
+    }
+
+    @Benchmark
+    public GameModel compile(GameState state) {
+        return new GameModel(state.config);
+    }
+}
@@ -0,0 +1,227 @@
+package com.cyberspeed;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.util.Arrays;
+
+/**
+ * Finds the rounds of a {@link RoundBatch} that hit at least one win combination: a round hits
+ * when one of its linear_symbols lines holds a single symbol, or when a countable symbol appears
+ * exactly as many times as a same_symbols combination asks. Rounds that do not hit have no reward,
+ * no applied combination and no bonus, so they need no further evaluation.
+ * <p>
+ * The {@link Method#VECTOR} evaluator checks every line and count for a whole vector of rounds per
+ * instruction with the Vector API ({@code jdk.incubator.vector}); it is only available when the JVM
+ * resolves that module ({@code --add-modules jdk.incubator.vector}), otherwise {@link #create(GameModel)}
+ * falls back to the {@link Method#SCALAR} evaluator, which checks round by round. Both mark the same rounds.
+ */
+public abstract class BatchEvaluator {
+
+    public enum Method {
+        /**
+         * Round by round, on any JVM.
+         */
+        SCALAR,
+        /**
+         * One vector of rounds per compare (Vector API).
+         */
+        VECTOR;
+
+        /**
+         * Parses "scalar" or "vector"; "auto" picks the vector evaluator when it is available.
+         */
+        public static Method of(String name) {
+            if (name.equalsIgnoreCase("auto")) {
+                return isVectorAvailable() ? VECTOR : SCALAR;
+            }
+            for (Method method : values()) {
+                if (method.name().equalsIgnoreCase(name)) {
+                    return method;
+                }
+            }
+            throw new IllegalArgumentException("Unknown batch evaluation: " + name);
+        }
+
+        /**
+         * The evaluation "auto" picks for a model: the vector evaluator when it is available, else the scalar one,
+         * and null (round by round play) when the model does not fit a {@link RoundBatch}.
+         */
+        public static Method auto(GameModel model) {
+            return RoundBatch.supports(model) ? of("auto") : null;
+        }
+    }
+
+    static final String VECTOR_MODULE = "jdk.incubator.vector";
+
+    // -- cells of every linear_symbols line, in model order
+    final int[][] lines;
+    final int[] countableSymbols;
+    // -- distinct same_symbols counts a grid can reach
+    final int[] sameCounts;
+    final int cellCount;
+
+    private BatchEvaluator(GameModel model) {
+        this.cellCount = model.getRows() * model.getColumns();
+
+        int lineCount = 0;
+        for (int c = 0; c < model.getCombinationCount(); c++) {
+            if (model.getCombination(c).getWhen() == GameModel.When.LINEAR_SYMBOLS) {
+                lineCount += model.getCombination(c).getLineCount();
+            }
+        }
+        this.lines = new int[lineCount][];
+        int[] counts = new int[model.getCombinationCount()];
+        int countCount = 0;
+        int line = 0;
+        for (int c = 0; c < model.getCombinationCount(); c++) {
+            final GameModel.WinCombination combination = model.getCombination(c);
+            if (combination.getWhen() == GameModel.When.LINEAR_SYMBOLS) {
+                final int[] lineStarts = combination.getLineStarts();
+                for (int l = 0; l < combination.getLineCount(); l++) {
+                    lines[line++] = Arrays.copyOfRange(combination.getLineOffsets(), lineStarts[l], lineStarts[l + 1]);
+                }
+            } else if (combination.getCount() > 0 && combination.getCount() <= cellCount) {
+                counts[countCount++] = combination.getCount();
+            }
+        }
+        this.sameCounts = Arrays.stream(counts, 0, countCount).distinct().sorted().toArray();
+
+        int[] symbols = new int[model.getSymbolCount()];
+        int symbolCount = 0;
+        for (int symbol = 0; symbol < model.getSymbolCount(); symbol++) {
+            if (model.isCountable(symbol)) {
+                symbols[symbolCount++] = symbol;
+            }
+        }
+        this.countableSymbols = Arrays.copyOf(symbols, symbolCount);
+    }
+
+    /**
+     * The vector evaluator when the Vector API is available, the scalar one otherwise.
+     */
+    public static BatchEvaluator create(GameModel model) {
+        return create(isVectorAvailable() ? Method.VECTOR : Method.SCALAR, model);
+    }
+
+    public static BatchEvaluator create(Method method, GameModel model) {
+        if (method == Method.SCALAR) {
+            return new ScalarEvaluator(model);
+        }
+        if (!isVectorAvailable()) {
+            throw new IllegalArgumentException("The vector evaluator needs the JVM option --add-modules " + VECTOR_MODULE);
+        }
+        return new VectorEvaluator(model);
+    }
+
+    public static boolean isVectorAvailable() {
+        return ModuleLayer.boot().findModule(VECTOR_MODULE).isPresent();
+    }
+
+    public abstract Method getMethod();
+
+    /**
+     * Marks the rounds of the batch that hit at least one win combination.
+     */
+    public abstract void evaluate(RoundBatch batch);
+
+    private static final class ScalarEvaluator extends BatchEvaluator {
+        private final int[] symbolCounts;
+
+        private ScalarEvaluator(GameModel model) {
+            super(model);
+            this.symbolCounts = new int[model.getSymbolCount()];
+        }
+
+        @Override
+        public Method getMethod() {
+            return Method.SCALAR;
+        }
+
+        @Override
+        public void evaluate(RoundBatch batch) {
+            final byte[] cells = batch.cells;
+            final int capacity = batch.getCapacity();
+            for (int round = 0; round < batch.getSize(); round++) {
+                batch.hits[round] = hasLine(cells, capacity, round) || hasCount(cells, capacity, round);
+            }
+        }
+
+        private boolean hasLine(byte[] cells, int capacity, int round) {
+            for (int[] line : lines) {
+                final byte first = cells[line[0] * capacity + round];
+                int i = 1;
+                while (i < line.length && cells[line[i] * capacity + round] == first) {
+                    i++;
+                }
+                if (i == line.length) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean hasCount(byte[] cells, int capacity, int round) {
+            Arrays.fill(symbolCounts, 0);
+            for (int cell = 0; cell < cellCount; cell++) {
+                symbolCounts[cells[cell * capacity + round] & 0xFF]++;
+            }
+            for (int symbol : countableSymbols) {
+                if (Arrays.binarySearch(sameCounts, symbolCounts[symbol]) >= 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static final class VectorEvaluator extends BatchEvaluator {
+        // -- at most the alignment of the batch capacity, so every vector of rounds is in bounds
+        private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED.length() <= RoundBatch.ALIGNMENT
+                ? ByteVector.SPECIES_PREFERRED : ByteVector.SPECIES_512;
+
+        private VectorEvaluator(GameModel model) {
+            super(model);
+        }
+
+        @Override
+        public Method getMethod() {
+            return Method.VECTOR;
+        }
+
+        @Override
+        public void evaluate(RoundBatch batch) {
+            final byte[] cells = batch.cells;
+            final int capacity = batch.getCapacity();
+            final ByteVector one = ByteVector.broadcast(SPECIES, (byte) 1);
+            for (int round = 0; round < batch.getSize(); round += SPECIES.length()) {
+                VectorMask<Byte> hit = SPECIES.maskAll(false);
+
+                for (int[] line : lines) {
+                    final ByteVector first = ByteVector.fromArray(SPECIES, cells, line[0] * capacity + round);
+                    VectorMask<Byte> same = SPECIES.maskAll(true);
+                    for (int i = 1; i < line.length; i++) {
+                        same = same.and(first.compare(VectorOperators.EQ,
+                                ByteVector.fromArray(SPECIES, cells, line[i] * capacity + round)));
+                    }
+                    hit = hit.or(same);
+                }
+
+                for (int symbol : countableSymbols) {
+                    ByteVector count = ByteVector.zero(SPECIES);
+                    for (int cell = 0; cell < cellCount; cell++) {
+                        count = count.add(one, ByteVector.fromArray(SPECIES, cells, cell * capacity + round)
+                                .compare(VectorOperators.EQ, (byte) symbol));
+                    }
+                    for (int sameCount : sameCounts) {
+                        hit = hit.or(count.compare(VectorOperators.EQ, (byte) sameCount));
+                    }
+                }
+
+                hit.intoArray(batch.hits, round);
+            }
+        }
+    }
+}
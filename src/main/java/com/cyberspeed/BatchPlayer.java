@@ -0,0 +1,138 @@
+package com.cyberspeed;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Plays many rounds in one call and streams their outcomes as NDJSON (one CLI-style JSON per line).
+ * One compiled model, one {@link GameRandom}, one generator/calculator pair, one symbol id buffer and
+ * one {@link JsonRoundWriter} serve the whole batch, so there is no per-round setup.
+ * Rounds are numbered from {@link #setNextRound(long)} (0 by default, the record count of the round
+ * log when there is one) and each round draws from {@link GameRandom#startRound(long)}, so any round
+ * can be replayed from the seed and its number.
+ * An instance is not thread safe; use one per batch or per thread.
+ */
+public class BatchPlayer {
+
+    // -- buffered output is handed to the stream once it grows past this size
+    static final int FLUSH_THRESHOLD = 1 << 16;
+
+    private final GameRandom random;
+    private final SymbolGenerator generator;
+    private final RewardCalculator calculator;
+    private final JsonRoundWriter writer;
+    private final int[] symbolIds;
+    private final RoundLogWriter log;
+    private final GameModel model;
+    private long nextRound;
+    private GameMetrics metrics;
+    private String gameId;
+
+    public BatchPlayer(GameModel model, GameRandom random) {
+        this(model, random, null);
+    }
+
+    /**
+     * @param log when not null, every round is also appended to this binary round log
+     */
+    public BatchPlayer(GameModel model, GameRandom random, RoundLogWriter log) {
+        this(model, random, log, null);
+    }
+
+    /**
+     * @param log   when not null, every round is also appended to this binary round log
+     * @param cache when not null, memo of the reward evaluations of this player
+     */
+    public BatchPlayer(GameModel model, GameRandom random, RoundLogWriter log, RewardCache cache) {
+        this.model = model;
+        this.random = random;
+        this.generator = new SymbolGenerator(model, random);
+        this.calculator = new RewardCalculator(model, random, cache);
+        this.writer = new JsonRoundWriter(model);
+        this.symbolIds = new int[model.getRows() * model.getColumns()];
+        this.log = log;
+        this.nextRound = log == null ? 0 : log.getRecordCount();
+    }
+
+    public long getNextRound() {
+        return nextRound;
+    }
+
+    public void setNextRound(long nextRound) {
+        this.nextRound = nextRound;
+    }
+
+    /**
+     * Names the game reported in flight recorder events (see {@link GameEvents}).
+     */
+    public void setGameId(String gameId) {
+        this.gameId = gameId;
+    }
+
+    /**
+     * @param metrics when not null, every round is counted into it (and timed per stage when it is timed)
+     */
+    public void setMetrics(GameMetrics metrics) {
+        this.metrics = metrics;
+        calculator.setMetrics(metrics);
+    }
+
+    /**
+     * Plays 'count' rounds with the same bet.
+     */
+    public void play(int count, int betAmount, OutputStream out) throws IOException {
+        for (int i = 0; i < count; i++) {
+            playRound(betAmount, out);
+        }
+        writer.writeTo(out);
+        out.flush();
+    }
+
+    /**
+     * Plays one round per bet, in order.
+     */
+    public void play(int[] betAmounts, OutputStream out) throws IOException {
+        for (int betAmount : betAmounts) {
+            playRound(betAmount, out);
+        }
+        writer.writeTo(out);
+        out.flush();
+    }
+
+    private void playRound(int betAmount, OutputStream out) throws IOException {
+        final long round = nextRound++;
+        random.startRound(round);
+        GameEvents.RoundEvent event = GameEvents.beginRound();
+        final GameMetrics metrics = this.metrics;
+        final GameMetrics timing = metrics != null && metrics.isTimed() ? metrics : null;
+
+        long start = timing == null ? 0 : System.nanoTime();
+        GameEvents.PhaseEvent phase = GameEvents.beginPhase();
+        generator.generateSymbolIds(symbolIds);
+        phase.finish(GameMetrics.Stage.GENERATE);
+        if (timing != null) {
+            timing.record(GameMetrics.Stage.GENERATE, System.nanoTime() - start);
+        }
+
+        final double reward = calculator.calculate(symbolIds, betAmount);
+
+        start = timing == null ? 0 : System.nanoTime();
+        phase = GameEvents.beginPhase();
+        writer.writeLine(symbolIds, calculator, reward);
+        phase.finish(GameMetrics.Stage.SERIALIZE);
+        if (timing != null) {
+            timing.record(GameMetrics.Stage.SERIALIZE, System.nanoTime() - start);
+        }
+
+        event.finish(gameId, round, model, betAmount, reward);
+        if (metrics != null) {
+            metrics.recordRound(model, betAmount, reward, calculator);
+        }
+        if (log != null) {
+            log.append(round, betAmount, symbolIds, calculator, reward);
+        }
+        if (writer.size() >= FLUSH_THRESHOLD) {
+            writer.writeTo(out);
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package com.cyberspeed;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded pool of scratch cards played ahead of demand for one game and one bet level.
+ * Background workers play rounds (reserved from the game, so round r still replays from (seed, round))
+ * with {@link SymbolGenerator} and {@link RewardCalculator} and keep them serialized by a
+ * {@link JsonRoundWriter}; a play request polls a lock-free queue once and never waits for the workers.
+ * <p>
+ * Once the pool falls below its low-water mark one refill task is submitted, which plays cards until
+ * the pool is full again. An empty pool plays the round on the caller's thread, so a request is never refused.
+ * Metrics count a card when it is served, not when it is played. Thread safe.
+ * <p>
+ * When the config is reloaded, {@link #drain()} drops the cards played with the previous version (called by
+ * the registry on the reloading thread, see {@link ConfigWatcher#addListener}); a take that still finds such
+ * a card drops it and plays the round instead. The rounds of dropped cards were reserved but are never served,
+ * so they are gaps in the numbering of the game: they are counted and listed by {@link #getDiscardedRounds()}.
+ */
+public class CardPool implements Closeable {
+    static final String SIZE = "size";
+    static final String SERVED = "served";
+    static final String MISSES = "misses";
+    static final String DISCARDED = "discarded";
+    static final String DISCARDED_ROUNDS = "discarded_rounds";
+
+    // -- rounds reserved from the game at once by a refill
+    static final int REFILL_BATCH = 256;
+    // -- only the first ranges of discarded rounds are listed, all are counted
+    static final int MAX_DISCARDED_RANGES = 100;
+
+    /**
+     * A played round: the model it was played with, its number and its JSON output.
+     */
+    public record Card(GameModel model, long round, String output) {
+    }
+
+    // -- what the metrics need of a pooled card when it is served
+    private record Pooled(Card card, double reward, int[] combinationIds) {
+    }
+
+    private final GameRegistry.Variant variant;
+    private final int betAmount;
+    private final int capacity;
+    private final int lowWater;
+    private final Executor workers;
+    private final Queue<Pooled> cards = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicBoolean refilling = new AtomicBoolean();
+    private final LongAdder served = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder discarded = new LongAdder();
+    // -- [first, last] rounds of dropped cards, adjacent ones merged
+    private final List<long[]> discardedRounds = new ArrayList<>();
+    private volatile boolean closed;
+
+    /**
+     * @param lowWater a refill starts once fewer cards than this are left
+     * @param workers  runs the refills, e.g. a few daemon threads shared by all pools
+     */
+    public CardPool(GameRegistry.Variant variant, int betAmount, int capacity, int lowWater, Executor workers) {
+        if (betAmount <= 0 || capacity <= 0 || lowWater < 0 || lowWater > capacity) {
+            throw new IllegalArgumentException("bet and capacity must be positive and low water between 0 and the capacity");
+        }
+        this.variant = variant;
+        this.betAmount = betAmount;
+        this.capacity = capacity;
+        this.lowWater = lowWater;
+        this.workers = workers;
+    }
+
+    /**
+     * Starts filling the pool in the background.
+     */
+    public void start() {
+        requestRefill();
+    }
+
+    /**
+     * Takes a card played with the current model of the game, or plays one now when the pool is empty.
+     */
+    public Card take() {
+        final GameModel model = variant.getModel();
+        Pooled pooled = cards.poll();
+        if (pooled != null) {
+            size.decrementAndGet();
+            // -- a card of the previous version not drained yet
+            if (pooled.card().model() != model) {
+                discard(new long[]{pooled.card().round()});
+                pooled = null;
+            }
+        }
+        if (size.get() < lowWater) {
+            requestRefill();
+        }
+        if (pooled == null) {
+            misses.increment();
+            final long round = variant.reserveRounds(1);
+            return new Card(model, round, variant.play(model, round, betAmount));
+        }
+        served.increment();
+        variant.getMetrics().recordRound(model, betAmount, pooled.reward(), pooled.combinationIds());
+        return pooled.card();
+    }
+
+    public int getBetAmount() {
+        return betAmount;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getLowWater() {
+        return lowWater;
+    }
+
+    /**
+     * Cards ready to be taken.
+     */
+    public int getSize() {
+        return size.get();
+    }
+
+    /**
+     * Cards taken from the pool.
+     */
+    public long getServed() {
+        return served.sum();
+    }
+
+    /**
+     * Rounds played on the caller's thread because the pool was empty.
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Cards dropped because the config was reloaded after they were played.
+     */
+    public long getDiscarded() {
+        return discarded.sum();
+    }
+
+    /**
+     * Ranges [first, last] of the rounds of discarded cards, in the order they were dropped. Only the first
+     * {@link #MAX_DISCARDED_RANGES} are kept.
+     */
+    public List<long[]> getDiscardedRounds() {
+        synchronized (discardedRounds) {
+            List<long[]> ranges = new ArrayList<>(discardedRounds.size());
+            for (long[] range : discardedRounds) {
+                ranges.add(range.clone());
+            }
+            return ranges;
+        }
+    }
+
+    /**
+     * Drops the cards played with another config version than the current one of the game, then refills.
+     */
+    public void drain() {
+        final GameModel model = variant.getModel();
+        final List<Pooled> kept = new ArrayList<>();
+        long[] rounds = new long[16];
+        int dropped = 0;
+        // -- at most the cards pooled now: the cards kept are offered again after
+        for (int i = size.get(); i > 0; i--) {
+            final Pooled pooled = cards.poll();
+            if (pooled == null) {
+                break;
+            }
+            if (pooled.card().model() == model) {
+                kept.add(pooled);
+                continue;
+            }
+            size.decrementAndGet();
+            if (dropped == rounds.length) {
+                rounds = Arrays.copyOf(rounds, dropped * 2);
+            }
+            rounds[dropped++] = pooled.card().round();
+        }
+        cards.addAll(kept);
+        if (dropped > 0) {
+            discard(Arrays.copyOf(rounds, dropped));
+            requestRefill();
+        }
+    }
+
+    private void discard(long[] rounds) {
+        discarded.add(rounds.length);
+        Arrays.sort(rounds);
+        synchronized (discardedRounds) {
+            for (long round : rounds) {
+                final long[] last = discardedRounds.isEmpty() ? null : discardedRounds.getLast();
+                if (last != null && last[1] + 1 == round) {
+                    last[1] = round;
+                } else if (discardedRounds.size() < MAX_DISCARDED_RANGES) {
+                    discardedRounds.add(new long[]{round, round});
+                }
+            }
+        }
+    }
+
+    public JSONObject toJson() {
+        JSONObject json = new JSONObject();
+        json.put(SIZE, getSize());
+        json.put(SERVED, getServed());
+        json.put(MISSES, getMisses());
+        json.put(DISCARDED, getDiscarded());
+        JSONArray ranges = new JSONArray();
+        for (long[] range : getDiscardedRounds()) {
+            ranges.put(new JSONArray().put(range[0]).put(range[1]));
+        }
+        json.put(DISCARDED_ROUNDS, ranges);
+        return json;
+    }
+
+    private void requestRefill() {
+        if (closed || !refilling.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            workers.execute(this::refill);
+        } catch (RejectedExecutionException e) {
+            refilling.set(false);
+        }
+    }
+
+    private void refill() {
+        try {
+            final GameRandom random = variant.newRandom();
+            GameModel model = null;
+            SymbolGenerator generator = null;
+            RewardCalculator calculator = null;
+            JsonRoundWriter writer = null;
+            int[] symbolIds = null;
+
+            while (!closed && size.get() < capacity) {
+                final int count = Math.min(REFILL_BATCH, capacity - size.get());
+                final long firstRound = variant.reserveRounds(count);
+                for (long round = firstRound; round < firstRound + count; round++) {
+                    // -- a reload is picked up at the next card, reserved rounds are played with the new version
+                    if (model != variant.getModel()) {
+                        model = variant.getModel();
+                        generator = new SymbolGenerator(model, random);
+                        calculator = new RewardCalculator(model, random);
+                        writer = new JsonRoundWriter(model);
+                        symbolIds = new int[model.getRows() * model.getColumns()];
+                    }
+                    random.startRound(round);
+                    generator.generateSymbolIds(symbolIds);
+                    final double reward = calculator.calculate(symbolIds, betAmount);
+                    final int[] combinationIds = new int[calculator.getAppliedCount()];
+                    for (int i = 0; i < combinationIds.length; i++) {
+                        combinationIds[i] = calculator.getAppliedCombinationId(i);
+                    }
+                    writer.reset();
+                    writer.write(symbolIds, calculator, reward);
+                    cards.offer(new Pooled(new Card(model, round, writer.toString()), reward, combinationIds));
+                    size.incrementAndGet();
+                }
+            }
+        } finally {
+            refilling.set(false);
+        }
+        // -- takes that found the pool low during the refill did not submit one
+        if (size.get() < lowWater) {
+            requestRefill();
+        }
+    }
+
+    /**
+     * Stops refilling and drops the cards left, their rounds are not counted as discarded.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        cards.clear();
+        size.set(0);
+    }
+}
@@ -0,0 +1,32 @@
+package com.cyberspeed;
+
+import java.io.Serializable;
+
+/**
+ * One problem found in a config: the JSON path of the value (e.g. {@code $.win_combinations.same_symbols_3_times.count})
+ * and what is wrong with it.
+ */
+public record ConfigError(String path, String message) implements Serializable {
+
+    /**
+     * Path of the member 'key' of the object at 'path', in bracket notation when the key is not a plain name.
+     */
+    static String member(String path, String key) {
+        for (int i = 0; i < key.length(); i++) {
+            final char c = key.charAt(i);
+            if (!(c == '_' || c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || i > 0 && c >= '0' && c <= '9')) {
+                return path + "['" + key.replace("\\", "\\\\").replace("'", "\\'") + "']";
+            }
+        }
+        return key.isEmpty() ? path + "['']" : path + "." + key;
+    }
+
+    static String element(String path, int index) {
+        return path + "[" + index + "]";
+    }
+
+    @Override
+    public String toString() {
+        return path + ": " + message;
+    }
+}
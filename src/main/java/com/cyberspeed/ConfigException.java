@@ -0,0 +1,25 @@
+package com.cyberspeed;
+
+import java.io.Serial;
+import java.util.List;
+
+/**
+ * Thrown for a config that cannot be read or compiled, with every {@link ConfigError} found.
+ */
+public class ConfigException extends IllegalArgumentException {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    // -- an array, so the errors are serialized with the exception
+    private final ConfigError[] errors;
+
+    public ConfigException(List<ConfigError> errors) {
+        super(errors.toString());
+        this.errors = errors.toArray(new ConfigError[0]);
+    }
+
+    public List<ConfigError> getErrors() {
+        return List.of(errors);
+    }
+}
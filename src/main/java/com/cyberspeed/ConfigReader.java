@@ -0,0 +1,347 @@
+package com.cyberspeed;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.Serial;
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads config text into plain maps and lists in one scan: objects become {@link HashMap}s filled in document
+ * order (so their key order is the one {@link org.json.JSONObject} gives, and symbol and combination ids do
+ * not change), arrays {@link List}s, integers that fit an int {@link Integer}s, larger ones {@link Long}s,
+ * other numbers {@link Double}s and null null. A syntax error is reported as a {@link ConfigError} at the path
+ * of the value being read.
+ * <p>
+ * Unlike org.json the text must be strict JSON: unquoted keys and values, single-quoted strings and trailing
+ * commas, which org.json accepts, are syntax errors. A config already read by org.json is converted into the
+ * same maps and lists by {@link #read(JSONObject)}, so both are validated alike.
+ */
+final class ConfigReader {
+
+    // -- a failure on the way out of the values being read, collecting their path
+    private static final class Failure extends RuntimeException {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        // -- never leaves the reader, so the path is not serialized
+        private final transient Deque<Object> path = new ArrayDeque<>();
+        private final int offset;
+
+        private Failure(String message, int offset) {
+            super(message, null, false, false);
+            this.offset = offset;
+        }
+
+        private Failure within(Object segment) {
+            path.addFirst(segment);
+            return this;
+        }
+    }
+
+    // -- integers from 19 digits on are read as doubles
+    static final long MIN_DOUBLE_INTEGER = 1_000_000_000_000_000_000L;
+
+    private final String text;
+    private int pos;
+
+    private ConfigReader(String text) {
+        this.text = text;
+    }
+
+    /**
+     * @throws ConfigException when the text is not a JSON object
+     */
+    static Map<String, Object> read(String text) {
+        ConfigReader reader = new ConfigReader(text);
+        try {
+            reader.skipWhitespace();
+            if (reader.peek() != '{') {
+                throw reader.fail("A config must be a JSON object");
+            }
+            Map<String, Object> config = reader.readObject();
+            reader.skipWhitespace();
+            if (reader.pos < text.length()) {
+                throw reader.fail("Unexpected text after the config");
+            }
+            return config;
+        } catch (Failure failure) {
+            String path = ConfigValidator.ROOT;
+            for (Object segment : failure.path) {
+                path = segment instanceof Integer index ? ConfigError.element(path, index) : ConfigError.member(path, (String) segment);
+            }
+            throw new ConfigException(List.of(new ConfigError(path, failure.getMessage() + " at " + reader.location(failure.offset))));
+        }
+    }
+
+    /**
+     * Converts an org.json tree into the maps and lists {@link #read(String)} gives for its text: objects filled
+     * in the order they iterate their keys, numbers narrowed the same way.
+     */
+    static Map<String, Object> read(JSONObject config) {
+        Map<String, Object> object = new HashMap<>();
+        for (String key : config.keySet()) {
+            object.put(key, convert(config.opt(key)));
+        }
+        return object;
+    }
+
+    private static Object convert(Object value) {
+        if (value instanceof JSONObject object) {
+            return read(object);
+        }
+        if (value instanceof JSONArray array) {
+            List<Object> list = new ArrayList<>(array.length());
+            for (int i = 0; i < array.length(); i++) {
+                list.add(convert(array.opt(i)));
+            }
+            return list;
+        }
+        if (value == JSONObject.NULL) {
+            return null;
+        }
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte
+                || value instanceof BigInteger integer && integer.bitLength() < Long.SIZE) {
+            final long number = ((Number) value).longValue();
+            // -- as read from text: up to 18 digits, more are read as a double
+            if (number > -MIN_DOUBLE_INTEGER && number < MIN_DOUBLE_INTEGER) {
+                return number == (int) number ? (Object) (int) number : (Object) number;
+            }
+        }
+        if (value instanceof Number number && !(value instanceof Double)) {
+            return number.doubleValue();
+        }
+        return value;
+    }
+
+    private Object readValue() {
+        skipWhitespace();
+        switch (peek()) {
+            case '{':
+                return readObject();
+            case '[':
+                return readArray();
+            case '"':
+                return readString();
+            case 't':
+                return readLiteral("true", Boolean.TRUE);
+            case 'f':
+                return readLiteral("false", Boolean.FALSE);
+            case 'n':
+                return readLiteral("null", null);
+            default:
+                return readNumber();
+        }
+    }
+
+    private Map<String, Object> readObject() {
+        Map<String, Object> object = new HashMap<>();
+        pos++;
+        skipWhitespace();
+        if (peek() == '}') {
+            pos++;
+            return object;
+        }
+        while (true) {
+            skipWhitespace();
+            if (peek() != '"') {
+                throw fail("Expected a quoted key");
+            }
+            final int keyOffset = pos;
+            final String key = readString();
+            skipWhitespace();
+            expect(':');
+            try {
+                if (object.containsKey(key)) {
+                    pos = keyOffset;
+                    throw fail("Duplicate key");
+                }
+                object.put(key, readValue());
+            } catch (Failure failure) {
+                throw failure.within(key);
+            }
+            skipWhitespace();
+            if (peek() == '}') {
+                pos++;
+                return object;
+            }
+            expect(',');
+        }
+    }
+
+    private List<Object> readArray() {
+        List<Object> array = new ArrayList<>();
+        pos++;
+        skipWhitespace();
+        if (peek() == ']') {
+            pos++;
+            return array;
+        }
+        while (true) {
+            try {
+                array.add(readValue());
+            } catch (Failure failure) {
+                throw failure.within(array.size());
+            }
+            skipWhitespace();
+            if (peek() == ']') {
+                pos++;
+                return array;
+            }
+            expect(',');
+        }
+    }
+
+    private String readString() {
+        final int start = ++pos;
+        // -- no escapes: one substring
+        while (pos < text.length()) {
+            final char c = text.charAt(pos);
+            if (c == '"') {
+                return text.substring(start, pos++);
+            }
+            if (c == '\\' || c < ' ') {
+                break;
+            }
+            pos++;
+        }
+        StringBuilder builder = new StringBuilder().append(text, start, pos);
+        while (pos < text.length()) {
+            final char c = text.charAt(pos++);
+            if (c == '"') {
+                return builder.toString();
+            }
+            if (c < ' ') {
+                pos--;
+                throw fail("Control character in a string");
+            }
+            if (c != '\\') {
+                builder.append(c);
+                continue;
+            }
+            final char escape = pos < text.length() ? text.charAt(pos++) : 0;
+            switch (escape) {
+                case '"', '\\', '/' -> builder.append(escape);
+                case 'b' -> builder.append('\b');
+                case 'f' -> builder.append('\f');
+                case 'n' -> builder.append('\n');
+                case 'r' -> builder.append('\r');
+                case 't' -> builder.append('\t');
+                case 'u' -> {
+                    if (pos + 4 > text.length()) {
+                        throw fail("Invalid unicode escape");
+                    }
+                    try {
+                        builder.append((char) Integer.parseInt(text, pos, pos + 4, 16));
+                    } catch (NumberFormatException e) {
+                        throw fail("Invalid unicode escape");
+                    }
+                    pos += 4;
+                }
+                default -> {
+                    pos--;
+                    throw fail("Invalid escape");
+                }
+            }
+        }
+        throw fail("Unterminated string");
+    }
+
+    private Object readNumber() {
+        final int start = pos;
+        if (peek() == '-') {
+            pos++;
+        }
+        final int digits = pos;
+        skipDigits();
+        if (pos == digits || text.charAt(digits) == '0' && pos - digits > 1) {
+            pos = start;
+            throw fail("Expected a value");
+        }
+        boolean integer = true;
+        if (peek() == '.') {
+            integer = false;
+            pos++;
+            final int fraction = pos;
+            skipDigits();
+            if (pos == fraction) {
+                throw fail("Expected a digit");
+            }
+        }
+        if (peek() == 'e' || peek() == 'E') {
+            integer = false;
+            pos++;
+            if (peek() == '+' || peek() == '-') {
+                pos++;
+            }
+            final int exponent = pos;
+            skipDigits();
+            if (pos == exponent) {
+                throw fail("Expected a digit");
+            }
+        }
+        if (integer && pos - digits <= 18) {
+            final long value = Long.parseLong(text, start, pos, 10);
+            return value == (int) value ? (Object) (int) value : (Object) value;
+        }
+        return Double.parseDouble(text.substring(start, pos));
+    }
+
+    private void skipDigits() {
+        while (pos < text.length() && text.charAt(pos) >= '0' && text.charAt(pos) <= '9') {
+            pos++;
+        }
+    }
+
+    private Object readLiteral(String literal, Object value) {
+        if (!text.startsWith(literal, pos)) {
+            throw fail("Expected a value");
+        }
+        pos += literal.length();
+        return value;
+    }
+
+    private void skipWhitespace() {
+        while (pos < text.length()) {
+            final char c = text.charAt(pos);
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+                return;
+            }
+            pos++;
+        }
+    }
+
+    // -- the next character, 0 at the end of the text
+    private char peek() {
+        return pos < text.length() ? text.charAt(pos) : 0;
+    }
+
+    private void expect(char c) {
+        if (peek() != c) {
+            throw fail(pos < text.length() ? "Expected '" + c + "'" : "Unexpected end of text");
+        }
+        pos++;
+    }
+
+    private Failure fail(String message) {
+        return new Failure(message, pos);
+    }
+
+    private String location(int offset) {
+        int line = 1;
+        int lineStart = 0;
+        for (int i = 0; i < offset && i < text.length(); i++) {
+            if (text.charAt(i) == '\n') {
+                line++;
+                lineStart = i + 1;
+            }
+        }
+        return "line " + line + ", column " + (offset - lineStart + 1);
+    }
+}
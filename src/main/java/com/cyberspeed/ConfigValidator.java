@@ -1,226 +1,437 @@
 package com.cyberspeed;
 
-import org.json.JSONArray;
 import org.json.JSONObject;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import static com.cyberspeed.ConfigConst.*;
 
+/**
+ * Checks a config and compiles it into the parts of a {@link GameModel} in the same walk: every value is
+ * type checked where it is read, covered area positions are turned into cell offsets once, and every problem
+ * is collected as a {@link ConfigError} with the JSON path of the value, so one run reports all of them.
+ */
 public class ConfigValidator {
 
-    static final String INTEGER = "Integer";
-    static final String MUST_BE_AN_INTEGER = " must be an integer";
-    static final String MUST_BE_POSITIVE = " must be positive";
-    static final String CANNOT_BE_EMPTY = " cannot be empty";
+    static final String ROOT = "$";
+    static final String IS_MISSING = "is missing";
+    static final String MUST_BE_AN_OBJECT = "must be an object";
+    static final String MUST_BE_AN_ARRAY = "must be an array";
+    static final String MUST_BE_A_STRING = "must be a string";
+    static final String MUST_BE_AN_INTEGER = "must be an integer";
+    static final String MUST_BE_A_NUMBER = "must be a number";
+    static final String MUST_BE_POSITIVE = "must be positive";
+    static final String CANNOT_BE_NEGATIVE = "cannot be negative";
+    static final String CANNOT_BE_EMPTY = "cannot be empty";
+    static final String NOT_IN_SYMBOLS = "is not in symbols";
 
-    private JSONObject config;
-    private List<String> errors;
+    private final Map<String, Object> config;
+    private final List<ConfigError> errors;
 
+    /**
+     * Validates a config already read by org.json, which is more lenient than {@link ConfigReader} about the text.
+     */
     public ConfigValidator(JSONObject config) {
+        this(ConfigReader.read(config));
+    }
+
+    /**
+     * Reads the config text; syntax errors are reported by {@link #validate()} like any other error.
+     */
+    public ConfigValidator(String content) {
+        Map<String, Object> config = null;
+        this.errors = new ArrayList<>();
+        try {
+            config = ConfigReader.read(content);
+        } catch (ConfigException e) {
+            errors.addAll(e.getErrors());
+        }
+        this.config = config;
+    }
+
+    /**
+     * @param config a config read by {@link ConfigReader}
+     */
+    ConfigValidator(Map<String, Object> config) {
         this.config = config;
         this.errors = new ArrayList<>();
     }
 
+    /**
+     * @throws ConfigException listing every error found
+     */
     public void validate() {
+        compile();
+    }
 
-        requireKeys(config, ROWS, COLUMNS, SYMBOLS, PROBABILITIES, WIN_COMBINATIONS);
-
-        validateRowsAndColumns();
-
-        validateSymbols();
+    /**
+     * Errors found by the last validation, empty when the config is valid.
+     */
+    public List<ConfigError> getErrors() {
+        return Collections.unmodifiableList(errors);
+    }
 
-        validateProbabilities();
+    /**
+     * Validates the config and compiles it, in the same walk, into the parts of a model.
+     *
+     * @throws ConfigException listing every error found
+     */
+    GameModel.Parts compile() {
+        if (config == null) {
+            throw new ConfigException(errors);
+        }
+        errors.clear();
 
-        validateWinCombinations();
+        GameModel.Parts parts = new GameModel.Parts();
+        parts.rows = dimension(ROWS);
+        parts.columns = dimension(COLUMNS);
+        Map<String, Integer> symbolIds = compileSymbols(parts);
+        compileProbabilities(parts, symbolIds);
+        compileWinCombinations(parts);
 
         if (!errors.isEmpty()) {
-            throw new IllegalArgumentException(errors.toString());
+            throw new ConfigException(errors);
         }
+        return parts;
+    }
 
+    // -- 0 when missing or not positive, so the grid is empty and the rest of the config is still checked
+    private int dimension(String key) {
+        Integer value = get(config, ROOT, key, Integer.class, MUST_BE_AN_INTEGER);
+        if (value != null && value <= 0) {
+            error(ConfigError.member(ROOT, key), MUST_BE_POSITIVE);
+            return 0;
+        }
+        return value == null ? 0 : value;
     }
 
-    private void validateRowsAndColumns() {
-        if (!config.get(ROWS).getClass().getSimpleName().equals(INTEGER)) {
-            errors.add(ROWS + MUST_BE_AN_INTEGER);
+    private Map<String, Integer> compileSymbols(GameModel.Parts parts) {
+        final String path = ConfigError.member(ROOT, SYMBOLS);
+        Map<String, Object> symbols = object(config, ROOT, SYMBOLS);
+        if (symbols == null) {
+            symbols = Map.of();
+        } else if (symbols.isEmpty()) {
+            error(path, CANNOT_BE_EMPTY);
         }
-        if (!config.get(COLUMNS).getClass().getSimpleName().equals(INTEGER)) {
-            errors.add(COLUMNS + MUST_BE_AN_INTEGER);
+
+        final int symbolCount = symbols.size();
+        parts.symbolNames = new String[symbolCount];
+        parts.types = new GameModel.SymbolType[symbolCount];
+        parts.impacts = new GameModel.Impact[symbolCount];
+        parts.rewardMultipliers = new double[symbolCount];
+        parts.intRewardMultipliers = new int[symbolCount];
+        parts.extras = new int[symbolCount];
+        Map<String, Integer> symbolIds = new HashMap<>();
+
+        int id = 0;
+        for (Map.Entry<String, Object> entry : symbols.entrySet()) {
+            final String name = entry.getKey();
+            final String symbolPath = ConfigError.member(path, name);
+            symbolIds.put(name, id);
+            parts.symbolNames[id] = name;
+            Map<String, Object> symbol = cast(entry.getValue(), symbolPath);
+            if (symbol == null) {
+                symbol = Map.of();
+            } else {
+                validateSymbol(symbol, symbolPath);
+            }
+
+            final Object impact = symbol.get(IMPACT);
+            final Object rewardMultiplier = symbol.get(REWARD_MULTIPLIER);
+            final Object extra = symbol.get(EXTRA);
+            parts.types[id] = BONUS.equals(symbol.get(TYPE)) ? GameModel.SymbolType.BONUS : GameModel.SymbolType.STANDARD;
+            parts.impacts[id] = GameModel.toImpact(impact instanceof String ? (String) impact : null);
+            parts.rewardMultipliers[id] = rewardMultiplier instanceof Number number ? number.doubleValue() : 1;
+            parts.intRewardMultipliers[id] = rewardMultiplier instanceof Number number ? number.intValue() : 1;
+            parts.extras[id] = extra instanceof Number number ? number.intValue() : 0;
+            id++;
         }
+        return symbolIds;
+    }
 
-        try {
-            int rows = config.getInt(ROWS);
-            int columns = config.getInt(COLUMNS);
-            if (rows <= 0) errors.add(ROWS + MUST_BE_POSITIVE);
-            if (columns <= 0) errors.add(COLUMNS + MUST_BE_POSITIVE);
-        } catch (Exception e) {
-            errors.add("Invalid rows or columns value.");
+    private void validateSymbol(Map<String, Object> symbol, String path) {
+        final String type = get(symbol, path, TYPE, String.class, MUST_BE_A_STRING);
+        if (type == null) {
+            return;
+        }
+        if (type.equals("standard")) {
+            Number rewardMultiplier = get(symbol, path, REWARD_MULTIPLIER, Number.class, MUST_BE_A_NUMBER);
+            if (rewardMultiplier != null && rewardMultiplier.doubleValue() <= 0) {
+                error(ConfigError.member(path, REWARD_MULTIPLIER), MUST_BE_POSITIVE);
+            }
+        } else if (type.equals(BONUS)) {
+            final String impact = get(symbol, path, IMPACT, String.class, MUST_BE_A_STRING);
+            if (MULTIPLY_REWARD.equals(impact)) {
+                get(symbol, path, REWARD_MULTIPLIER, Number.class, MUST_BE_A_NUMBER);
+            } else if (EXTRA_BONUS.equals(impact)) {
+                get(symbol, path, EXTRA, Integer.class, MUST_BE_AN_INTEGER);
+            } else if (impact != null && !impact.equals("miss")) {
+                error(ConfigError.member(path, IMPACT), "invalid bonus impact: " + impact);
+            }
+        } else {
+            error(ConfigError.member(path, TYPE), "invalid symbol type: " + type);
         }
     }
 
-    private void validateSymbols() {
-        JSONObject symbols = config.getJSONObject(SYMBOLS);
-        if (symbols.isEmpty()) {
-            errors.add(SYMBOLS + CANNOT_BE_EMPTY);
+    private void compileProbabilities(GameModel.Parts parts, Map<String, Integer> symbolIds) {
+        final String path = ConfigError.member(ROOT, PROBABILITIES);
+        Map<String, Object> probabilities = object(config, ROOT, PROBABILITIES);
+        if (probabilities == null) {
+            parts.probabilitySymbols = new int[0][];
+            parts.probabilityWeights = new int[0][];
+            parts.cellProbabilities = new int[0];
             return;
         }
 
-        for (String symbolKey : symbols.keySet()) {
-            JSONObject symbol = symbols.getJSONObject(symbolKey);
-            if (!symbol.has(TYPE)) {
-                errors.add("Symbol " + symbolKey + " is missing the 'type' field.");
-                continue;
-            }
+        // -- bonus symbols are drawn in every cell, after the symbols of the cell
+        final String bonusPath = ConfigError.member(ConfigError.member(path, BONUS_SYMBOLS), SYMBOLS);
+        Map<String, Object> bonusSymbols = object(probabilities, path, BONUS_SYMBOLS);
+        if (bonusSymbols != null) {
+            bonusSymbols = object(bonusSymbols, ConfigError.member(path, BONUS_SYMBOLS), SYMBOLS);
+        }
+        if (bonusSymbols == null) {
+            bonusSymbols = Map.of();
+        }
+        final int[] bonusIds = new int[bonusSymbols.size()];
+        final int[] bonusWeights = new int[bonusIds.length];
+        final int bonusCount = weights(bonusSymbols, bonusPath, symbolIds, bonusIds, bonusWeights);
+
+        final String standardPath = ConfigError.member(path, STANDARD_SYMBOLS);
+        List<?> standardSymbols = array(probabilities, path, STANDARD_SYMBOLS);
+        if (standardSymbols == null) {
+            standardSymbols = List.of();
+        } else if (standardSymbols.isEmpty()) {
+            error(standardPath, CANNOT_BE_EMPTY);
+        }
 
-            String type = symbol.getString(TYPE);
-            if ("standard".equals(type)) {
-                if (!symbol.has(REWARD_MULTIPLIER)) {
-                    errors.add("Symbol " + symbolKey + " is missing the 'reward_multiplier' field.");
-                } else if (!(symbol.get(REWARD_MULTIPLIER) instanceof Number)) {
-                    errors.add("Symbol " + symbolKey + " reward_multiplier must be a number.");
-                } else if (symbol.getDouble(REWARD_MULTIPLIER) <= 0) {
-                    errors.add("Symbol " + symbolKey + " reward_multiplier must be positive.");
+        parts.probabilitySymbols = new int[standardSymbols.size()][];
+        parts.probabilityWeights = new int[standardSymbols.size()][];
+        // -- cells draw from the entry declaring them, cells nobody declares from the first entry
+        parts.cellProbabilities = new int[parts.rows * parts.columns];
+        final int[] declaredBy = new int[parts.cellProbabilities.length];
+        Arrays.fill(declaredBy, -1);
+        // -- position of a symbol in the table being merged, -1 when it is not in it yet
+        final int[] slots = new int[parts.symbolNames.length];
+        Arrays.fill(slots, -1);
+        for (int i = 0; i < standardSymbols.size(); i++) {
+            final String entryPath = ConfigError.element(standardPath, i);
+            final Map<String, Object> entry = cast(standardSymbols.get(i), entryPath);
+            Map<String, Object> cellSymbols = null;
+            if (entry != null) {
+                final Integer column = get(entry, entryPath, COLUMN, Integer.class, MUST_BE_AN_INTEGER);
+                final Integer row = get(entry, entryPath, ROW, Integer.class, MUST_BE_AN_INTEGER);
+                if (row != null && column != null) {
+                    declareCell(parts, declaredBy, standardPath, i, row, column);
                 }
-            } else if (BONUS.equals(type)) {
-                if (!symbol.has(IMPACT)) {
-                    errors.add("Symbol " + symbolKey + " is missing the 'impact' field.");
+                cellSymbols = object(entry, entryPath, SYMBOLS);
+            }
+            if (cellSymbols == null) {
+                cellSymbols = Map.of();
+            } else if (cellSymbols.isEmpty()) {
+                error(ConfigError.member(entryPath, SYMBOLS), CANNOT_BE_EMPTY);
+            }
+            final int[] ids = new int[cellSymbols.size() + bonusCount];
+            final int[] weights = new int[ids.length];
+            int count = weights(cellSymbols, ConfigError.member(entryPath, SYMBOLS), symbolIds, ids, weights);
+            for (int k = 0; k < count; k++) {
+                slots[ids[k]] = k;
+            }
+            for (int k = 0; k < bonusCount; k++) {
+                if (slots[bonusIds[k]] >= 0) {
+                    weights[slots[bonusIds[k]]] = bonusWeights[k];
                 } else {
-                    String impact = symbol.getString(IMPACT);
-                    if (impact.equals(MULTIPLY_REWARD)) {
-                        if (!symbol.has(REWARD_MULTIPLIER)) {
-                            errors.add("Symbol " + symbolKey + " is missing the 'reward_multiplier' field.");
-                        } else if (!(symbol.get(REWARD_MULTIPLIER) instanceof Number)) {
-                            errors.add("Symbol " + symbolKey + " reward_multiplier must be a number.");
-                        }
-                    } else if (impact.equals(EXTRA_BONUS)) {
-                        if (!symbol.has(EXTRA)) {
-                            errors.add("Symbol " + symbolKey + " is missing the 'extra' field.");
-                        } else if (!symbol.get(EXTRA).getClass().getSimpleName().equals(INTEGER)) {
-                            errors.add("Symbol " + symbolKey + " extra must be an integer.");
-                        }
-                    } else if (!impact.equals("miss")) {
-                        errors.add("Invalid bonus impact: " + impact + " for symbol " + symbolKey);
-                    }
+                    slots[bonusIds[k]] = count;
+                    ids[count] = bonusIds[k];
+                    weights[count++] = bonusWeights[k];
                 }
-            } else {
-                errors.add("Invalid symbol type: " + type + " for symbol " + symbolKey);
             }
+
+            long total = 0;
+            for (int k = 0; k < count; k++) {
+                total += weights[k];
+                slots[ids[k]] = -1;
+            }
+            if (total <= 0 && !cellSymbols.isEmpty()) {
+                error(ConfigError.member(entryPath, SYMBOLS), "weights must add up to a positive value");
+            }
+            parts.probabilitySymbols[i] = Arrays.copyOf(ids, count);
+            parts.probabilityWeights[i] = Arrays.copyOf(weights, count);
         }
     }
 
-    private void validateProbabilities() {
-        JSONArray standardSymbolsProbabilities = config.getJSONObject(PROBABILITIES).getJSONArray(STANDARD_SYMBOLS);
-        if (standardSymbolsProbabilities.isEmpty()) {
-            errors.add(PROBABILITIES + CANNOT_BE_EMPTY);
-            return;
+    /**
+     * Makes the cell at (row, column) draw from entry 'index'. Entries outside the grid never apply
+     * (a config resized to fewer rows or columns keeps its other entries).
+     */
+    private void declareCell(GameModel.Parts parts, int[] declaredBy, String path, int index, int row, int column) {
+        final String entryPath = ConfigError.element(path, index);
+        if (row < 0 || column < 0) {
+            error(ConfigError.member(entryPath, row < 0 ? ROW : COLUMN), CANNOT_BE_NEGATIVE);
+        } else if (row < parts.rows && column < parts.columns) {
+            final int cell = row * parts.columns + column;
+            if (declaredBy[cell] >= 0) {
+                error(entryPath, "declares the same cell as " + ConfigError.element(path, declaredBy[cell]));
+            } else {
+                declaredBy[cell] = index;
+                parts.cellProbabilities[cell] = index;
+            }
         }
+    }
 
-        for (int i = 0; i < standardSymbolsProbabilities.length(); i++) {
-            JSONObject probability = standardSymbolsProbabilities.getJSONObject(i);
-            if (!probability.has(COLUMN)) {
-                errors.add("Probability at index " + i + " is missing the 'column' field.");
-            } else if (!probability.get(COLUMN).getClass().getSimpleName().equals(INTEGER)) {
-                errors.add("Probability at index " + i + " column must be an integer.");
+    /**
+     * Compiles a map of symbol name to weight into ids and weights, skipping (and reporting) invalid entries.
+     *
+     * @return the number of entries compiled
+     */
+    private int weights(Map<String, Object> symbols, String path, Map<String, Integer> symbolIds, int[] ids, int[] weights) {
+        int count = 0;
+        for (Map.Entry<String, Object> entry : symbols.entrySet()) {
+            final Integer id = symbolIds.get(entry.getKey());
+            if (id == null) {
+                error(ConfigError.member(path, entry.getKey()), NOT_IN_SYMBOLS);
+            } else if (!(entry.getValue() instanceof Integer weight)) {
+                error(ConfigError.member(path, entry.getKey()), MUST_BE_AN_INTEGER);
+            } else if (weight < 0) {
+                error(ConfigError.member(path, entry.getKey()), CANNOT_BE_NEGATIVE);
+            } else {
+                ids[count] = id;
+                weights[count++] = weight;
             }
+        }
+        return count;
+    }
+
+    private void compileWinCombinations(GameModel.Parts parts) {
+        final String path = ConfigError.member(ROOT, WIN_COMBINATIONS);
+        Map<String, Object> winCombinations = object(config, ROOT, WIN_COMBINATIONS);
+        if (winCombinations == null) {
+            winCombinations = Map.of();
+        } else if (winCombinations.isEmpty()) {
+            error(path, CANNOT_BE_EMPTY);
+        }
 
-            if (!probability.has(ROW)) {
-                errors.add("Probability at index " + i + " is missing the 'row' field.");
-            } else if (!probability.get(ROW).getClass().getSimpleName().equals(INTEGER)) {
-                errors.add("Probability at index " + i + " row must be an integer.");
+        parts.combinations = new GameModel.WinCombination[winCombinations.size()];
+        int id = 0;
+        for (Map.Entry<String, Object> entry : winCombinations.entrySet()) {
+            final String name = entry.getKey();
+            final String combinationPath = ConfigError.member(path, name);
+            Map<String, Object> combination = cast(entry.getValue(), combinationPath);
+            if (combination == null) {
+                combination = Map.of();
             }
 
-            if (!probability.has(SYMBOLS)) {
-                errors.add("Probability at index " + i + " is missing the 'symbols' field.");
-            } else {
-                JSONObject symbolProbabilities = probability.getJSONObject(SYMBOLS);
-                if (symbolProbabilities.isEmpty()) {
-                    errors.add("Probability at index " + i + " symbols cannot be empty.");
-                } else {
-                    for (String symbolKey : symbolProbabilities.keySet()) {
-                        if (!config.getJSONObject(SYMBOLS).has(symbolKey)) {
-                            errors.add("Symbol " + symbolKey + " in probability at index " + i + " not found in symbols list.");
-                        } else if (!symbolProbabilities.get(symbolKey).getClass().getSimpleName().equals(INTEGER)) {
-                            errors.add("Symbol " + symbolKey + " probability at index " + i + " must be an integer.");
-                        }
-                    }
+            final Number rewardMultiplier = get(combination, combinationPath, REWARD_MULTIPLIER, Number.class, MUST_BE_A_NUMBER);
+            final String when = get(combination, combinationPath, WHEN, String.class, MUST_BE_A_STRING);
+            Integer count = null;
+            int[] lineStarts = {0};
+            int[] lineOffsets = {};
+            if (SAME_SYMBOLS.equals(when)) {
+                count = get(combination, combinationPath, COUNT, Integer.class, MUST_BE_AN_INTEGER);
+            } else if (LINEAR_SYMBOLS.equals(when)) {
+                List<?> areas = array(combination, combinationPath, COVERED_AREAS);
+                if (areas != null) {
+                    lineStarts = new int[areas.size() + 1];
+                    lineOffsets = compileLines(areas, ConfigError.member(combinationPath, COVERED_AREAS), parts, lineStarts);
                 }
+            } else if (when != null) {
+                error(ConfigError.member(combinationPath, WHEN), "invalid value: " + when);
             }
+
+            parts.combinations[id] = GameModel.WinCombination.compile(id, name,
+                    LINEAR_SYMBOLS.equals(when) ? GameModel.When.LINEAR_SYMBOLS : GameModel.When.SAME_SYMBOLS,
+                    rewardMultiplier == null ? 0 : rewardMultiplier.doubleValue(),
+                    rewardMultiplier == null ? 0 : rewardMultiplier.intValue(),
+                    count == null ? 0 : count, lineStarts, lineOffsets, parts.rows * parts.columns);
+            id++;
         }
     }
 
-    private void validateWinCombinations() {
-        JSONObject winCombinations = config.getJSONObject(WIN_COMBINATIONS);
-        if (winCombinations.isEmpty()) {
-            errors.add(WIN_COMBINATIONS + CANNOT_BE_EMPTY);
-            return;
+    /**
+     * Compiles covered areas into cell offsets back to back, filling in where each line starts.
+     */
+    private int[] compileLines(List<?> areas, String path, GameModel.Parts parts, int[] lineStarts) {
+        if (areas.isEmpty()) {
+            error(path, CANNOT_BE_EMPTY);
         }
+        int cells = 0;
+        for (int i = 0; i < areas.size(); i++) {
+            lineStarts[i] = cells;
+            if (areas.get(i) instanceof List<?> area) {
+                cells += area.size();
+            } else {
+                error(ConfigError.element(path, i), MUST_BE_AN_ARRAY);
+            }
+        }
+        lineStarts[areas.size()] = cells;
 
-        for (String combinationKey : winCombinations.keySet()) {
-            JSONObject combination = winCombinations.getJSONObject(combinationKey);
-            if (!combination.has(REWARD_MULTIPLIER)) {
-                errors.add("Combination " + combinationKey + " is missing the 'reward_multiplier' field.");
+        // -- out of bounds positions are only reported against a valid grid
+        final boolean sized = parts.rows > 0 && parts.columns > 0;
+        final int[] lineOffsets = new int[cells];
+        for (int i = 0; i < areas.size(); i++) {
+            if (!(areas.get(i) instanceof List<?> area)) {
+                continue;
             }
-            if (!combination.has(WHEN)) {
-                errors.add("Combination " + combinationKey + " is missing the 'when' field.");
-            } else {
-                String when = combination.getString(WHEN);
-                if (when.equals(SAME_SYMBOLS)) {
-                    if (!combination.has(COUNT)) {
-                        errors.add("Combination " + combinationKey + " is missing the 'count' field.");
-                    } else if (!combination.get(COUNT).getClass().getSimpleName().equals(INTEGER)) {
-                        errors.add("Combination " + combinationKey + " count must be an integer.");
-                    }
-                } else if (when.equals(LINEAR_SYMBOLS)) {
-                    if (!combination.has(COVERED_AREAS)) {
-                        errors.add("Combination " + combinationKey + " is missing the 'covered_areas' field.");
-                    } else {
-                        JSONArray coveredAreas = combination.getJSONArray(COVERED_AREAS);
-                        if (coveredAreas.isEmpty()) {
-                            errors.add("Combination " + combinationKey + " covered_areas cannot be empty.");
-                        } else {
-                            for (int i = 0; i < coveredAreas.length(); i++) {
-                                Object area = coveredAreas.get(i);
-                                if (!(area instanceof JSONArray)) {
-                                    errors.add("Combination " + combinationKey + " covered_areas must be an array of arrays.");
-                                } else {
-                                    JSONArray areaArray = (JSONArray) area;
-                                    for (int j = 0; j < areaArray.length(); j++) {
-                                        if (!(areaArray.get(j) instanceof String)) {
-                                            errors.add("Combination " + combinationKey + " covered_areas must contain strings in the format 'column:row'.");
-                                        } else {
-                                            String[] pos = areaArray.getString(j).split(":");
-                                            if (pos.length != 2) {
-                                                errors.add("Combination " + combinationKey + " covered_areas position must be in the format 'column:row'.");
-                                            } else {
-                                                try {
-                                                    int row = Integer.parseInt(pos[0]);
-                                                    int col = Integer.parseInt(pos[1]);
-                                                    if (row < 0 || row >= config.getInt(ROWS) || col < 0 || col >= config.getInt(COLUMNS)) {
-                                                        errors.add("Combination " + combinationKey + " covered_areas position " + areaArray.getString(j) + " is out of bounds.");
-                                                    }
-                                                } catch (NumberFormatException e) {
-                                                    errors.add("Combination " + combinationKey + " covered_areas position must contain integers.");
-                                                }
-                                            }
-                                        }
-                                    }
-                                }
-                            }
-                        }
-                    }
-                } else {
-                    errors.add("Invalid winning combination 'when' value: " + when + " for combination " + combinationKey);
+            for (int j = 0; j < area.size(); j++) {
+                if (!(area.get(j) instanceof String position)) {
+                    error(ConfigError.element(ConfigError.element(path, i), j), "must be a string in the format 'row:column'");
+                    continue;
+                }
+                try {
+                    lineOffsets[lineStarts[i] + j] = GameModel.toCellOffset(position,
+                            sized ? parts.rows : Integer.MAX_VALUE, sized ? parts.columns : Integer.MAX_VALUE);
+                } catch (IllegalArgumentException e) {
+                    error(ConfigError.element(ConfigError.element(path, i), j), e.getMessage());
                 }
             }
         }
+        return lineOffsets;
     }
 
-    private void requireKeys(JSONObject json, String... keys) {
-        for (String key : keys) {
-            if (!json.has(key)) {
-                errors.add("Missing key: " + key);
-            }
+    /**
+     * The value of a key of the object at 'path', null (reported) when it is missing or not of the type.
+     */
+    private <T> T get(Map<String, Object> object, String path, String key, Class<T> type, String typeError) {
+        final Object value = object.get(key);
+        if (value == null) {
+            error(ConfigError.member(path, key), object.containsKey(key) ? typeError : IS_MISSING);
+            return null;
+        }
+        if (!type.isInstance(value)) {
+            error(ConfigError.member(path, key), typeError);
+            return null;
         }
+        return type.cast(value);
+    }
+
+    private Map<String, Object> object(Map<String, Object> object, String path, String key) {
+        return cast(get(object, path, key, Map.class, MUST_BE_AN_OBJECT), null);
+    }
+
+    // -- elements are only read, as config values of any type
+    private List<?> array(Map<String, Object> object, String path, String key) {
+        return get(object, path, key, List.class, MUST_BE_AN_ARRAY);
+    }
+
+    /**
+     * The value as an object, null when it is not one (reported at 'path' unless it is null).
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> cast(Object value, String path) {
+        if (value instanceof Map) {
+            return (Map<String, Object>) value;
+        }
+        if (path != null) {
+            error(path, MUST_BE_AN_OBJECT);
+        }
+        return null;
+    }
+
+    private void error(String path, String message) {
+        errors.add(new ConfigError(path, message));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,169 @@
+package com.cyberspeed;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Keeps the compiled model of a config file current while the game keeps running.
+ * A WatchService thread notices changes of the file, then re-parses, validates and compiles it
+ * off the hot path and swaps the new model in with a single volatile write. Callers take
+ * {@link #getModel()} once per round or per request and keep that snapshot, so in-flight rounds
+ * finish on the old version while new rounds use the new one, and no round waits for a reload.
+ * <p>
+ * Versions start at 1 and grow with every successful reload; the version is stamped in every
+ * round result (see {@link GameModel#getVersion()}). An invalid config is reported and the
+ * current version stays in service. Listeners are told of every new version once it is swapped in.
+ */
+public class ConfigWatcher implements Closeable {
+
+    // -- editors often write a file in several steps, events closer than this are handled once
+    static final long SETTLE_MILLIS = 50;
+
+    private final Path configPath;
+    private final PartPool pool;
+    private final WatchService watchService;
+    private final List<Consumer<GameModel>> listeners = new CopyOnWriteArrayList<>();
+    private volatile GameModel model;
+    private volatile String lastError;
+    private volatile List<ConfigError> lastErrors = List.of();
+    private Thread thread;
+
+    public ConfigWatcher(Path configPath) throws IOException {
+        this(configPath, PartPool.UNSHARED);
+    }
+
+    ConfigWatcher(Path configPath, PartPool pool) throws IOException {
+        this.configPath = configPath.toAbsolutePath();
+        this.pool = pool;
+        this.model = GameModel.parse(this.configPath.toString(), Files.readString(this.configPath), 1, pool);
+        this.watchService = this.configPath.getFileSystem().newWatchService();
+        this.configPath.getParent().register(watchService, ENTRY_CREATE, ENTRY_MODIFY);
+    }
+
+    /**
+     * Starts watching the config file on a daemon thread.
+     */
+    public synchronized void start() {
+        if (thread == null) {
+            thread = Thread.ofPlatform().daemon().name("config-watcher").start(this::watch);
+        }
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                boolean changed = handle(watchService.take());
+                // -- drain the events of the same write before reloading
+                WatchKey key;
+                while ((key = watchService.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    changed |= handle(key);
+                }
+                if (changed) {
+                    reload();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // -- closed
+        }
+    }
+
+    private boolean handle(WatchKey key) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW || configPath.getFileName().equals(event.context())) {
+                changed = true;
+            }
+        }
+        key.reset();
+        return changed;
+    }
+
+    /**
+     * Re-reads the config file and swaps in its model when it is valid and differs from the current one.
+     *
+     * @return true when a new version was swapped in
+     */
+    public synchronized boolean reload() {
+        final GameModel current = model;
+        GameModel next;
+        try {
+            next = GameModel.parse(configPath.toString(), Files.readString(configPath), current.getVersion() + 1, pool);
+        } catch (IOException | RuntimeException e) {
+            lastError = e.getMessage();
+            lastErrors = e instanceof ConfigException invalid ? invalid.getErrors() : List.of();
+            System.err.println(" >>>> Keeping config version " + current.getVersion() + ", " + configPath + " is invalid: " + lastError);
+            return false;
+        }
+        lastError = null;
+        lastErrors = List.of();
+        if (next.getConfigHash() == current.getConfigHash()) {
+            next.releaseParts();
+            return false;
+        }
+        model = next;
+        // -- rounds in flight keep the old version, the pool forgets the parts only it used
+        current.releaseParts();
+        System.out.println(" >>>> Loaded config version " + next.getVersion() + " from " + configPath);
+        for (Consumer<GameModel> listener : listeners) {
+            listener.accept(next);
+        }
+        return true;
+    }
+
+    /**
+     * Calls 'listener' with every new model, on the reloading thread right after it is swapped in,
+     * e.g. to drop what was prepared with the previous version.
+     */
+    public void addListener(Consumer<GameModel> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Model of the current config version. Take it once per round (or request) and keep it.
+     */
+    public GameModel getModel() {
+        return model;
+    }
+
+    public int getVersion() {
+        return model.getVersion();
+    }
+
+    /**
+     * Message of the last failed reload, null when the last reload succeeded.
+     */
+    public String getLastError() {
+        return lastError;
+    }
+
+    /**
+     * Errors of the last failed reload by JSON path, see {@link ConfigValidator}; empty when the last reload
+     * succeeded or the file could not be read.
+     */
+    public List<ConfigError> getLastErrors() {
+        return lastErrors;
+    }
+
+    public Path getConfigPath() {
+        return configPath;
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+        Thread watcher;
+        synchronized (this) {
+            watcher = thread;
+        }
+        if (watcher != null) {
+            watcher.interrupt();
+        }
+    }
+}
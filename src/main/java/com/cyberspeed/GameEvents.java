@@ -0,0 +1,132 @@
+package com.cyberspeed;
+
+import jdk.jfr.*;
+
+/**
+ * Java Flight Recorder events of the game, recorded with any JFR recording, e.g.
+ * {@code java -XX:StartFlightRecording:filename=game.jfr ...}. Without a recording an event is
+ * never committed and the JIT removes it, so the play path pays next to nothing.
+ * <p>
+ * A {@link RoundEvent} spans a round, with the phases of the round ({@link PhaseEvent}: generate,
+ * evaluate, bonus, serialize) nested in it on the same thread, so allocation and GC events can be
+ * attributed to a game, a round and a phase. A {@link ConfigEvent} spans a config load.
+ * <p>
+ * Rounds and phases are kept from 100 us by default; to keep every round, lower the threshold, e.g.
+ * {@code -XX:StartFlightRecording:+com.cyberspeed.Round#threshold=0ns,+com.cyberspeed.RoundPhase#threshold=0ns}.
+ */
+public final class GameEvents {
+
+    static final String CATEGORY = "CyberSpeed";
+    // -- a round takes about a microsecond: by default only the tail is kept
+    static final String TAIL_THRESHOLD = "100 us";
+
+    private GameEvents() {
+    }
+
+    @Name("com.cyberspeed.Round")
+    @Label("Game Round")
+    @Category({CATEGORY, "Game"})
+    @Description("One round, from generating the grid to its JSON output")
+    @StackTrace(false)
+    @Threshold(TAIL_THRESHOLD)
+    public static final class RoundEvent extends Event {
+        @Label("Game")
+        String game;
+
+        @Label("Round")
+        long round = -1;
+
+        @Label("Bet Amount")
+        int betAmount;
+
+        @Label("Reward")
+        double reward;
+
+        @Label("Rows")
+        int rows;
+
+        @Label("Columns")
+        int columns;
+
+        @Label("Config Version")
+        int configVersion;
+
+        /**
+         * Fills in the round and commits it, when the recording keeps it.
+         */
+        void finish(String game, long round, GameModel model, int betAmount, double reward) {
+            end();
+            if (shouldCommit()) {
+                this.game = game;
+                this.round = round;
+                this.betAmount = betAmount;
+                this.reward = reward;
+                this.rows = model.getRows();
+                this.columns = model.getColumns();
+                this.configVersion = model.getVersion();
+                commit();
+            }
+        }
+    }
+
+    @Name("com.cyberspeed.RoundPhase")
+    @Label("Game Round Phase")
+    @Category({CATEGORY, "Game"})
+    @Description("A phase of a round: generate (SymbolGenerator), evaluate and bonus (RewardCalculator), serialize (output)")
+    @StackTrace(false)
+    @Threshold(TAIL_THRESHOLD)
+    public static final class PhaseEvent extends Event {
+        @Label("Phase")
+        String phase;
+
+        void finish(GameMetrics.Stage stage) {
+            end();
+            if (shouldCommit()) {
+                this.phase = stage.getLabel();
+                commit();
+            }
+        }
+    }
+
+    @Name("com.cyberspeed.ConfigLoad")
+    @Label("Config Load")
+    @Category({CATEGORY, "Config"})
+    @Description("Parsing, validation and compilation of a config")
+    public static final class ConfigEvent extends Event {
+        @Label("Source")
+        String source;
+
+        @Label("Config Version")
+        int configVersion;
+
+        @Label("Parse Duration")
+        @Timespan
+        long parseDuration;
+
+        @Label("Validate Duration")
+        @Timespan
+        long validateDuration;
+
+        @Label("Compile Duration")
+        @Timespan
+        long compileDuration;
+
+        @Label("Valid")
+        boolean valid;
+
+        @Label("Error")
+        String error;
+    }
+
+    static RoundEvent beginRound() {
+        RoundEvent event = new RoundEvent();
+        event.begin();
+        return event;
+    }
+
+    static PhaseEvent beginPhase() {
+        PhaseEvent event = new PhaseEvent();
+        event.begin();
+        return event;
+    }
+}
@@ -0,0 +1,311 @@
+package com.cyberspeed;
+
+import org.json.JSONObject;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Live metrics of a game: rounds, hits, bets and rewards (so the running RTP and hit rate),
+ * win combination triggers and, when timed, a {@link LatencyHistogram} per stage of a round.
+ * Counters are striped ({@link LongAdder}, {@link DoubleAdder}) and so are the histograms, so concurrent
+ * rounds rarely contend.
+ * <p>
+ * Components take an optional instance ({@link PuzzleGame#setMetrics}, {@link BatchPlayer#setMetrics},
+ * {@link RewardCalculator#setMetrics}); without one, or with an untimed one, a round does not read
+ * the clock. Exposed as JSON, as Prometheus-style text (see {@link #toText(Map)}) and over JMX.
+ */
+public class GameMetrics implements GameMetricsMXBean {
+
+    public enum Stage {
+        GENERATE, EVALUATE, BONUS, SERIALIZE;
+
+        public String getLabel() {
+            return name().toLowerCase();
+        }
+    }
+
+    static final String ROUNDS = "rounds";
+    static final String HITS = "hits";
+    static final String TOTAL_BET = "total_bet";
+    static final String TOTAL_REWARD = "total_reward";
+    static final String RTP = "rtp";
+    static final String HIT_FREQUENCY = "hit_frequency";
+    static final String COMBINATION_TRIGGERS = "combination_triggers";
+    static final String LATENCY_MICROS = "latency_micros";
+    static final String COUNT = "count";
+    static final String MEAN = "mean";
+    static final String MAX = "max";
+
+    static final double[] PERCENTILES = {50, 90, 99, 99.9};
+    static final String OBJECT_NAME = "com.cyberspeed:type=GameMetrics,game=";
+    static final String TEXT_PREFIX = "cyberspeed_";
+
+    private final boolean timed;
+    private final LongAdder rounds = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final DoubleAdder totalBet = new DoubleAdder();
+    private final DoubleAdder totalReward = new DoubleAdder();
+    // -- by name, so counts carry over reloads of the config
+    private final Map<String, LongAdder> combinationTriggers = new ConcurrentHashMap<>();
+    private final LatencyHistogram[] latencies;
+
+    /**
+     * @param timed whether rounds also record the latency of each stage
+     */
+    public GameMetrics(boolean timed) {
+        this.timed = timed;
+        this.latencies = new LatencyHistogram[Stage.values().length];
+        if (timed) {
+            for (int i = 0; i < latencies.length; i++) {
+                latencies[i] = new LatencyHistogram();
+            }
+        }
+    }
+
+    @Override
+    public boolean isTimed() {
+        return timed;
+    }
+
+    public void record(Stage stage, long nanos) {
+        latencies[stage.ordinal()].record(nanos);
+    }
+
+    /**
+     * Records the round last evaluated by the calculator.
+     */
+    public void recordRound(GameModel model, int betAmount, double reward, RewardCalculator calculator) {
+        recordOutcome(betAmount, reward);
+        for (int i = 0; i < calculator.getAppliedCount(); i++) {
+            recordTrigger(model, calculator.getAppliedCombinationId(i));
+        }
+    }
+
+    /**
+     * Records a round played earlier, e.g. a card of a {@link CardPool}, from the ids of its applied combinations.
+     */
+    public void recordRound(GameModel model, int betAmount, double reward, int[] combinationIds) {
+        recordOutcome(betAmount, reward);
+        for (int combinationId : combinationIds) {
+            recordTrigger(model, combinationId);
+        }
+    }
+
+    private void recordOutcome(int betAmount, double reward) {
+        rounds.increment();
+        totalBet.add(betAmount);
+        totalReward.add(reward);
+        if (reward > 0) {
+            hits.increment();
+        }
+    }
+
+    private void recordTrigger(GameModel model, int combinationId) {
+        final String name = model.getCombination(combinationId).getName();
+        LongAdder triggers = combinationTriggers.get(name);
+        if (triggers == null) {
+            triggers = combinationTriggers.computeIfAbsent(name, key -> new LongAdder());
+        }
+        triggers.increment();
+    }
+
+    /**
+     * Histogram of a stage, null when the metrics are not timed.
+     */
+    public LatencyHistogram getLatency(Stage stage) {
+        return latencies[stage.ordinal()];
+    }
+
+    @Override
+    public long getRounds() {
+        return rounds.sum();
+    }
+
+    @Override
+    public long getHits() {
+        return hits.sum();
+    }
+
+    @Override
+    public double getTotalBet() {
+        return totalBet.sum();
+    }
+
+    @Override
+    public double getTotalReward() {
+        return totalReward.sum();
+    }
+
+    @Override
+    public double getRtp() {
+        final double bet = getTotalBet();
+        return bet == 0 ? 0 : getTotalReward() / bet;
+    }
+
+    @Override
+    public double getHitFrequency() {
+        final long n = getRounds();
+        return n == 0 ? 0 : (double) getHits() / n;
+    }
+
+    @Override
+    public Map<String, Long> getCombinationTriggers() {
+        SortedMap<String, Long> triggers = new TreeMap<>();
+        combinationTriggers.forEach((name, count) -> triggers.put(name, count.sum()));
+        return triggers;
+    }
+
+    @Override
+    public Map<String, Double> getLatencyMicros() {
+        SortedMap<String, Double> micros = new TreeMap<>();
+        if (timed) {
+            for (Stage stage : Stage.values()) {
+                for (double percentile : PERCENTILES) {
+                    micros.put(stage.getLabel() + "." + percentileName(percentile),
+                            getLatency(stage).getValueAtPercentile(percentile) / 1e3);
+                }
+            }
+        }
+        return micros;
+    }
+
+    // -- 50 -> "p50", 99.9 -> "p999"
+    // -- e.g. 0.999 for 99.9, in decimal so the label has no binary rounding
+    private static String quantileOf(double percentile) {
+        return BigDecimal.valueOf(percentile).movePointLeft(2).stripTrailingZeros().toPlainString();
+    }
+
+    private static String percentileName(double percentile) {
+        return "p" + (percentile == Math.rint(percentile) ? Long.toString((long) percentile) : Double.toString(percentile).replace(".", ""));
+    }
+
+    public JSONObject toJson() {
+        JSONObject json = new JSONObject();
+        json.put(ROUNDS, getRounds());
+        json.put(HITS, getHits());
+        json.put(TOTAL_BET, getTotalBet());
+        json.put(TOTAL_REWARD, getTotalReward());
+        json.put(RTP, getRtp());
+        json.put(HIT_FREQUENCY, getHitFrequency());
+        json.put(COMBINATION_TRIGGERS, new JSONObject(getCombinationTriggers()));
+        if (timed) {
+            JSONObject stages = new JSONObject();
+            for (Stage stage : Stage.values()) {
+                LatencyHistogram histogram = getLatency(stage);
+                JSONObject latency = new JSONObject();
+                latency.put(COUNT, histogram.getCount());
+                latency.put(MEAN, histogram.getMean() / 1e3);
+                for (double percentile : PERCENTILES) {
+                    latency.put(percentileName(percentile), histogram.getValueAtPercentile(percentile) / 1e3);
+                }
+                latency.put(MAX, histogram.getMax() / 1e3);
+                stages.put(stage.getLabel(), latency);
+            }
+            json.put(LATENCY_MICROS, stages);
+        }
+        return json;
+    }
+
+    /**
+     * Metrics of every game in the Prometheus text format, one sample per line labelled with the game id.
+     */
+    public static String toText(Map<String, GameMetrics> games) {
+        SortedMap<String, GameMetrics> sorted = new TreeMap<>(games);
+        StringBuilder out = new StringBuilder();
+
+        family(out, "rounds_total", "counter");
+        sorted.forEach((game, metrics) -> sample(out, "rounds_total", game, null, metrics.getRounds()));
+        family(out, "hits_total", "counter");
+        sorted.forEach((game, metrics) -> sample(out, "hits_total", game, null, metrics.getHits()));
+        family(out, "bet_total", "counter");
+        sorted.forEach((game, metrics) -> sample(out, "bet_total", game, null, metrics.getTotalBet()));
+        family(out, "reward_total", "counter");
+        sorted.forEach((game, metrics) -> sample(out, "reward_total", game, null, metrics.getTotalReward()));
+        family(out, "rtp", "gauge");
+        sorted.forEach((game, metrics) -> sample(out, "rtp", game, null, metrics.getRtp()));
+        family(out, "hit_frequency", "gauge");
+        sorted.forEach((game, metrics) -> sample(out, "hit_frequency", game, null, metrics.getHitFrequency()));
+
+        family(out, "combination_triggers_total", "counter");
+        sorted.forEach((game, metrics) -> metrics.getCombinationTriggers().forEach((combination, count) ->
+                sample(out, "combination_triggers_total", game, "combination=\"" + escape(combination) + "\"", count)));
+
+        family(out, "stage_latency_seconds", "summary");
+        sorted.forEach((game, metrics) -> {
+            if (!metrics.isTimed()) {
+                return;
+            }
+            for (Stage stage : Stage.values()) {
+                LatencyHistogram histogram = metrics.getLatency(stage);
+                final String stageLabel = "stage=\"" + stage.getLabel() + "\"";
+                for (double percentile : PERCENTILES) {
+                    sample(out, "stage_latency_seconds", game, stageLabel + ",quantile=\"" + quantileOf(percentile) + "\"",
+                            histogram.getValueAtPercentile(percentile) / 1e9);
+                }
+                sample(out, "stage_latency_seconds_sum", game, stageLabel, histogram.getSum() / 1e9);
+                sample(out, "stage_latency_seconds_count", game, stageLabel, histogram.getCount());
+            }
+        });
+        return out.toString();
+    }
+
+    private static void family(StringBuilder out, String name, String type) {
+        out.append("# TYPE ").append(TEXT_PREFIX).append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, String game, String labels, double value) {
+        out.append(TEXT_PREFIX).append(name).append("{game=\"").append(escape(game)).append('"');
+        if (labels != null) {
+            out.append(',').append(labels);
+        }
+        out.append("} ");
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            out.append((long) value);
+        } else {
+            out.append(value);
+        }
+        out.append('\n');
+    }
+
+    private static String escape(String label) {
+        return label.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    /**
+     * Registers this instance with the platform MBean server under the game id.
+     */
+    public ObjectName registerMBean(String gameId) {
+        try {
+            ObjectName name = new ObjectName(OBJECT_NAME + ObjectName.quote(gameId));
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(this, name);
+            return name;
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot register the metrics of " + gameId, e);
+        }
+    }
+
+    public static void unregisterMBean(ObjectName name) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot unregister " + name, e);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.cyberspeed;
+
+import java.util.Map;
+
+/**
+ * JMX view of {@link GameMetrics}, registered as com.cyberspeed:type=GameMetrics,game=&lt;game id&gt;.
+ */
+public interface GameMetricsMXBean {
+
+    long getRounds();
+
+    long getHits();
+
+    double getTotalBet();
+
+    double getTotalReward();
+
+    double getRtp();
+
+    double getHitFrequency();
+
+    Map<String, Long> getCombinationTriggers();
+
+    boolean isTimed();
+
+    /**
+     * Latency percentiles per stage in microseconds, keyed "stage.p50", "stage.p99", ...
+     */
+    Map<String, Double> getLatencyMicros();
+}
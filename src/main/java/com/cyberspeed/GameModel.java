@@ -0,0 +1,510 @@
+package com.cyberspeed;
+
+import org.json.JSONObject;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+import static com.cyberspeed.ConfigConst.*;
+
+/**
+ * Immutable, compiled form of a validated config.
+ * Symbols are interned to int ids (index into the per-symbol arrays), probabilities are
+ * turned into weight tables and win combinations are pre-parsed, so the per-round code
+ * never has to walk the JSON tree again. Instances are safe to share between threads.
+ */
+public final class GameModel {
+
+    public enum SymbolType {STANDARD, BONUS}
+
+    public enum Impact {NONE, MULTIPLY_REWARD, EXTRA_BONUS, MISS}
+
+    public enum When {SAME_SYMBOLS, LINEAR_SYMBOLS}
+
+    // -- grids up to this many cells are evaluated on one 64-bit occupancy mask per symbol
+    static final int MAX_BITBOARD_CELLS = Long.SIZE;
+
+    /**
+     * Pre-parsed entry of 'win_combinations'. Covered areas are compiled into cell offsets
+     * (row * columns + column) stored back to back in one array, 'lineStarts' marking where
+     * each line begins, so a line is checked against a flat symbol id grid without any string work.
+     * On grids of up to 64 cells each line is also compiled into a mask of its cells (bit = cell offset).
+     */
+    public static final class WinCombination {
+        private final int id;
+        private final String name;
+        private final When when;
+        private final double rewardMultiplier;
+        private final int intRewardMultiplier;
+        private final int count;
+        private final int[] lineOffsets;
+        private final int[] lineStarts;
+        // -- null when the grid does not fit a bitboard
+        private final long[] lineMasks;
+
+        private WinCombination(int id, String name, When when, double rewardMultiplier, int intRewardMultiplier, int count,
+                               int[] lineStarts, int[] lineOffsets, long[] lineMasks) {
+            this.id = id;
+            this.name = name;
+            this.when = when;
+            this.rewardMultiplier = rewardMultiplier;
+            this.intRewardMultiplier = intRewardMultiplier;
+            this.count = count;
+            this.lineStarts = lineStarts;
+            this.lineOffsets = lineOffsets;
+            this.lineMasks = lineMasks;
+        }
+
+        /**
+         * @param lineStarts where each line begins in 'lineOffsets', followed by the number of offsets
+         * @param cells      cells of the grid, masks are only compiled when they fit a bitboard
+         */
+        static WinCombination compile(int id, String name, When when, double rewardMultiplier, int intRewardMultiplier, int count,
+                                      int[] lineStarts, int[] lineOffsets, int cells) {
+            long[] lineMasks = null;
+            if (cells <= MAX_BITBOARD_CELLS) {
+                lineMasks = new long[lineStarts.length - 1];
+                for (int i = 0; i < lineMasks.length; i++) {
+                    for (int j = lineStarts[i]; j < lineStarts[i + 1]; j++) {
+                        lineMasks[i] |= 1L << lineOffsets[j];
+                    }
+                }
+            }
+            return new WinCombination(id, name, when, rewardMultiplier, intRewardMultiplier, count, lineStarts, lineOffsets, lineMasks);
+        }
+
+        // -- the same combination with its arrays taken from the pool
+        private WinCombination share(PartPool.Claim claim) {
+            return new WinCombination(id, name, when, rewardMultiplier, intRewardMultiplier, count,
+                    claim.share(lineStarts), claim.share(lineOffsets), lineMasks == null ? null : claim.share(lineMasks));
+        }
+
+        // -- what makes two combinations interchangeable between models
+        private Object[] identity() {
+            return new Object[]{id, name, when, rewardMultiplier, intRewardMultiplier, count, lineOffsets, lineStarts, lineMasks};
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public When getWhen() {
+            return when;
+        }
+
+        public double getRewardMultiplier() {
+            return rewardMultiplier;
+        }
+
+        int getIntRewardMultiplier() {
+            return intRewardMultiplier;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public int getLineCount() {
+            return lineStarts.length - 1;
+        }
+
+        int[] getLineOffsets() {
+            return lineOffsets;
+        }
+
+        int[] getLineStarts() {
+            return lineStarts;
+        }
+
+        long[] getLineMasks() {
+            return lineMasks;
+        }
+    }
+
+    private final int rows;
+    private final int columns;
+    private final long configHash;
+    private final int version;
+
+    private final String[] symbolNames;
+    private final Map<String, Integer> symbolIds;
+    private final SymbolType[] types;
+    private final Impact[] impacts;
+    private final double[] rewardMultipliers;
+    private final int[] intRewardMultipliers;
+    private final int[] extras;
+    private final boolean[] countable;
+    private final boolean[] bonusCandidate;
+
+    // -- one weight table per 'standard_symbols' entry, bonus symbols merged in
+    private final int[][] probabilitySymbols;
+    private final int[][] probabilityWeights;
+    private final SymbolSampler[] samplers;
+    // -- probability entry and sampler of each cell, by cell offset (row * columns + column)
+    private final int[] cellProbabilities;
+    private final SymbolSampler[] cellSamplers;
+
+    private final WinCombination[] combinations;
+    // -- the parts taken from the pool the model was compiled through
+    private final PartPool.Claim claim;
+
+    /**
+     * Compiled parts of a config, filled in by {@link ConfigValidator} as it validates the config.
+     * Arrays are indexed by symbol, probability entry and combination id.
+     */
+    static final class Parts {
+        int rows;
+        int columns;
+        String[] symbolNames;
+        SymbolType[] types;
+        Impact[] impacts;
+        double[] rewardMultipliers;
+        int[] intRewardMultipliers;
+        int[] extras;
+        int[][] probabilitySymbols;
+        int[][] probabilityWeights;
+        // -- probability entry of each cell, by cell offset
+        int[] cellProbabilities;
+        WinCombination[] combinations;
+    }
+
+    public GameModel(JSONObject config) {
+        this(config, SymbolSampler.Method.ALIAS);
+    }
+
+    public GameModel(JSONObject config, SymbolSampler.Method samplingMethod) {
+        this(config, samplingMethod, 0);
+    }
+
+    /**
+     * @param version version of the config, stamped in every round result when positive (see {@link ConfigWatcher})
+     * @throws ConfigException when the config is not valid
+     */
+    public GameModel(JSONObject config, SymbolSampler.Method samplingMethod, int version) {
+        this(new ConfigValidator(config).compile(), samplingMethod, version, PartPool.UNSHARED);
+    }
+
+    /**
+     * @param pool compiled parts equal to parts of models compiled before are taken from this pool (see {@link GameRegistry})
+     */
+    GameModel(Parts parts, SymbolSampler.Method samplingMethod, int version, PartPool pool) {
+        this.rows = parts.rows;
+        this.columns = parts.columns;
+        this.configHash = hash(parts);
+        this.version = version;
+        this.claim = pool.claim();
+
+        final int symbolCount = parts.symbolNames.length;
+        final boolean[] countable = new boolean[symbolCount];
+        final boolean[] bonusCandidate = new boolean[symbolCount];
+        for (int id = 0; id < symbolCount; id++) {
+            final String name = parts.symbolNames[id];
+            // -- same_symbols only counts single character (standard) symbols,
+            //    any other symbol except MISS is picked up as a bonus
+            countable[id] = name.length() == 1;
+            bonusCandidate[id] = name.length() > 1 && !name.equals(MISS);
+        }
+        this.symbolNames = claim.share(parts.symbolNames);
+        this.symbolIds = claim.intern(() -> symbolIdsOf(this.symbolNames), SYMBOLS, this.symbolNames);
+        this.types = claim.share(parts.types);
+        this.impacts = claim.share(parts.impacts);
+        this.rewardMultipliers = claim.share(parts.rewardMultipliers);
+        this.intRewardMultipliers = claim.share(parts.intRewardMultipliers);
+        this.extras = claim.share(parts.extras);
+        this.countable = claim.share(countable);
+        this.bonusCandidate = claim.share(bonusCandidate);
+
+        final int probabilityCount = parts.probabilitySymbols.length;
+        this.probabilitySymbols = new int[probabilityCount][];
+        this.probabilityWeights = new int[probabilityCount][];
+        this.samplers = new SymbolSampler[probabilityCount];
+        for (int i = 0; i < probabilityCount; i++) {
+            final int[] cellSymbolIds = claim.share(parts.probabilitySymbols[i]);
+            final int[] cellWeights = claim.share(parts.probabilityWeights[i]);
+            probabilitySymbols[i] = cellSymbolIds;
+            probabilityWeights[i] = cellWeights;
+            samplers[i] = claim.intern(() -> SymbolSampler.create(samplingMethod, cellSymbolIds, cellWeights),
+                    samplingMethod, cellSymbolIds, cellWeights);
+        }
+        this.cellProbabilities = claim.share(parts.cellProbabilities);
+        final SymbolSampler[] cellSamplers = new SymbolSampler[cellProbabilities.length];
+        for (int cell = 0; cell < cellSamplers.length; cell++) {
+            cellSamplers[cell] = samplers[cellProbabilities[cell]];
+        }
+        this.cellSamplers = claim.share(cellSamplers);
+
+        this.combinations = new WinCombination[parts.combinations.length];
+        for (int id = 0; id < combinations.length; id++) {
+            final WinCombination combination = parts.combinations[id].share(claim);
+            combinations[id] = claim.intern(() -> combination, combination.identity());
+        }
+    }
+
+    /**
+     * Gives the parts of the model back to the pool it was compiled through, once the model is replaced: the
+     * model keeps working, but later models no longer share its parts, and those no other model holds can be
+     * collected with it.
+     */
+    void releaseParts() {
+        claim.release();
+    }
+
+    private static Map<String, Integer> symbolIdsOf(String[] symbolNames) {
+        Map<String, Integer> symbolIds = new HashMap<>();
+        for (int id = 0; id < symbolNames.length; id++) {
+            symbolIds.put(symbolNames[id], id);
+        }
+        return symbolIds;
+    }
+
+    /**
+     * Reads, validates and compiles the config file.
+     */
+    public static GameModel load(String configPath) throws IOException {
+        return parse(configPath, new String(Files.readAllBytes(Paths.get(configPath))), 0, PartPool.UNSHARED);
+    }
+
+    /**
+     * Parses, validates and compiles a config text, timing each step in a {@link GameEvents.ConfigEvent}.
+     *
+     * @param source where the config was read from, for the event
+     */
+    static GameModel parse(String source, String content, int version, PartPool pool) {
+        GameEvents.ConfigEvent event = new GameEvents.ConfigEvent();
+        event.begin();
+        event.source = source;
+        event.configVersion = version;
+        try {
+            final long start = System.nanoTime();
+            ConfigValidator configValidator = new ConfigValidator(ConfigReader.read(content));
+            final long parsed = System.nanoTime();
+            event.parseDuration = parsed - start;
+
+            Parts parts = configValidator.compile();
+            final long validated = System.nanoTime();
+            event.validateDuration = validated - parsed;
+
+            GameModel model = new GameModel(parts, SymbolSampler.Method.ALIAS, version, pool);
+            event.compileDuration = System.nanoTime() - validated;
+            event.valid = true;
+            return model;
+        } catch (RuntimeException e) {
+            event.error = e.getMessage();
+            throw e;
+        } finally {
+            event.commit();
+        }
+    }
+
+    /**
+     * First 8 bytes of the SHA-256 of the compiled parts, identifying the config in round logs.
+     * Configs that only differ in formatting or key order hash alike.
+     */
+    private static long hash(Parts parts) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new DigestOutputStream(OutputStream.nullOutputStream(), digest)))) {
+                out.writeInt(parts.rows);
+                out.writeInt(parts.columns);
+                out.writeInt(parts.symbolNames.length);
+                for (int id = 0; id < parts.symbolNames.length; id++) {
+                    out.writeUTF(parts.symbolNames[id]);
+                    out.writeByte(parts.types[id].ordinal());
+                    out.writeByte(parts.impacts[id].ordinal());
+                    out.writeDouble(parts.rewardMultipliers[id]);
+                    out.writeInt(parts.intRewardMultipliers[id]);
+                    out.writeInt(parts.extras[id]);
+                }
+                out.writeInt(parts.probabilitySymbols.length);
+                for (int i = 0; i < parts.probabilitySymbols.length; i++) {
+                    writeInts(out, parts.probabilitySymbols[i]);
+                    writeInts(out, parts.probabilityWeights[i]);
+                }
+                writeInts(out, parts.cellProbabilities);
+                out.writeInt(parts.combinations.length);
+                for (WinCombination combination : parts.combinations) {
+                    out.writeUTF(combination.name);
+                    out.writeByte(combination.when.ordinal());
+                    out.writeDouble(combination.rewardMultiplier);
+                    out.writeInt(combination.intRewardMultiplier);
+                    out.writeInt(combination.count);
+                    writeInts(out, combination.lineStarts);
+                    writeInts(out, combination.lineOffsets);
+                }
+            }
+            return ByteBuffer.wrap(digest.digest()).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        out.writeInt(values.length);
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    /**
+     * Parses a covered area position "row:column" into a cell offset (row * columns + column).
+     * The message of the exception completes "covered_areas position ..." in validation errors.
+     */
+    static int toCellOffset(String position, int rows, int columns) {
+        final int separator = position.indexOf(':');
+        if (separator < 0 || position.indexOf(':', separator + 1) >= 0) {
+            throw new IllegalArgumentException("must be in the format 'column:row'.");
+        }
+        final int row;
+        final int column;
+        try {
+            row = Integer.parseInt(position, 0, separator, 10);
+            column = Integer.parseInt(position, separator + 1, position.length(), 10);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("must contain integers.");
+        }
+        if (row < 0 || row >= rows || column < 0 || column >= columns) {
+            throw new IllegalArgumentException(position + " is out of bounds.");
+        }
+        return row * columns + column;
+    }
+
+    static Impact toImpact(String impact) {
+        if (impact == null) {
+            return Impact.NONE;
+        }
+        switch (impact) {
+            case MULTIPLY_REWARD:
+                return Impact.MULTIPLY_REWARD;
+            case EXTRA_BONUS:
+                return Impact.EXTRA_BONUS;
+            default:
+                return Impact.MISS;
+        }
+    }
+
+    public long getConfigHash() {
+        return configHash;
+    }
+
+    /**
+     * Version of a watched config, 0 when the config is not watched.
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * Whether every cell of the grid has a bit in a long (see {@link #MAX_BITBOARD_CELLS}).
+     */
+    boolean fitsBitboard() {
+        return rows * columns <= MAX_BITBOARD_CELLS;
+    }
+
+    public int getSymbolCount() {
+        return symbolNames.length;
+    }
+
+    public String getSymbolName(int symbolId) {
+        return symbolNames[symbolId];
+    }
+
+    public int getSymbolId(String name) {
+        Integer id = symbolIds.get(name);
+        if (id == null) {
+            throw new IllegalArgumentException("Unknown symbol: " + name);
+        }
+        return id;
+    }
+
+    public SymbolType getType(int symbolId) {
+        return types[symbolId];
+    }
+
+    public Impact getImpact(int symbolId) {
+        return impacts[symbolId];
+    }
+
+    public double getRewardMultiplier(int symbolId) {
+        return rewardMultipliers[symbolId];
+    }
+
+    int getIntRewardMultiplier(int symbolId) {
+        return intRewardMultipliers[symbolId];
+    }
+
+    public int getExtra(int symbolId) {
+        return extras[symbolId];
+    }
+
+    boolean isCountable(int symbolId) {
+        return countable[symbolId];
+    }
+
+    boolean isBonusCandidate(int symbolId) {
+        return bonusCandidate[symbolId];
+    }
+
+    int getProbabilityCount() {
+        return probabilitySymbols.length;
+    }
+
+    int[] getProbabilitySymbols(int index) {
+        return probabilitySymbols[index];
+    }
+
+    int[] getProbabilityWeights(int index) {
+        return probabilityWeights[index];
+    }
+
+    SymbolSampler getSampler(int index) {
+        return samplers[index];
+    }
+
+    /**
+     * Index of the probability entry a cell draws from: the entry declaring the cell by its row and column,
+     * or the first entry when no entry declares it.
+     */
+    int getCellProbabilityIndex(int row, int column) {
+        return cellProbabilities[row * columns + column];
+    }
+
+    /**
+     * Sampler of every cell, by cell offset (row * columns + column). Shared, do not modify.
+     */
+    SymbolSampler[] getCellSamplers() {
+        return cellSamplers;
+    }
+
+    public int getCombinationCount() {
+        return combinations.length;
+    }
+
+    public WinCombination getCombination(int combinationId) {
+        return combinations[combinationId];
+    }
+}
@@ -0,0 +1,144 @@
+package com.cyberspeed;
+
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+import java.util.random.RandomGeneratorFactory;
+
+/**
+ * Seeded random source of the game. Every round, and every independent stream (e.g. a simulation
+ * shard), gets its own generator whose seed is derived from the master seed and the round or
+ * stream index, so any round can be reproduced from (seed, round) without replaying earlier ones.
+ * <p>
+ * Between {@link #startRound(long)} calls this object delegates to the round's generator, so it can
+ * be handed once to a {@link SymbolGenerator} / {@link RewardCalculator} pair. The underlying
+ * generators are lock-free; an instance itself is not thread safe, use one per thread.
+ */
+public class GameRandom implements RandomGenerator {
+
+    public enum Algorithm {
+        SPLITTABLE("SplittableRandom"),
+        L64X128_MIX("L64X128MixRandom"),
+        XOSHIRO256_PLUS_PLUS("Xoshiro256PlusPlus");
+
+        private final String name;
+        private volatile RandomGeneratorFactory<RandomGenerator> factory;
+
+        Algorithm(String name) {
+            this.name = name;
+        }
+
+        /**
+         * A new generator of this algorithm with the given seed.
+         */
+        public RandomGenerator create(long seed) {
+            if (this == SPLITTABLE) {
+                return new SplittableRandom(seed);
+            }
+            if (factory == null) {
+                factory = RandomGeneratorFactory.of(name);
+            }
+            return factory.create(seed);
+        }
+
+        /**
+         * Parses an algorithm name, case insensitive, e.g. "splittable" or "l64x128_mix".
+         */
+        public static Algorithm of(String name) {
+            for (Algorithm algorithm : values()) {
+                if (algorithm.name().equalsIgnoreCase(name) || algorithm.name.equalsIgnoreCase(name)) {
+                    return algorithm;
+                }
+            }
+            throw new IllegalArgumentException("Unknown random algorithm: " + name);
+        }
+    }
+
+    // -- different odd increments keep round seeds and stream seeds apart
+    private static final long STREAM_GAMMA = 0x9E3779B97F4A7C15L;
+    private static final long ROUND_GAMMA = 0xD1B54A32D192ED03L;
+
+    private final Algorithm algorithm;
+    private final long seed;
+    private RandomGenerator current;
+
+    public GameRandom(long seed) {
+        this(Algorithm.SPLITTABLE, seed);
+    }
+
+    public GameRandom(Algorithm algorithm, long seed) {
+        this.algorithm = algorithm;
+        this.seed = seed;
+        this.current = algorithm.create(seed);
+    }
+
+    public Algorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Switches to the generator of the given round.
+     */
+    public GameRandom startRound(long round) {
+        current = forRound(round);
+        return this;
+    }
+
+    /**
+     * A new generator for the given round, the same for every call with the same seed and round.
+     */
+    public RandomGenerator forRound(long round) {
+        return algorithm.create(mix(seed, round, ROUND_GAMMA));
+    }
+
+    /**
+     * A new generator for an independent stream (e.g. a shard or a thread), the same for every call
+     * with the same seed and stream index.
+     */
+    public RandomGenerator forStream(long stream) {
+        return algorithm.create(mix(seed, stream, STREAM_GAMMA));
+    }
+
+    /**
+     * A new GameRandom seeded for an independent stream, with its own round space.
+     */
+    public GameRandom split(long stream) {
+        return new GameRandom(algorithm, mix(seed, stream, STREAM_GAMMA));
+    }
+
+    // -- SplitMix64 finalizer of seed + (index + 1) * gamma
+    static long mix(long seed, long index, long gamma) {
+        long z = seed + (index + 1) * gamma;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    @Override
+    public long nextLong() {
+        return current.nextLong();
+    }
+
+    @Override
+    public int nextInt() {
+        return current.nextInt();
+    }
+
+    @Override
+    public int nextInt(int bound) {
+        return current.nextInt(bound);
+    }
+
+    @Override
+    public long nextLong(long bound) {
+        return current.nextLong(bound);
+    }
+
+    @Override
+    public double nextDouble() {
+        return current.nextDouble();
+    }
+}
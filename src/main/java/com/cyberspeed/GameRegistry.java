@@ -0,0 +1,418 @@
+package com.cyberspeed;
+
+import org.json.JSONObject;
+
+import javax.management.ObjectName;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Serves many game variants (grid sizes, paytables, bonus sets) from one process, dispatching
+ * rounds by game id. Configs are compiled through one {@link PartPool}, so variants share every
+ * compiled part they have in common (symbol tables, weight tables and samplers, win combinations
+ * and their line sets).
+ * <p>
+ * Each variant has its own round counter and random stream, split from the master
+ * {@link GameRandom} by a hash of the game id: the rounds of a variant do not depend on which other
+ * variants are registered or played, and round r of a variant replays from (seed, game id, r).
+ * Each variant also has its {@link GameMetrics}. Thread safe.
+ */
+public class GameRegistry implements Closeable {
+    static final String CONFIG_EXTENSION = ".json";
+    static final String GAMES = "games";
+    static final String PARTS = "parts";
+    static final String SHARED_PARTS = "shared_parts";
+    static final String SEED = "seed";
+    static final String CONFIG_VERSION = "config_version";
+    static final String CARD_POOLS = "card_pools";
+
+    // -- a game with the random it draws from, switched to each round it plays
+    private record Player(PuzzleGame game, GameRandom random) {
+    }
+
+    /**
+     * One registered game: the current model of its config, its random stream, round counter and counters.
+     */
+    public static final class Variant {
+        private final String id;
+        private final Supplier<GameModel> models;
+        private final GameRandom random;
+        private final AtomicLong nextRound = new AtomicLong();
+        // -- games not playing a round, reused instead of set up per round; those of a previous model are dropped
+        private final Queue<Player> idlePlayers = new ConcurrentLinkedQueue<>();
+        // -- by bet level, see GameRegistry#enableCardPools
+        private final Map<Integer, CardPool> cardPools = new ConcurrentHashMap<>();
+
+        private final GameMetrics metrics;
+
+        private Variant(String id, Supplier<GameModel> models, GameRandom random, GameMetrics metrics) {
+            this.id = id;
+            this.models = models;
+            this.random = random;
+            this.metrics = metrics;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        /**
+         * Current model of the variant. Take it once per round (or request) and keep it.
+         */
+        public GameModel getModel() {
+            return models.get();
+        }
+
+        public GameRandom.Algorithm getAlgorithm() {
+            return random.getAlgorithm();
+        }
+
+        public long getSeed() {
+            return random.getSeed();
+        }
+
+        /**
+         * Reserves 'count' consecutive round numbers and returns the first.
+         */
+        public long reserveRounds(int count) {
+            return nextRound.getAndAdd(count);
+        }
+
+        /**
+         * Plays the next round on the current model.
+         */
+        public String play(int betAmount) {
+            return deal(betAmount).output();
+        }
+
+        /**
+         * Takes a card of the pool of the bet level, or plays the next round on the current model when the
+         * bet has no pool.
+         */
+        public CardPool.Card deal(int betAmount) {
+            CardPool pool = cardPools.get(betAmount);
+            if (pool != null) {
+                return pool.take();
+            }
+            final GameModel model = getModel();
+            final long round = reserveRounds(1);
+            return new CardPool.Card(model, round, play(model, round, betAmount));
+        }
+
+        /**
+         * Plays a reserved round on a model snapshot and returns its JSON output.
+         */
+        public String play(GameModel model, long round, int betAmount) {
+            Player player = idlePlayers.poll();
+            if (player == null || player.game().getModel() != model) {
+                final GameRandom random = newRandom();
+                player = new Player(new PuzzleGame(model, random), random);
+                player.game().setMetrics(metrics);
+            }
+            player.random().startRound(round);
+            player.game().identify(id, round);
+            final String output = player.game().playRound(betAmount);
+            idlePlayers.offer(player);
+            return output;
+        }
+
+        /**
+         * A batch player over a model snapshot, numbering rounds from 'firstRound' and counting them into the metrics.
+         */
+        public BatchPlayer newBatchPlayer(GameModel model, long firstRound) {
+            // -- a GameRandom per batch: it is not thread safe, but its rounds are the variant's
+            BatchPlayer player = new BatchPlayer(model, newRandom());
+            player.setNextRound(firstRound);
+            player.setMetrics(metrics);
+            player.setGameId(id);
+            return player;
+        }
+
+        // -- drops the cards and idle games of the previous version, see CardPool#drain
+        private void reloaded(GameModel model) {
+            cardPools.values().forEach(CardPool::drain);
+            idlePlayers.removeIf(player -> player.game().getModel() != model);
+        }
+
+        /**
+         * Pool of the bet level, null when the bet has none.
+         */
+        public CardPool getCardPool(int betAmount) {
+            return cardPools.get(betAmount);
+        }
+
+        // -- a GameRandom of the variant's rounds for one thread
+        GameRandom newRandom() {
+            return new GameRandom(random.getAlgorithm(), random.getSeed());
+        }
+
+        public GameMetrics getMetrics() {
+            return metrics;
+        }
+
+        public JSONObject toJson() {
+            JSONObject json = metrics.toJson();
+            json.put(SEED, getSeed());
+            json.put(CONFIG_VERSION, getModel().getVersion());
+            if (!cardPools.isEmpty()) {
+                JSONObject pools = new JSONObject();
+                cardPools.forEach((betAmount, pool) -> pools.put(Integer.toString(betAmount), pool.toJson()));
+                json.put(CARD_POOLS, pools);
+            }
+            return json;
+        }
+    }
+
+    private final GameRandom random;
+    private final boolean monitored;
+    private final PartPool pool = new PartPool();
+    private final Map<String, Variant> variants = new ConcurrentHashMap<>();
+    private final List<ConfigWatcher> watchers = new ArrayList<>();
+    private final List<ObjectName> mbeans = new ArrayList<>();
+    private int[] cardPoolBets;
+    private int cardPoolCapacity;
+    private int cardPoolLowWater;
+    private ExecutorService cardPoolWorkers;
+
+    public GameRegistry(GameRandom random) {
+        this(random, false);
+    }
+
+    /**
+     * @param monitored when true, rounds are timed per stage and the metrics of every game are registered over JMX
+     */
+    public GameRegistry(GameRandom random, boolean monitored) {
+        this.random = random;
+        this.monitored = monitored;
+    }
+
+    public long getSeed() {
+        return random.getSeed();
+    }
+
+    /**
+     * Registers a compiled model under a game id.
+     */
+    public Variant register(String gameId, GameModel model) {
+        return register(gameId, () -> model, randomOf(random, gameId));
+    }
+
+    /**
+     * Reads, validates and compiles a config file and registers it under a game id.
+     */
+    public Variant load(String gameId, Path configPath) throws IOException {
+        return register(gameId, GameModel.parse(configPath.toString(), Files.readString(configPath), 0, pool));
+    }
+
+    /**
+     * Registers a config file under a game id and reloads it whenever it changes, see {@link ConfigWatcher}.
+     */
+    public Variant watch(String gameId, Path configPath) throws IOException {
+        ConfigWatcher watcher = new ConfigWatcher(configPath, pool);
+        try {
+            Variant variant = register(gameId, watcher, randomOf(random, gameId));
+            synchronized (watchers) {
+                watchers.add(watcher);
+            }
+            watcher.start();
+            return variant;
+        } catch (RuntimeException e) {
+            watcher.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Registers every *.json file of a directory, the file name without extension being the game id.
+     */
+    public List<Variant> loadDirectory(Path directory, boolean watch) throws IOException {
+        List<Path> configPaths = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + CONFIG_EXTENSION)) {
+            files.forEach(configPaths::add);
+        }
+        Collections.sort(configPaths);
+
+        List<Variant> loaded = new ArrayList<>();
+        for (Path configPath : configPaths) {
+            final String fileName = configPath.getFileName().toString();
+            final String gameId = fileName.substring(0, fileName.length() - CONFIG_EXTENSION.length());
+            loaded.add(watch ? watch(gameId, configPath) : load(gameId, configPath));
+        }
+        return loaded;
+    }
+
+    /**
+     * Keeps a {@link CardPool} per bet level for every game, registered or to be registered, refilled by
+     * 'workers' daemon threads. Other bets are played on request.
+     *
+     * @param lowWater a pool is refilled once fewer cards than this are left
+     */
+    public synchronized void enableCardPools(int[] betAmounts, int capacity, int lowWater, int workers) {
+        if (cardPoolWorkers != null) {
+            throw new IllegalStateException("Card pools are already enabled.");
+        }
+        if (workers <= 0) {
+            throw new IllegalArgumentException("workers must be positive");
+        }
+        this.cardPoolBets = betAmounts.clone();
+        this.cardPoolCapacity = capacity;
+        this.cardPoolLowWater = lowWater;
+        this.cardPoolWorkers = Executors.newFixedThreadPool(workers, Thread.ofPlatform().daemon().name("card-pool-", 0).factory());
+        for (Variant variant : variants.values()) {
+            addCardPools(variant);
+        }
+    }
+
+    private void addCardPools(Variant variant) {
+        for (int betAmount : cardPoolBets) {
+            CardPool pool = new CardPool(variant, betAmount, cardPoolCapacity, cardPoolLowWater, cardPoolWorkers);
+            if (variant.cardPools.putIfAbsent(betAmount, pool) == null) {
+                pool.start();
+            }
+        }
+    }
+
+    /**
+     * Registers a watched config with its own random stream, e.g. the single game of a server.
+     * The card pools of the game are drained on every reload.
+     */
+    Variant register(String gameId, ConfigWatcher watcher, GameRandom random) {
+        Variant variant = register(gameId, watcher::getModel, random);
+        watcher.addListener(variant::reloaded);
+        return variant;
+    }
+
+    /**
+     * Registers a model source with its own random stream, e.g. the single game of a server.
+     */
+    Variant register(String gameId, Supplier<GameModel> models, GameRandom random) {
+        Variant variant = new Variant(gameId, models, random, new GameMetrics(monitored));
+        if (variants.putIfAbsent(gameId, variant) != null) {
+            throw new IllegalArgumentException("Game " + gameId + " is already registered.");
+        }
+        synchronized (this) {
+            if (cardPoolWorkers != null) {
+                addCardPools(variant);
+            }
+        }
+        if (monitored) {
+            ObjectName name = variant.getMetrics().registerMBean(gameId);
+            synchronized (mbeans) {
+                mbeans.add(name);
+            }
+        }
+        return variant;
+    }
+
+    /**
+     * @throws IllegalArgumentException when no game is registered under the id
+     */
+    public Variant get(String gameId) {
+        Variant variant = variants.get(gameId);
+        if (variant == null) {
+            throw new IllegalArgumentException("Unknown game: " + gameId);
+        }
+        return variant;
+    }
+
+    public boolean contains(String gameId) {
+        return variants.containsKey(gameId);
+    }
+
+    public SortedSet<String> getGameIds() {
+        return new TreeSet<>(variants.keySet());
+    }
+
+    /**
+     * Plays the next round of a game and returns its JSON output.
+     */
+    public String play(String gameId, int betAmount) {
+        return get(gameId).play(betAmount);
+    }
+
+    /**
+     * Distinct compiled parts held for all variants.
+     */
+    public int getPartCount() {
+        return pool.getPartCount();
+    }
+
+    /**
+     * Compiled parts taken from the pool instead of being held once more.
+     */
+    public long getSharedPartCount() {
+        return pool.getSharedCount();
+    }
+
+    public JSONObject toJson() {
+        JSONObject games = new JSONObject();
+        for (String gameId : getGameIds()) {
+            games.put(gameId, variants.get(gameId).toJson());
+        }
+        JSONObject json = new JSONObject();
+        json.put(GAMES, games);
+        json.put(PARTS, getPartCount());
+        json.put(SHARED_PARTS, getSharedPartCount());
+        return json;
+    }
+
+    /**
+     * Metrics of every game in the Prometheus text format, see {@link GameMetrics#toText(Map)}.
+     */
+    public String toMetricsText() {
+        Map<String, GameMetrics> metrics = new HashMap<>();
+        variants.forEach((gameId, variant) -> metrics.put(gameId, variant.getMetrics()));
+        return GameMetrics.toText(metrics);
+    }
+
+    /**
+     * Random stream of a game registered by id under the master random, e.g. to replay its rounds.
+     */
+    public static GameRandom randomOf(GameRandom random, String gameId) {
+        return random.split(streamOf(gameId));
+    }
+
+    // -- 64-bit FNV-1a of the game id, stable across processes
+    static long streamOf(String gameId) {
+        long hash = 0xCBF29CE484222325L;
+        for (byte b : gameId.getBytes(StandardCharsets.UTF_8)) {
+            hash = (hash ^ (b & 0xFF)) * 0x100000001B3L;
+        }
+        return hash;
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (cardPoolWorkers != null) {
+                cardPoolWorkers.shutdownNow();
+                for (Variant variant : variants.values()) {
+                    variant.cardPools.values().forEach(CardPool::close);
+                }
+            }
+        }
+        synchronized (watchers) {
+            for (ConfigWatcher watcher : watchers) {
+                watcher.close();
+            }
+            watchers.clear();
+        }
+        synchronized (mbeans) {
+            for (ObjectName name : mbeans) {
+                GameMetrics.unregisterMBean(name);
+            }
+            mbeans.clear();
+        }
+    }
+}
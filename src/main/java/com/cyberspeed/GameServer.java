@@ -0,0 +1,292 @@
+package com.cyberspeed;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Long-running HTTP/JSON front of the game, built on the JDK HttpServer.
+ * The config is loaded, validated and compiled once; each request runs on its own virtual thread
+ * with a fresh {@link PuzzleGame} over the shared {@link GameModel}.
+ * <p>
+ * POST /play with {"betting_amount": 100} answers with the same JSON as the CLI.
+ * POST /batch with {"betting_amount": 100, "count": 1000} or {"betting_amounts": [100, 200]}
+ * streams one such JSON per line (NDJSON), see {@link BatchPlayer}.
+ * Bodies over {@link #MAX_BODY_BYTES} are refused with 413, amounts and counts must be whole numbers in int range.
+ * <p>
+ * Every round gets the next number of a server-wide counter and draws from
+ * {@link GameRandom#forRound(long)} of the server seed; the number is returned in the
+ * X-Round header (X-First-Round for a batch), so a disputed round can be replayed.
+ * <p>
+ * Over a {@link ConfigWatcher} the config is reloaded while serving: each request takes the current
+ * model once, so its rounds all use one config version, returned in the X-Config-Version header and
+ * in every result.
+ * <p>
+ * Over a {@link GameRegistry} many games are served at once: requests name their game with
+ * {"game": "id", ...} (the "default" game otherwise) and rounds are numbered per game.
+ * GET /games returns the counters of every game as JSON, GET /metrics as Prometheus-style text
+ * (see {@link GameMetrics}).
+ */
+public class GameServer {
+    static final String PLAY_PATH = "/play";
+    static final String BATCH_PATH = "/batch";
+    static final String GAMES_PATH = "/games";
+    static final String METRICS_PATH = "/metrics";
+    static final String GAME = "game";
+    static final String DEFAULT_GAME = "default";
+    static final String BETTING_AMOUNT = "betting_amount";
+    static final String BETTING_AMOUNTS = "betting_amounts";
+    static final String COUNT = "count";
+    static final int MAX_BATCH_SIZE = 1_000_000;
+    // -- fits a full batch of betting_amounts, 10 digits and a separator each
+    static final int MAX_BODY_BYTES = 16 * 1024 * 1024;
+    static final String ERROR = "error";
+    static final String TOO_LARGE = "the request body cannot be larger than " + MAX_BODY_BYTES + " bytes";
+    static final String ROUND_HEADER = "X-Round";
+    static final String FIRST_ROUND_HEADER = "X-First-Round";
+    static final String CONFIG_VERSION_HEADER = "X-Config-Version";
+
+    private final GameRegistry registry;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    public GameServer(GameModel model, int port) throws IOException {
+        this(model, port, new GameRandom(new SplittableRandom().nextLong()));
+    }
+
+    public GameServer(GameModel model, int port, GameRandom random) throws IOException {
+        this(singleGame(random, model, null), port);
+    }
+
+    /**
+     * Serves the current model of a watched config, see {@link ConfigWatcher#start()}.
+     */
+    public GameServer(ConfigWatcher watcher, int port, GameRandom random) throws IOException {
+        this(singleGame(random, null, watcher), port);
+    }
+
+    /**
+     * Serves every game of the registry.
+     */
+    public GameServer(GameRegistry registry, int port) throws IOException {
+        this.registry = registry;
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.createContext(PLAY_PATH, this::handlePlay);
+        server.createContext(BATCH_PATH, this::handleBatch);
+        server.createContext(GAMES_PATH, this::handleGames);
+        server.createContext(METRICS_PATH, this::handleMetrics);
+    }
+
+    // -- the single game draws straight from the server random, so round r replays from (seed, r)
+    private static GameRegistry singleGame(GameRandom random, GameModel model, ConfigWatcher watcher) {
+        GameRegistry registry = new GameRegistry(random);
+        if (watcher == null) {
+            registry.register(DEFAULT_GAME, () -> model, random);
+        } else {
+            registry.register(DEFAULT_GAME, watcher, random);
+        }
+        return registry;
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    public long getSeed() {
+        return registry.getSeed();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void handlePlay(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "POST");
+                send(exchange, 405, error("Only POST is supported"));
+                return;
+            }
+
+            String text = readBody(exchange);
+            if (text == null) {
+                send(exchange, 413, error(TOO_LARGE));
+                return;
+            }
+            String gameId;
+            int betAmount;
+            try {
+                JSONObject request = new JSONObject(text);
+                gameId = request.optString(GAME, DEFAULT_GAME);
+                betAmount = intOf(request.getBigDecimal(BETTING_AMOUNT), BETTING_AMOUNT);
+            } catch (JSONException e) {
+                send(exchange, 400, error(e.getMessage()));
+                return;
+            }
+            if (betAmount <= 0) {
+                send(exchange, 400, error(BETTING_AMOUNT + " must be positive"));
+                return;
+            }
+            if (!registry.contains(gameId)) {
+                send(exchange, 404, error("Unknown game: " + gameId));
+                return;
+            }
+
+            final CardPool.Card card = registry.get(gameId).deal(betAmount);
+            exchange.getResponseHeaders().set(ROUND_HEADER, Long.toString(card.round()));
+            setConfigVersion(exchange, card.model());
+            send(exchange, 200, card.output());
+        }
+    }
+
+    private void handleBatch(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "POST");
+                send(exchange, 405, error("Only POST is supported"));
+                return;
+            }
+
+            String text = readBody(exchange);
+            if (text == null) {
+                send(exchange, 413, error(TOO_LARGE));
+                return;
+            }
+            String gameId;
+            int[] betAmounts;
+            try {
+                JSONObject request = new JSONObject(text);
+                gameId = request.optString(GAME, DEFAULT_GAME);
+                if (request.has(BETTING_AMOUNTS)) {
+                    JSONArray amounts = request.getJSONArray(BETTING_AMOUNTS);
+                    betAmounts = new int[amounts.length()];
+                    for (int i = 0; i < betAmounts.length; i++) {
+                        betAmounts[i] = intOf(amounts.getBigDecimal(i), BETTING_AMOUNTS);
+                    }
+                } else {
+                    int count = intOf(request.getBigDecimal(COUNT), COUNT);
+                    if (count < 0 || count > MAX_BATCH_SIZE) {
+                        send(exchange, 400, error(COUNT + " must be between 0 and " + MAX_BATCH_SIZE));
+                        return;
+                    }
+                    betAmounts = new int[count];
+                    Arrays.fill(betAmounts, intOf(request.getBigDecimal(BETTING_AMOUNT), BETTING_AMOUNT));
+                }
+            } catch (JSONException e) {
+                send(exchange, 400, error(e.getMessage()));
+                return;
+            }
+            if (betAmounts.length > MAX_BATCH_SIZE) {
+                send(exchange, 400, error("a batch cannot have more than " + MAX_BATCH_SIZE + " rounds"));
+                return;
+            }
+            for (int betAmount : betAmounts) {
+                if (betAmount <= 0) {
+                    send(exchange, 400, error(BETTING_AMOUNT + " must be positive"));
+                    return;
+                }
+            }
+            if (!registry.contains(gameId)) {
+                send(exchange, 404, error("Unknown game: " + gameId));
+                return;
+            }
+
+            // -- chunked response, rounds are written as they are played
+            final GameRegistry.Variant variant = registry.get(gameId);
+            final GameModel model = variant.getModel();
+            final long firstRound = variant.reserveRounds(betAmounts.length);
+            exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson");
+            exchange.getResponseHeaders().set(FIRST_ROUND_HEADER, Long.toString(firstRound));
+            setConfigVersion(exchange, model);
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                variant.newBatchPlayer(model, firstRound).play(betAmounts, out);
+            }
+        }
+    }
+
+    private void handleGames(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "GET");
+                send(exchange, 405, error("Only GET is supported"));
+                return;
+            }
+            send(exchange, 200, registry.toJson().toString());
+        }
+    }
+
+    private static void setConfigVersion(HttpExchange exchange, GameModel model) {
+        if (model.getVersion() > 0) {
+            exchange.getResponseHeaders().set(CONFIG_VERSION_HEADER, Integer.toString(model.getVersion()));
+        }
+    }
+
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "GET");
+                send(exchange, 405, error("Only GET is supported"));
+                return;
+            }
+            byte[] bytes = registry.toMetricsText().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4");
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+    }
+
+    // -- null when the body is over MAX_BODY_BYTES, by its Content-Length or once that much is read
+    private static String readBody(HttpExchange exchange) throws IOException {
+        String length = exchange.getRequestHeaders().getFirst("Content-Length");
+        if (length != null && Long.parseLong(length) > MAX_BODY_BYTES) {
+            return null;
+        }
+        try (InputStream body = exchange.getRequestBody()) {
+            byte[] bytes = body.readNBytes(MAX_BODY_BYTES + 1);
+            return bytes.length > MAX_BODY_BYTES ? null : new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    // -- getInt would truncate 2.5 to 2 and wrap amounts over Integer.MAX_VALUE
+    private static int intOf(BigDecimal value, String key) {
+        try {
+            return value.intValueExact();
+        } catch (ArithmeticException e) {
+            throw new JSONException(key + " must be a whole number in int range, not " + value);
+        }
+    }
+
+    private static String error(String message) {
+        return new JSONObject().put(ERROR, message).toString();
+    }
+
+    private static void send(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
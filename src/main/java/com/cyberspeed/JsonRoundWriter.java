@@ -0,0 +1,235 @@
+package com.cyberspeed;
+
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static com.cyberspeed.OutputFormatter.*;
+
+/**
+ * Streaming counterpart of {@link OutputFormatter}: writes the same JSON document straight into a
+ * reusable UTF-8 byte buffer, without building a JSONObject tree. Keys, symbol names and combination
+ * names are encoded once from the model. Rounds can be appended one per line (NDJSON) and the
+ * buffer drained into an OutputStream whenever convenient.
+ * An instance is not thread safe.
+ */
+public class JsonRoundWriter {
+
+    private static final byte[] REWARD_KEY = key(REWARD);
+    private static final byte[] APPLIED_WINNING_COMBINATIONS_KEY = key(APPLIED_WINNING_COMBINATIONS);
+    private static final byte[] APPLIED_BONUS_SYMBOL_KEY = key(APPLIED_BONUS_SYMBOL);
+    private static final byte[] MATRIX_KEY = key(MATRIX);
+    private static final byte[] CONFIG_VERSION_KEY = key(CONFIG_VERSION);
+
+    // -- below 10^7, Double.toString (and so org.json) prints whole numbers without exponent
+    private static final double PLAIN_NUMBER_LIMIT = 1e7;
+
+    private final GameModel model;
+    private final byte[][] symbolNames;
+    private final byte[][] combinationNames;
+
+    private byte[] buffer = new byte[1024];
+    private int size;
+
+    public JsonRoundWriter(GameModel model) {
+        this.model = model;
+        this.symbolNames = new byte[model.getSymbolCount()][];
+        for (int i = 0; i < symbolNames.length; i++) {
+            symbolNames[i] = quote(model.getSymbolName(i));
+        }
+        this.combinationNames = new byte[model.getCombinationCount()][];
+        for (int i = 0; i < combinationNames.length; i++) {
+            combinationNames[i] = quote(model.getCombination(i).getName());
+        }
+    }
+
+    private static byte[] quote(String value) {
+        return JSONObject.quote(value).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] key(String name) {
+        return (JSONObject.quote(name) + ":").getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Appends the round last evaluated by the calculator, same document as {@link OutputFormatter#formatOutput()}.
+     */
+    public void write(int[] symbolIds, RewardCalculator calculator, double reward) {
+        append('{');
+        append(REWARD_KEY);
+        appendNumber(reward);
+
+        append(',');
+        append(APPLIED_WINNING_COMBINATIONS_KEY);
+        appendAppliedWinningCombinations(calculator);
+
+        final int bonusSymbol = calculator.getSelectedBonusSymbolId();
+        if (bonusSymbol >= 0) {
+            append(',');
+            append(APPLIED_BONUS_SYMBOL_KEY);
+            append(symbolNames[bonusSymbol]);
+        }
+
+        append(',');
+        append(MATRIX_KEY);
+        appendMatrix(symbolIds);
+
+        if (model.getVersion() > 0) {
+            append(',');
+            append(CONFIG_VERSION_KEY);
+            appendLong(model.getVersion());
+        }
+        append('}');
+    }
+
+    /**
+     * Appends the round followed by a new line, for NDJSON output.
+     */
+    public void writeLine(int[] symbolIds, RewardCalculator calculator, double reward) {
+        write(symbolIds, calculator, reward);
+        append('\n');
+    }
+
+    // -- {"A":["same_symbol_3_times","same_symbols_horizontally"],...}, grouped by symbol in order of first application
+    private void appendAppliedWinningCombinations(RewardCalculator calculator) {
+        final int appliedCount = calculator.getAppliedCount();
+        append('{');
+        boolean firstSymbol = true;
+        for (int i = 0; i < appliedCount; i++) {
+            final int symbol = calculator.getAppliedSymbolId(i);
+            if (appliedBefore(calculator, symbol, i)) {
+                continue;
+            }
+            if (!firstSymbol) {
+                append(',');
+            }
+            firstSymbol = false;
+            append(symbolNames[symbol]);
+            append(':');
+            append('[');
+            append(combinationNames[calculator.getAppliedCombinationId(i)]);
+            for (int j = i + 1; j < appliedCount; j++) {
+                if (calculator.getAppliedSymbolId(j) == symbol) {
+                    append(',');
+                    append(combinationNames[calculator.getAppliedCombinationId(j)]);
+                }
+            }
+            append(']');
+        }
+        append('}');
+    }
+
+    private static boolean appliedBefore(RewardCalculator calculator, int symbol, int index) {
+        for (int i = 0; i < index; i++) {
+            if (calculator.getAppliedSymbolId(i) == symbol) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void appendMatrix(int[] symbolIds) {
+        final int rows = model.getRows();
+        final int columns = model.getColumns();
+        append('[');
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                append(',');
+            }
+            append('[');
+            for (int j = 0; j < columns; j++) {
+                if (j > 0) {
+                    append(',');
+                }
+                append(symbolNames[symbolIds[i * columns + j]]);
+            }
+            append(']');
+        }
+        append(']');
+    }
+
+    // -- same text as org.json: whole numbers without ".0", otherwise Double.toString
+    private void appendNumber(double value) {
+        if (value == Math.rint(value) && Math.abs(value) < PLAIN_NUMBER_LIMIT) {
+            appendLong((long) value);
+            return;
+        }
+        String text = Double.toString(value);
+        if (text.indexOf('E') < 0 && text.endsWith(".0")) {
+            text = text.substring(0, text.length() - 2);
+        }
+        for (int i = 0; i < text.length(); i++) {
+            append((byte) text.charAt(i));
+        }
+    }
+
+    private void appendLong(long value) {
+        if (value < 0) {
+            append('-');
+            value = -value;
+        }
+        if (value == 0) {
+            append('0');
+            return;
+        }
+        int digits = 0;
+        for (long v = value; v > 0; v /= 10) {
+            digits++;
+        }
+        ensureCapacity(digits);
+        for (int i = size + digits - 1; i >= size; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        size += digits;
+    }
+
+    private void append(char c) {
+        ensureCapacity(1);
+        buffer[size++] = (byte) c;
+    }
+
+    private void append(byte b) {
+        ensureCapacity(1);
+        buffer[size++] = b;
+    }
+
+    private void append(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, size, bytes.length);
+        size += bytes.length;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (size + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+        }
+    }
+
+    /**
+     * Number of bytes waiting in the buffer.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Writes the buffered bytes to the stream and empties the buffer.
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(buffer, 0, size);
+        size = 0;
+    }
+
+    public void reset() {
+        size = 0;
+    }
+
+    @Override
+    public String toString() {
+        return new String(buffer, 0, size, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,147 @@
+package com.cyberspeed;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Concurrent histogram of durations in nanoseconds, log-linear in the spirit of HdrHistogram:
+ * values below 32 have a bucket each, above that every power of two is split into 32 buckets, so
+ * a recorded value is known to within 1/32 (about 3%) up to 2^44 ns (about 4.9 hours).
+ * <p>
+ * Recording is one increment of a fixed array slot, without allocation or locks. Like a {@link
+ * java.util.concurrent.atomic.LongAdder}, the buckets, sum and max are striped: a thread records into the
+ * stripe its id hashes to (allocated on first use), so concurrent rounds rarely share a cache line, and
+ * reads merge the stripes.
+ */
+public class LatencyHistogram {
+
+    static final int SUB_BUCKET_BITS = 5;
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    static final int MAX_EXPONENT = 44;
+    static final long MAX_VALUE = (1L << MAX_EXPONENT) - 1;
+    static final int BUCKET_COUNT = SUB_BUCKETS * (MAX_EXPONENT - SUB_BUCKET_BITS + 1);
+    // -- a power of two, at least the number of processors
+    static final int STRIPES = Math.min(64, Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() - 1)) << 1);
+    // -- slots of a stripe after its buckets
+    static final int SUM = BUCKET_COUNT;
+    static final int MAX = BUCKET_COUNT + 1;
+
+    private final AtomicReferenceArray<AtomicLongArray> stripes = new AtomicReferenceArray<>(STRIPES);
+
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        final int exponent = 63 - Long.numberOfLeadingZeros(value);
+        final int shift = exponent - SUB_BUCKET_BITS;
+        return SUB_BUCKETS * (shift + 1) + (int) ((value >>> shift) - SUB_BUCKETS);
+    }
+
+    // -- highest value that falls into the bucket
+    static long highestValueOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        final int shift = bucket / SUB_BUCKETS - 1;
+        final long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    // -- Fibonacci hashing of the thread id, ids of threads started one after the other land on different stripes
+    static int stripeOf(long threadId) {
+        return (int) ((threadId * 0x9E3779B97F4A7C15L) >>> 32) & (STRIPES - 1);
+    }
+
+    private AtomicLongArray stripe() {
+        final int index = stripeOf(Thread.currentThread().threadId());
+        AtomicLongArray stripe = stripes.get(index);
+        if (stripe == null) {
+            stripes.compareAndSet(index, null, new AtomicLongArray(MAX + 1));
+            stripe = stripes.get(index);
+        }
+        return stripe;
+    }
+
+    public void record(long nanos) {
+        final long value = Math.max(0, Math.min(nanos, MAX_VALUE));
+        final AtomicLongArray stripe = stripe();
+        stripe.incrementAndGet(bucketOf(value));
+        stripe.addAndGet(SUM, value);
+        long max;
+        while (value > (max = stripe.get(MAX)) && !stripe.compareAndSet(MAX, max, value)) {
+            // -- another thread of the stripe raised it, compare again
+        }
+    }
+
+    public long getCount() {
+        long total = 0;
+        for (int i = 0; i < STRIPES; i++) {
+            final AtomicLongArray stripe = stripes.get(i);
+            if (stripe != null) {
+                for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+                    total += stripe.get(bucket);
+                }
+            }
+        }
+        return total;
+    }
+
+    public double getMean() {
+        final long n = getCount();
+        return n == 0 ? 0 : (double) getSum() / n;
+    }
+
+    public long getSum() {
+        long total = 0;
+        for (int i = 0; i < STRIPES; i++) {
+            final AtomicLongArray stripe = stripes.get(i);
+            if (stripe != null) {
+                total += stripe.get(SUM);
+            }
+        }
+        return total;
+    }
+
+    public long getMax() {
+        long max = 0;
+        for (int i = 0; i < STRIPES; i++) {
+            final AtomicLongArray stripe = stripes.get(i);
+            if (stripe != null) {
+                max = Math.max(max, stripe.get(MAX));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Value at the given percentile (0 to 100), as the highest value of its bucket; 0 when empty.
+     * Concurrent recordings may or may not be seen.
+     */
+    public long getValueAtPercentile(double percentile) {
+        final long[] snapshot = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < STRIPES; i++) {
+            final AtomicLongArray stripe = stripes.get(i);
+            if (stripe != null) {
+                for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+                    snapshot[bucket] += stripe.get(bucket);
+                }
+            }
+        }
+        for (long count : snapshot) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        final long rank = Math.max(1, (long) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(highestValueOf(i), getMax());
+            }
+        }
+        return getMax();
+    }
+}
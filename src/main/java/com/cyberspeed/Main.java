@@ -2,8 +2,12 @@ package com.cyberspeed;
 
 import com.cyberspeed.PuzzleGame;
 import org.json.JSONException;
+import org.json.JSONObject;
 
 import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.SplittableRandom;
 
 public class Main {
 
@@ -12,22 +16,155 @@ public class Main {
         // default values
         String configPath = "src/main/resources/config.json";
         int betAmount = 100;
+        long simulateRounds = 0;
+        long seed = new SplittableRandom().nextLong();
+        int threads = Runtime.getRuntime().availableProcessors();
+        int shardSize = Simulator.DEFAULT_SHARD_SIZE;
+        int serverPort = -1;
+        boolean watchConfig = false;
+        String gamesPath = null;
+        boolean monitored = false;
+        int batchCount = 0;
+        String logPath = null;
+        String readLogPath = null;
+        String verifyLogPath = null;
+        long replayRound = -1;
+        String gameId = null;
+        int cardPoolCapacity = 0;
+        int lowWater = -1;
+        int[] betLevels = null;
+        long rtpSamples = 0;
+        int cacheSize = 0;
+        String batchEvaluation = null;
+        GameRandom.Algorithm algorithm = GameRandom.Algorithm.SPLITTABLE;
 
         if (args.length < 2) {
-            System.out.println(" >>>> Usage: java -jar ScratchGame-jar-with-dependencies.jar  --config <configPath> --betting-amount <amount> <<<<");
+            System.out.println(" >>>> Usage: java -jar ScratchGame-jar-with-dependencies.jar  --config <configPath> --betting-amount <amount> [--seed <seed>] [--rng splittable|l64x128_mix|xoshiro256_plus_plus] [--simulate <rounds> [--threads <n>] [--shard-size <rounds>] [--cache <entries>] [--batch-evaluation auto|scalar|vector]] [--server <port> [--watch true] [--games <directory>] [--metrics true] [--card-pool <cards> [--low-water <cards>] [--bet-levels <a,b,...>] [--threads <n>]]] [--batch <rounds> [--log <file>] [--cache <entries>]] [--read-log <file>] [--verify-log <file> [--threads <n>]] [--replay <round> [--game <id>]] [--rtp <samples>] <<<<");
             System.out.println(
                     " >>>> Running program using default config.\n" +
                             " >>>> betAmount : " + betAmount + "\n" +
                             " >>>> configPath : " + configPath
             );
         } else {
-            configPath = args[1];
-            betAmount = Integer.parseInt(args[3]);
+            for (int i = 0; i + 1 < args.length; i += 2) {
+                switch (args[i]) {
+                    case "--config" -> configPath = args[i + 1];
+                    case "--betting-amount" -> betAmount = Integer.parseInt(args[i + 1]);
+                    case "--simulate" -> simulateRounds = Long.parseLong(args[i + 1]);
+                    case "--seed" -> seed = Long.parseLong(args[i + 1]);
+                    case "--rng" -> algorithm = GameRandom.Algorithm.of(args[i + 1]);
+                    case "--threads" -> threads = Integer.parseInt(args[i + 1]);
+                    case "--shard-size" -> shardSize = Integer.parseInt(args[i + 1]);
+                    case "--server" -> serverPort = Integer.parseInt(args[i + 1]);
+                    case "--watch" -> watchConfig = Boolean.parseBoolean(args[i + 1]);
+                    case "--games" -> gamesPath = args[i + 1];
+                    case "--metrics" -> monitored = Boolean.parseBoolean(args[i + 1]);
+                    case "--card-pool" -> cardPoolCapacity = Integer.parseInt(args[i + 1]);
+                    case "--low-water" -> lowWater = Integer.parseInt(args[i + 1]);
+                    case "--bet-levels" -> betLevels = Arrays.stream(args[i + 1].split(",")).mapToInt(Integer::parseInt).toArray();
+                    case "--batch" -> batchCount = Integer.parseInt(args[i + 1]);
+                    case "--log" -> logPath = args[i + 1];
+                    case "--read-log" -> readLogPath = args[i + 1];
+                    case "--verify-log" -> verifyLogPath = args[i + 1];
+                    case "--replay" -> replayRound = Long.parseLong(args[i + 1]);
+                    case "--game" -> gameId = args[i + 1];
+                    case "--rtp" -> rtpSamples = Long.parseLong(args[i + 1]);
+                    case "--cache" -> cacheSize = Integer.parseInt(args[i + 1]);
+                    case "--batch-evaluation" -> batchEvaluation = args[i + 1];
+                    default -> throw new IllegalArgumentException("Unknown argument: " + args[i]);
+                }
+            }
+        }
+
+        GameRandom random = new GameRandom(algorithm, seed);
+
+        if (serverPort >= 0) {
+            GameRegistry registry = new GameRegistry(random, monitored);
+            if (gamesPath != null) {
+                registry.loadDirectory(Path.of(gamesPath), watchConfig);
+            } else if (watchConfig) {
+                ConfigWatcher watcher = new ConfigWatcher(Path.of(configPath));
+                watcher.start();
+                // -- the single game draws straight from the server random, so round r replays from (seed, r)
+                registry.register(GameServer.DEFAULT_GAME, watcher, random);
+            } else {
+                GameModel model = GameModel.load(configPath);
+                registry.register(GameServer.DEFAULT_GAME, () -> model, random);
+            }
+            if (cardPoolCapacity > 0) {
+                registry.enableCardPools(betLevels != null ? betLevels : new int[]{betAmount}, cardPoolCapacity,
+                        lowWater >= 0 ? lowWater : cardPoolCapacity / 4, threads);
+            }
+            GameServer server = new GameServer(registry, serverPort);
+            server.start();
+            System.out.println(" >>>> Listening on port " + server.getPort() + ", POST " + GameServer.PLAY_PATH + ", " + GameServer.BATCH_PATH
+                    + ", GET " + GameServer.GAMES_PATH + ", " + GameServer.METRICS_PATH + ", seed " + server.getSeed()
+                    + ", games " + registry.getGameIds() + (watchConfig ? " (watched)" : ""));
+            return;
+        }
+
+        PuzzleGame game = new PuzzleGame(GameModel.load(configPath), random.forRound(0));
+
+        if (readLogPath != null) {
+            try (RoundLogReader reader = new RoundLogReader(Path.of(readLogPath))) {
+                System.out.println(reader.summarize(game.getModel()));
+            }
+            return;
+        }
+
+        if (verifyLogPath != null) {
+            try (RoundLogReader reader = new RoundLogReader(Path.of(verifyLogPath))) {
+                long start = System.nanoTime();
+                JSONObject report = RoundVerifier.verifyLog(reader, game.getModel(), threads);
+                long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+                System.out.println(" >>>> Verified " + reader.getRecordCount() + " rounds in " + elapsedMillis + " ms");
+                System.out.println(report);
+            }
+            return;
+        }
+
+        if (replayRound >= 0) {
+            // -- a game of a --games directory draws from its own stream, the single game of a server from the master one
+            GameRandom rounds = gameId == null ? random : GameRegistry.randomOf(random, gameId);
+            new RoundVerifier(game.getModel(), rounds).replay(replayRound, betAmount, System.out);
+            return;
+        }
+
+        if (batchCount > 0) {
+            RewardCache cache = cacheSize > 0 ? new RewardCache(game.getModel(), cacheSize) : null;
+            if (logPath == null) {
+                new BatchPlayer(game.getModel(), random, null, cache).play(batchCount, betAmount, System.out);
+                return;
+            }
+            try (RoundLogWriter log = new RoundLogWriter(Path.of(logPath), game.getModel(), random)) {
+                new BatchPlayer(game.getModel(), random, log, cache).play(batchCount, betAmount, System.out);
+            }
+            return;
+        }
+
+        if (rtpSamples > 0) {
+            long start = System.nanoTime();
+            RtpReport report = new RtpCalculator(game.getModel(), RtpCalculator.DEFAULT_MAX_STATES, rtpSamples, seed).calculate(betAmount);
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+            System.out.println(" >>>> Calculated RTP (" + report.getMethod() + ") in " + elapsedMillis + " ms");
+            System.out.println(report.toJson());
+            return;
+        }
+
+        if (simulateRounds > 0) {
+            long start = System.nanoTime();
+            // -- "auto" falls back to round by round play for models a batch cannot hold
+            BatchEvaluator.Method method = batchEvaluation == null ? null
+                    : batchEvaluation.equalsIgnoreCase("auto") ? BatchEvaluator.Method.auto(game.getModel())
+                    : BatchEvaluator.Method.of(batchEvaluation);
+            SimulationReport report = new Simulator(game.getModel(), betAmount, threads, shardSize, algorithm, cacheSize, method).run(simulateRounds, seed);
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+            System.out.println(" >>>> Simulated " + simulateRounds + " rounds in " + elapsedMillis + " ms");
+            System.out.println(report.toJson());
+            return;
         }
 
-        PuzzleGame game = new PuzzleGame(configPath);
         game.play(betAmount);
 
     }
 }
-
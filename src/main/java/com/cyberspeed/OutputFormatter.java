@@ -6,42 +6,94 @@ import org.json.JSONObject;
 import java.util.List;
 import java.util.Map;
 
+/**
+ * Formats a round as JSON. The grid is either a matrix of symbol names or a flat (row-major) grid of
+ * symbol ids, whose names are only looked up in the model while the output is written.
+ */
 public class OutputFormatter {
     static final String MATRIX = "matrix";
     static final String APPLIED_BONUS_SYMBOL = "applied_bonus_symbol";
     static final String APPLIED_WINNING_COMBINATIONS = "applied_winning_combinations";
     static final String REWARD = "reward";
+    static final String CONFIG_VERSION = "config_version";
 
     private String[][] matrix;
+    private GameModel model;
+    private int[] symbolIds;
     private String appliedBonusSymbol;
     private Map<String, List<String>> appliedWinningCombinations;
     private double reward;
+    private int configVersion;
 
     public OutputFormatter(String[][] matrix, String appliedBonusSymbol, Map<String, List<String>> appliedWinningCombinations, double reward) {
+        this(matrix, appliedBonusSymbol, appliedWinningCombinations, reward, 0);
+    }
+
+    /**
+     * @param configVersion version of a watched config, added to the output when positive
+     */
+    public OutputFormatter(String[][] matrix, String appliedBonusSymbol, Map<String, List<String>> appliedWinningCombinations, double reward, int configVersion) {
         this.matrix = matrix;
         this.appliedBonusSymbol = appliedBonusSymbol;
         this.appliedWinningCombinations = appliedWinningCombinations;
         this.reward = reward;
+        this.configVersion = configVersion;
+    }
+
+    /**
+     * @param symbolIds     flat (row-major) grid of symbol ids of the model
+     * @param configVersion version of a watched config, added to the output when positive
+     */
+    public OutputFormatter(GameModel model, int[] symbolIds, String appliedBonusSymbol, Map<String, List<String>> appliedWinningCombinations, double reward, int configVersion) {
+        this.model = model;
+        this.symbolIds = symbolIds;
+        this.appliedBonusSymbol = appliedBonusSymbol;
+        this.appliedWinningCombinations = appliedWinningCombinations;
+        this.reward = reward;
+        this.configVersion = configVersion;
     }
 
     public String formatOutput() {
         JSONObject jsonObject = new JSONObject();
-        jsonObject.put(MATRIX, new JSONArray(matrix));
+        JSONArray rows = new JSONArray();
+        for (int i = 0; i < getRows(); i++) {
+            JSONArray row = new JSONArray();
+            for (int j = 0; j < getColumns(); j++) {
+                row.put(getSymbol(i, j));
+            }
+            rows.put(row);
+        }
+        jsonObject.put(MATRIX, rows);
         jsonObject.put(APPLIED_BONUS_SYMBOL, appliedBonusSymbol);
         jsonObject.put(APPLIED_WINNING_COMBINATIONS, new JSONObject(appliedWinningCombinations));
         jsonObject.put(REWARD, reward);
+        if (configVersion > 0) {
+            jsonObject.put(CONFIG_VERSION, configVersion);
+        }
         return jsonObject.toString();
     }
 
     public void displayMatrix() {
-        final int rows = matrix.length;
-        final int columns = matrix[0].length;
+        final int rows = getRows();
+        final int columns = getColumns();
 
         for (int i = 0; i < rows; i++) {
             for (int j = 0; j < columns; j++) {
-                System.out.print(String.format("%-" + 6 + "s", matrix[i][j]) + "\t");
+                System.out.print(String.format("%-" + 6 + "s", getSymbol(i, j)) + "\t");
             }
             System.out.println();
         }
     }
+
+    private int getRows() {
+        return matrix != null ? matrix.length : model.getRows();
+    }
+
+    private int getColumns() {
+        return matrix != null ? matrix[0].length : model.getColumns();
+    }
+
+    private String getSymbol(int row, int column) {
+        return matrix != null ? matrix[row][column] : model.getSymbolName(symbolIds[row * model.getColumns() + column]);
+    }
 }
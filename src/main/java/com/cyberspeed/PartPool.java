@@ -0,0 +1,144 @@
+package com.cyberspeed;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Canonicalizing pool of compiled model parts (symbol tables, weight tables, samplers, win
+ * combinations and their line sets). Models compiled through one pool share every part that is
+ * equal to a part compiled before, so many variants of a game hold one copy of what they have
+ * in common. Parts are immutable once compiled, which is what makes sharing them safe.
+ * <p>
+ * A model takes its parts through a {@link Claim}. A part stays in the pool while a model that claimed it
+ * has not released it, so the parts only a replaced config version used (see {@link ConfigWatcher}) are
+ * dropped and can be collected once no round holds that version any more. Thread safe.
+ */
+final class PartPool {
+
+    // -- compiles every part on its own, shares nothing
+    static final PartPool UNSHARED = new PartPool(false);
+
+    // -- content of a part, arrays compared by their elements
+    private record Key(Object[] identity) {
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Key key && Arrays.deepEquals(identity, key.identity);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.deepHashCode(identity);
+        }
+    }
+
+    // -- a pooled part and the number of claims holding it
+    private static final class Entry {
+        private final Object part;
+        private int holders;
+
+        private Entry(Object part) {
+            this.part = part;
+        }
+    }
+
+    /**
+     * The parts one model took from the pool, released together when the model is replaced.
+     */
+    final class Claim {
+        private final List<Key> keys = new ArrayList<>();
+        private boolean released;
+
+        /**
+         * The pooled part of the given identity, compiled by the factory when there is none yet.
+         */
+        <T> T intern(Supplier<T> factory, Object... identity) {
+            if (!sharing) {
+                return factory.get();
+            }
+            final Key key = new Key(identity);
+            synchronized (PartPool.this) {
+                keys.add(key);
+                return PartPool.this.intern(factory, key);
+            }
+        }
+
+        /**
+         * The pooled array equal to the given one (compared by element type and elements).
+         */
+        <T> T share(T array) {
+            return intern(() -> array, array.getClass(), array);
+        }
+
+        /**
+         * Gives the parts back, those no other claim holds leave the pool. Releasing twice does nothing.
+         */
+        void release() {
+            synchronized (PartPool.this) {
+                if (released) {
+                    return;
+                }
+                released = true;
+                for (Key key : keys) {
+                    final Entry entry = parts.get(key);
+                    if (--entry.holders == 0) {
+                        parts.remove(key);
+                    }
+                }
+                keys.clear();
+            }
+        }
+    }
+
+    private final boolean sharing;
+    private final Map<Key, Entry> parts = new HashMap<>();
+    private long lookups;
+    private long shared;
+
+    PartPool() {
+        this(true);
+    }
+
+    private PartPool(boolean sharing) {
+        this.sharing = sharing;
+    }
+
+    /**
+     * Starts taking the parts of a model.
+     */
+    Claim claim() {
+        return new Claim();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T intern(Supplier<T> factory, Key key) {
+        lookups++;
+        Entry entry = parts.get(key);
+        if (entry == null) {
+            entry = new Entry(factory.get());
+            parts.put(key, entry);
+        } else {
+            shared++;
+        }
+        entry.holders++;
+        return (T) entry.part;
+    }
+
+    synchronized int getPartCount() {
+        return parts.size();
+    }
+
+    /**
+     * Parts taken from the pool instead of being kept once more.
+     */
+    synchronized long getSharedCount() {
+        return shared;
+    }
+
+    synchronized long getLookupCount() {
+        return lookups;
+    }
+}
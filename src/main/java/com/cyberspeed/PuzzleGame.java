@@ -1,67 +1,120 @@
 package com.cyberspeed;
 
 import org.json.JSONException;
-import org.json.JSONObject;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Paths;
 import java.util.*;
-
-import static com.cyberspeed.ConfigConst.COLUMNS;
-import static com.cyberspeed.ConfigConst.ROWS;
+import java.util.random.RandomGenerator;
 
 public class PuzzleGame {
 
     private int rows;
     private int columns;
-    private String[][] matrix;
-    private JSONObject config;
-    private Random rand = new Random();
+    // -- symbol ids of the round, row-major; names are only resolved for the output
+    private int[] grid;
+    private GameModel model;
+    private RandomGenerator rand;
+    // -- built once, their buffers serve every round of the game
+    private final SymbolGenerator generator;
+    private final RewardCalculator calculator;
     private Map<String, List<String>> appliedWinningCombinations = new HashMap<>();
     private String appliedBonusSymbol = null;
+    private GameMetrics metrics;
+    private String gameId;
+    private long round = -1;
 
     public PuzzleGame(String configPath) throws IOException, JSONException {
-        String content = new String(Files.readAllBytes(Paths.get(configPath)));
-        this.config = new JSONObject(content);
-        this.rows = config.getInt(ROWS);
-        this.columns = config.getInt(COLUMNS);
-        this.matrix = new String[rows][columns];
+        this(GameModel.load(configPath));
+    }
+
+    public PuzzleGame(GameModel model) {
+        this(model, new SplittableRandom());
+    }
 
-        validateConfig();
+    public PuzzleGame(GameModel model, RandomGenerator rand) {
+        this.model = model;
+        this.rand = rand;
+        this.rows = model.getRows();
+        this.columns = model.getColumns();
+        this.grid = new int[rows * columns];
+        this.generator = new SymbolGenerator(model, rand);
+        this.calculator = new RewardCalculator(model, rand);
     }
 
     public void play(int betAmount) {
-        generateMatrix();
+        System.out.println(playRound(betAmount));
+    }
+
+    /**
+     * Plays one round and returns its JSON output instead of printing it.
+     */
+    public String playRound(int betAmount) {
+        GameEvents.RoundEvent event = GameEvents.beginRound();
+        final GameMetrics timing = metrics != null && metrics.isTimed() ? metrics : null;
+
+        long start = timing == null ? 0 : System.nanoTime();
+        GameEvents.PhaseEvent phase = GameEvents.beginPhase();
+        generateGrid();
+        phase.finish(GameMetrics.Stage.GENERATE);
+        if (timing != null) {
+            timing.record(GameMetrics.Stage.GENERATE, System.nanoTime() - start);
+        }
+
         double reward = calculateReward(betAmount);
-        displayOutput(reward);
+
+        start = timing == null ? 0 : System.nanoTime();
+        phase = GameEvents.beginPhase();
+        String output = formatOutput(reward);
+        phase.finish(GameMetrics.Stage.SERIALIZE);
+        if (timing != null) {
+            timing.record(GameMetrics.Stage.SERIALIZE, System.nanoTime() - start);
+        }
+
+        event.finish(gameId, round, model, betAmount, reward);
+        return output;
+    }
+
+    /**
+     * Names the game and the round reported in flight recorder events (see {@link GameEvents}).
+     */
+    public void identify(String gameId, long round) {
+        this.gameId = gameId;
+        this.round = round;
+    }
+
+    /**
+     * @param metrics when not null, every round is counted into it (and timed per stage when it is timed)
+     */
+    public void setMetrics(GameMetrics metrics) {
+        this.metrics = metrics;
+        calculator.setMetrics(metrics);
     }
 
-    private void validateConfig() {
-        ConfigValidator configValidator = new ConfigValidator(config);
-        configValidator.validate();
+    public GameModel getModel() {
+        return model;
     }
 
-    private void generateMatrix() {
+    private void generateGrid() {
 
-        SymbolGenerator generator = new SymbolGenerator(config, rand);
-        matrix = generator.generateMatrix(rows, columns);
+        generator.generateSymbolIds(grid);
     }
 
     private double calculateReward(int betAmount) {
 
-        RewardCalculator rewardCalculator = new RewardCalculator(config, matrix, betAmount, rand);
-        double reward = rewardCalculator.calculate();
-        appliedBonusSymbol = rewardCalculator.getSelectedBonusSymbol();
-        appliedWinningCombinations = rewardCalculator.getAppliedWinningCombinations();
+        double reward = calculator.calculate(grid, betAmount);
+        if (metrics != null) {
+            metrics.recordRound(model, betAmount, reward, calculator);
+        }
+        appliedBonusSymbol = calculator.getSelectedBonusSymbol();
+        appliedWinningCombinations = calculator.getAppliedWinningCombinations();
 
         return reward;
     }
 
-    private void displayOutput(double reward) {
+    private String formatOutput(double reward) {
 
-        OutputFormatter formatter = new OutputFormatter(matrix, appliedBonusSymbol, appliedWinningCombinations, reward);
-        System.out.println(formatter.formatOutput());
+        OutputFormatter formatter = new OutputFormatter(model, grid, appliedBonusSymbol, appliedWinningCombinations, reward, model.getVersion());
+        return formatter.formatOutput();
     }
 
 }
@@ -0,0 +1,235 @@
+package com.cyberspeed;
+
+import com.cyberspeed.GameModel.When;
+
+/**
+ * Bounded memo of {@link RewardCalculator} evaluations: for a grid and a bet, the reward before the
+ * bonus symbol and the applied winning combinations. The bonus symbol is still picked and applied
+ * per round by the calculator, so results are identical with or without the cache.
+ * <p>
+ * Grids are keyed by their symbol ids packed into one long, which is exact (no collisions) and
+ * only possible when rows * columns * bits per symbol id fit in 64 bits, e.g. a 4x4 grid of up
+ * to 16 symbols. Entries live in primitive arrays indexed by an open-addressing table; when the
+ * cache is full, CLOCK (second chance) picks the entry to evict.
+ * An instance is not thread safe; use one per calculator.
+ */
+public class RewardCache {
+
+    private final int bitsPerSymbol;
+    private final int capacity;
+    // -- applied combinations slots per entry, an upper bound of what a grid can apply
+    private final int stride;
+
+    private final long[] keys;
+    private final int[] bets;
+    private final double[] baseRewards;
+    private final int[] appliedCounts;
+    // -- (symbol id << 16 | combination id) per applied combination, 'stride' slots per entry
+    private final int[] applied;
+    private final boolean[] referenced;
+    private int size;
+    private int hand;
+
+    // -- entry index + 1 per slot, 0 for an empty slot
+    private final int[] table;
+    private final int tableShift;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public RewardCache(GameModel model, int capacity) {
+        if (!supports(model)) {
+            throw new IllegalArgumentException("A grid of " + model.getRows() + "x" + model.getColumns() + " with "
+                    + model.getSymbolCount() + " symbols does not fit a 64-bit key.");
+        }
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.bitsPerSymbol = bitsPerSymbol(model);
+        this.capacity = capacity;
+        this.stride = maxApplied(model);
+
+        this.keys = new long[capacity];
+        this.bets = new int[capacity];
+        this.baseRewards = new double[capacity];
+        this.appliedCounts = new int[capacity];
+        this.applied = new int[Math.multiplyExact(capacity, stride)];
+        this.referenced = new boolean[capacity];
+
+        final int tableSize = Integer.highestOneBit(Math.max(2, capacity) - 1) << 2;
+        this.table = new int[tableSize];
+        this.tableShift = 64 - Integer.numberOfTrailingZeros(tableSize);
+    }
+
+    /**
+     * True when grids of the model can be packed into a 64-bit key.
+     */
+    public static boolean supports(GameModel model) {
+        return (long) model.getRows() * model.getColumns() * bitsPerSymbol(model) <= Long.SIZE
+                && model.getSymbolCount() <= 1 << 15 && model.getCombinationCount() <= 1 << 16;
+    }
+
+    private static int bitsPerSymbol(GameModel model) {
+        return Math.max(1, 32 - Integer.numberOfLeadingZeros(model.getSymbolCount() - 1));
+    }
+
+    // -- every line of a linear combination, plus for a same_symbols combination every countable symbol that fits 'count' times
+    private static int maxApplied(GameModel model) {
+        final int cells = model.getRows() * model.getColumns();
+        int countable = 0;
+        for (int symbol = 0; symbol < model.getSymbolCount(); symbol++) {
+            if (model.isCountable(symbol)) {
+                countable++;
+            }
+        }
+        int max = 0;
+        for (int c = 0; c < model.getCombinationCount(); c++) {
+            final GameModel.WinCombination combination = model.getCombination(c);
+            if (combination.getWhen() == When.LINEAR_SYMBOLS) {
+                max += combination.getLineCount();
+            } else if (combination.getCount() > 0) {
+                max += Math.min(countable, cells / combination.getCount());
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Packs a flat grid of symbol ids into its key.
+     */
+    long fingerprint(int[] symbolIds) {
+        long key = 0;
+        for (int i = 0; i < symbolIds.length; i++) {
+            key |= (long) symbolIds[i] << (i * bitsPerSymbol);
+        }
+        return key;
+    }
+
+    private int home(long key, int betAmount) {
+        long h = (key ^ (betAmount * 0x9E3779B97F4A7C15L)) * 0xBF58476D1CE4E5B9L;
+        return (int) ((h ^ (h >>> 31)) >>> tableShift);
+    }
+
+    /**
+     * Entry of a grid and bet, or -1. Counts a hit or a miss.
+     */
+    int find(long key, int betAmount) {
+        final int mask = table.length - 1;
+        for (int slot = home(key, betAmount); table[slot] != 0; slot = (slot + 1) & mask) {
+            final int entry = table[slot] - 1;
+            if (keys[entry] == key && bets[entry] == betAmount) {
+                referenced[entry] = true;
+                hits++;
+                return entry;
+            }
+        }
+        misses++;
+        return -1;
+    }
+
+    /**
+     * Stores an evaluation, evicting an entry when the cache is full.
+     */
+    void put(long key, int betAmount, double baseReward, int[] symbolIds, int[] combinationIds, int count) {
+        if (count > stride) {
+            return;
+        }
+        int entry;
+        if (size < capacity) {
+            entry = size++;
+        } else {
+            while (referenced[hand]) {
+                referenced[hand] = false;
+                hand = hand + 1 == capacity ? 0 : hand + 1;
+            }
+            entry = hand;
+            hand = hand + 1 == capacity ? 0 : hand + 1;
+            remove(entry);
+            evictions++;
+        }
+
+        keys[entry] = key;
+        bets[entry] = betAmount;
+        baseRewards[entry] = baseReward;
+        appliedCounts[entry] = count;
+        referenced[entry] = false;
+        final int offset = entry * stride;
+        for (int i = 0; i < count; i++) {
+            applied[offset + i] = symbolIds[i] << 16 | combinationIds[i];
+        }
+
+        final int mask = table.length - 1;
+        int slot = home(key, betAmount);
+        while (table[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = entry + 1;
+    }
+
+    // -- linear probing removal with backward shift, so no tombstones are needed
+    private void remove(int entry) {
+        final int mask = table.length - 1;
+        int slot = home(keys[entry], bets[entry]);
+        while (table[slot] != entry + 1) {
+            slot = (slot + 1) & mask;
+        }
+
+        int next = slot;
+        while (true) {
+            next = (next + 1) & mask;
+            if (table[next] == 0) {
+                table[slot] = 0;
+                return;
+            }
+            final int other = table[next] - 1;
+            final int home = home(keys[other], bets[other]);
+            final boolean staysPut = slot <= next ? (slot < home && home <= next) : (slot < home || home <= next);
+            if (!staysPut) {
+                table[slot] = table[next];
+                slot = next;
+            }
+        }
+    }
+
+    double getBaseReward(int entry) {
+        return baseRewards[entry];
+    }
+
+    int getAppliedCount(int entry) {
+        return appliedCounts[entry];
+    }
+
+    int getAppliedSymbolId(int entry, int index) {
+        return applied[entry * stride + index] >>> 16;
+    }
+
+    int getAppliedCombinationId(int entry, int index) {
+        return applied[entry * stride + index] & 0xFFFF;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public double getHitRate() {
+        final long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+}
@@ -1,148 +1,353 @@
 package com.cyberspeed;
 
-import org.json.JSONArray;
-import org.json.JSONObject;
-
 import java.util.*;
+import java.util.random.RandomGenerator;
 
-import static com.cyberspeed.ConfigConst.*;
+import static com.cyberspeed.GameModel.*;
 
+/**
+ * Calculates the reward of a flat grid of symbol ids. An instance can be created once and reused
+ * through {@link #calculate(int[], int)}: all working state lives in buffers sized from the model,
+ * so a round does not allocate. With a
+ * {@link RewardCache}, grids evaluated before skip the combination checks; the bonus symbol is
+ * still picked per round.
+ * <p>
+ * Grids of up to 64 cells are first indexed into one occupancy mask per symbol (bit = cell offset):
+ * a line matches when it is covered by the mask of its first symbol, a symbol count is a bit count
+ * and the bonus cells are the union of the masks of the bonus candidates. Larger grids are checked
+ * cell by cell.
+ */
 public class RewardCalculator {
-    private JSONObject config;
-    private String[][] matrix;
-    private int betAmount;
-    private Random rand;
-    private String selectedBonusSymbol;
-    private Map<String, List<String>> appliedWinningCombinations = new HashMap<>();
-
-    public RewardCalculator(JSONObject config, String[][] matrix, int betAmount, Random rand) {
-        this.config = config;
-        this.matrix = matrix;
-        this.betAmount = betAmount;
+    private GameModel model;
+    private RandomGenerator rand;
+    private final RewardCache cache;
+    private GameMetrics metrics;
+
+    // -- reward per symbol id, only meaningful where 'rewarded' is set
+    private final double[] rewardList;
+    private final boolean[] rewarded;
+    private final int[] symbolCounts;
+    // -- countable symbols bucketed by how many times they appear: head per count, then a linked list
+    private final int[] countHeads;
+    private final int[] nextWithSameCount;
+    private final int[] bonusCells;
+    // -- occupancy mask per symbol id of the current grid, null when the grid does not fit a bitboard
+    private final long[] symbolMasks;
+    private final int[] bonusCandidates;
+    private final int[] batchGrid;
+
+    // -- applied winning combinations, in order, as (symbol id, combination id) pairs
+    private int[] appliedSymbols;
+    private int[] appliedCombinations;
+    private int appliedCount;
+
+    private int selectedBonusSymbol = -1;
+    private double baseReward;
+
+    public RewardCalculator(GameModel model, RandomGenerator rand) {
+        this(model, rand, null);
+    }
+
+    /**
+     * @param cache when not null, memo of the evaluations of this calculator
+     */
+    public RewardCalculator(GameModel model, RandomGenerator rand, RewardCache cache) {
+        this.model = model;
         this.rand = rand;
+        this.cache = cache;
+        this.rewardList = new double[model.getSymbolCount()];
+        this.rewarded = new boolean[model.getSymbolCount()];
+        this.symbolCounts = new int[model.getSymbolCount()];
+        this.countHeads = new int[model.getRows() * model.getColumns() + 1];
+        this.nextWithSameCount = new int[model.getSymbolCount()];
+        this.bonusCells = new int[model.getRows() * model.getColumns()];
+        this.symbolMasks = model.fitsBitboard() ? new long[model.getSymbolCount()] : null;
+        this.bonusCandidates = bonusCandidatesOf(model);
+        this.batchGrid = new int[model.getRows() * model.getColumns()];
+        this.appliedSymbols = new int[16];
+        this.appliedCombinations = new int[16];
+    }
+
+    private static int[] bonusCandidatesOf(GameModel model) {
+        int[] candidates = new int[model.getSymbolCount()];
+        int count = 0;
+        for (int symbol = 0; symbol < model.getSymbolCount(); symbol++) {
+            if (model.isBonusCandidate(symbol)) {
+                candidates[count++] = symbol;
+            }
+        }
+        return Arrays.copyOf(candidates, count);
+    }
+
+    /**
+     * @param metrics when timed, the evaluation and bonus stages of each round are recorded into it
+     */
+    public void setMetrics(GameMetrics metrics) {
+        this.metrics = metrics != null && metrics.isTimed() ? metrics : null;
+    }
+
+    /**
+     * Calculates the reward of a flat (row-major) grid of symbol ids.
+     */
+    public double calculate(int[] symbolIds, int betAmount) {
+        final GameMetrics metrics = this.metrics;
+        final long start = metrics == null ? 0 : System.nanoTime();
+        GameEvents.PhaseEvent phase = GameEvents.beginPhase();
+        selectedBonusSymbol = -1;
+        if (symbolMasks != null) {
+            indexCells(symbolIds);
+        }
+        if (cache == null) {
+            evaluate(symbolIds, betAmount);
+        } else {
+            final long key = cache.fingerprint(symbolIds);
+            final int entry = cache.find(key, betAmount);
+            if (entry >= 0) {
+                restore(entry);
+            } else {
+                evaluate(symbolIds, betAmount);
+                cache.put(key, betAmount, baseReward, appliedSymbols, appliedCombinations, appliedCount);
+            }
+        }
+        phase.finish(GameMetrics.Stage.EVALUATE);
+        final long evaluated = metrics == null ? 0 : System.nanoTime();
+        if (metrics != null) {
+            metrics.record(GameMetrics.Stage.EVALUATE, evaluated - start);
+        }
+
+        phase = GameEvents.beginPhase();
+        final double reward = baseReward > 0 ? applyBonusSymbols(symbolIds, baseReward) : 0;
+        phase.finish(GameMetrics.Stage.BONUS);
+        if (metrics != null) {
+            metrics.record(GameMetrics.Stage.BONUS, System.nanoTime() - evaluated);
+        }
+        return reward;
     }
 
-    public double calculate() {
-        JSONObject winCombinations = config.getJSONObject(WIN_COMBINATIONS);
+    /**
+     * Calculates the reward of a round of an evaluated batch (see {@link BatchEvaluator}): a round
+     * without any hit is settled at once, the others are evaluated like a single grid.
+     */
+    public double calculate(RoundBatch batch, int round, int betAmount) {
+        if (!batch.isHit(round)) {
+            appliedCount = 0;
+            baseReward = 0;
+            selectedBonusSymbol = -1;
+            return 0;
+        }
+        batch.copyRound(round, batchGrid);
+        return calculate(batchGrid, betAmount);
+    }
+
+    // -- the masks also serve the bonus step, so they are built even when the evaluation comes from the cache
+    private void indexCells(int[] symbolIds) {
+        final long[] masks = symbolMasks;
+        Arrays.fill(masks, 0);
+        for (int cell = 0; cell < symbolIds.length; cell++) {
+            masks[symbolIds[cell]] |= 1L << cell;
+        }
+    }
+
+    private void restore(int entry) {
+        appliedCount = 0;
+        for (int i = 0; i < cache.getAppliedCount(entry); i++) {
+            addAppliedWinningCombination(cache.getAppliedSymbolId(entry, i), cache.getAppliedCombinationId(entry, i));
+        }
+        baseReward = cache.getBaseReward(entry);
+    }
+
+    /**
+     * Applies the winning combinations to the grid: fills the applied list and the reward before the bonus.
+     */
+    private void evaluate(int[] symbolIds, int betAmount) {
+        Arrays.fill(rewardList, 0);
+        Arrays.fill(rewarded, false);
+        appliedCount = 0;
         double totalReward = 0;
-        final Map<String, Double> rewardList = new HashMap<>();
-
-        for (String winningCombination : winCombinations.keySet()) {
-            final JSONObject comboDetails = winCombinations.getJSONObject(winningCombination);
-            final String when = comboDetails.getString(WHEN);
-
-            if ("linear_symbols".equals(when)) {
-                final JSONArray areas = comboDetails.getJSONArray(COVERED_AREAS);
-                for (int i = 0; i < areas.length(); i++) {
-                    final JSONArray area = areas.getJSONArray(i);
-                    if (checkArea(area)) {
-                        final String firstSymbol = getSymbolFromPosition(area.getString(0));
-                        final int symbolMultiplier = config.getJSONObject(SYMBOLS).getJSONObject(firstSymbol).optInt(REWARD_MULTIPLIER, 1);
+
+        countSymbols(symbolIds);
+
+        for (int c = 0; c < model.getCombinationCount(); c++) {
+            final WinCombination combination = model.getCombination(c);
+
+            if (combination.getWhen() == When.LINEAR_SYMBOLS) {
+                final int[] lineOffsets = combination.getLineOffsets();
+                final int[] lineStarts = combination.getLineStarts();
+                final long[] lineMasks = combination.getLineMasks();
+                for (int line = 0; line < combination.getLineCount(); line++) {
+                    final int firstSymbol = symbolIds[lineOffsets[lineStarts[line]]];
+                    final boolean matched = symbolMasks != null
+                            ? (symbolMasks[firstSymbol] & lineMasks[line]) == lineMasks[line]
+                            : checkArea(symbolIds, lineOffsets, lineStarts[line], lineStarts[line + 1]);
+                    if (matched) {
+                        final int symbolMultiplier = model.getIntRewardMultiplier(firstSymbol);
                         double reward; // linear_symbols
-                        if (rewardList.containsKey(firstSymbol)) {
-                            reward = rewardList.get(firstSymbol) * comboDetails.getDouble(REWARD_MULTIPLIER);
+                        if (rewarded[firstSymbol]) {
+                            reward = rewardList[firstSymbol] * combination.getRewardMultiplier();
                         } else {
-                            reward = betAmount * comboDetails.getInt(REWARD_MULTIPLIER) * symbolMultiplier;
+                            reward = betAmount * combination.getIntRewardMultiplier() * symbolMultiplier;
                         }
-                        rewardList.put(firstSymbol, reward);
-                        appliedWinningCombinations.putIfAbsent(firstSymbol, new ArrayList<>());
-                        appliedWinningCombinations.get(firstSymbol).add(winningCombination);
+                        rewardList[firstSymbol] = reward;
+                        rewarded[firstSymbol] = true;
+                        addAppliedWinningCombination(firstSymbol, combination.getId());
                     }
                 }
-            } else if (comboDetails.getString(WHEN).equals(SAME_SYMBOLS)) {
-                int count = comboDetails.getInt(COUNT);
-                Map<String, Double> symbolCount = new HashMap<>();
-
-                final int rows = matrix.length;
-                final int columns = matrix[0].length;
-
-                // -- count same_symbols each
-                for (int i = 0; i < rows; i++) {
-                    for (int j = 0; j < columns; j++) {
-                        symbolCount.put(matrix[i][j], symbolCount.getOrDefault(matrix[i][j], 0.0) + 1);
-                    }
+            } else if (combination.getWhen() == When.SAME_SYMBOLS) {
+                final int count = combination.getCount();
+                // -- a symbol absent from the grid is not counted, so a count of 0 never matches
+                if (count <= 0 || count >= countHeads.length) {
+                    continue;
                 }
-                int symbolReward = 0;
-                for (Map.Entry<String, Double> entry : symbolCount.entrySet()) {
-                    // -- selected symbol
-                    if (entry.getValue() == count && entry.getKey().length() == 1) {
-                        final double symbolMultiplier = config.getJSONObject(SYMBOLS).getJSONObject(entry.getKey()).optDouble(REWARD_MULTIPLIER, 1);
-
-                        double reward; // same_symbols
-                        if (rewardList.containsKey(entry.getKey())) {
-                            reward = rewardList.get(entry.getKey()) * comboDetails.getDouble(REWARD_MULTIPLIER);
-                        } else {
-                            reward = betAmount * comboDetails.getDouble(REWARD_MULTIPLIER) * symbolMultiplier;
-                        }
-                        rewardList.put(entry.getKey(), reward);
+                // -- selected symbols: countable ones appearing exactly 'count' times
+                for (int symbol = countHeads[count]; symbol >= 0; symbol = nextWithSameCount[symbol]) {
+                    final double symbolMultiplier = model.getRewardMultiplier(symbol);
 
-                        appliedWinningCombinations.putIfAbsent(entry.getKey(), new ArrayList<>());
-                        appliedWinningCombinations.get(entry.getKey()).add(winningCombination);
+                    double reward; // same_symbols
+                    if (rewarded[symbol]) {
+                        reward = rewardList[symbol] * combination.getRewardMultiplier();
+                    } else {
+                        reward = betAmount * combination.getRewardMultiplier() * symbolMultiplier;
                     }
+                    rewardList[symbol] = reward;
+                    rewarded[symbol] = true;
+                    addAppliedWinningCombination(symbol, combination.getId());
                 }
             }
         }
 
-        totalReward = rewardList.values().stream().mapToDouble(Double::doubleValue).sum();
-        return totalReward > 0 ? applyBonusSymbols(totalReward) : 0;
+        for (double reward : rewardList) {
+            totalReward += reward;
+        }
+        baseReward = totalReward;
     }
 
-    private boolean checkArea(JSONArray area) {
-        String firstSymbol = getSymbolFromPosition(area.getString(0));
-        for (int i = 1; i < area.length(); i++) {
-            if (!getSymbolFromPosition(area.getString(i)).equals(firstSymbol)) {
+    /**
+     * Counts every symbol of the grid once and buckets the countable symbols by their count,
+     * so each same_symbols combination only visits the symbols that match it.
+     */
+    private void countSymbols(int[] symbolIds) {
+        if (symbolMasks != null) {
+            for (int symbol = 0; symbol < symbolCounts.length; symbol++) {
+                symbolCounts[symbol] = Long.bitCount(symbolMasks[symbol]);
+            }
+        } else {
+            Arrays.fill(symbolCounts, 0);
+            for (int symbol : symbolIds) {
+                symbolCounts[symbol]++;
+            }
+        }
+
+        Arrays.fill(countHeads, -1);
+        for (int symbol = model.getSymbolCount() - 1; symbol >= 0; symbol--) {
+            if (model.isCountable(symbol)) {
+                nextWithSameCount[symbol] = countHeads[symbolCounts[symbol]];
+                countHeads[symbolCounts[symbol]] = symbol;
+            }
+        }
+    }
+
+    private boolean checkArea(int[] symbolIds, int[] lineOffsets, int from, int to) {
+        final int firstSymbol = symbolIds[lineOffsets[from]];
+        for (int i = from + 1; i < to; i++) {
+            if (symbolIds[lineOffsets[i]] != firstSymbol) {
                 return false;
             }
         }
         return true;
     }
 
-    private String getSymbolFromPosition(String position) {
-        String[] pos = position.split(":");
-        return matrix[Integer.parseInt(pos[0])][Integer.parseInt(pos[1])];
+    private void addAppliedWinningCombination(int symbol, int combinationId) {
+        if (appliedCount == appliedSymbols.length) {
+            appliedSymbols = Arrays.copyOf(appliedSymbols, appliedCount * 2);
+            appliedCombinations = Arrays.copyOf(appliedCombinations, appliedCount * 2);
+        }
+        appliedSymbols[appliedCount] = symbol;
+        appliedCombinations[appliedCount] = combinationId;
+        appliedCount++;
     }
 
-    private double applyBonusSymbols(double reward) {
-        List<String> bonusSymbols = new ArrayList<>();
-        final int rows = matrix.length;
-        final int columns = matrix[0].length;
-
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < columns; j++) {
-                if (matrix[i][j].length() > 1 && !matrix[i][j].equals(MISS)) {
-                    bonusSymbols.add(matrix[i][j]);
+    private double applyBonusSymbols(int[] symbolIds, double reward) {
+        final int bonusSymbol;
+        if (symbolMasks != null) {
+            long bonusMask = 0;
+            for (int symbol : bonusCandidates) {
+                bonusMask |= symbolMasks[symbol];
+            }
+            if (bonusMask == 0) {
+                return reward;
+            }
+            // -- the n-th bonus cell in row-major order, as the cell by cell scan picks it
+            for (int n = rand.nextInt(Long.bitCount(bonusMask)); n > 0; n--) {
+                bonusMask &= bonusMask - 1;
+            }
+            bonusSymbol = symbolIds[Long.numberOfTrailingZeros(bonusMask)];
+        } else {
+            int bonusCount = 0;
+            for (int symbol : symbolIds) {
+                if (model.isBonusCandidate(symbol)) {
+                    bonusCells[bonusCount++] = symbol;
                 }
             }
+            if (bonusCount == 0) {
+                return reward;
+            }
+            bonusSymbol = bonusCells[rand.nextInt(bonusCount)];
         }
 
-        if (bonusSymbols.size() == 0) {
-            return reward;
-        }
-
-        selectedBonusSymbol = bonusSymbols.get(rand.nextInt(bonusSymbols.size()));
-        JSONObject symbolDetails = config.getJSONObject(SYMBOLS).getJSONObject(selectedBonusSymbol);
-        if (symbolDetails.getString(TYPE).equals(BONUS)) {
-            reward = applyBonusEffect(symbolDetails, reward);
+        selectedBonusSymbol = bonusSymbol;
+        if (model.getType(bonusSymbol) == SymbolType.BONUS) {
+            reward = applyBonusEffect(bonusSymbol, reward);
         }
 
         return reward;
     }
 
-    private double applyBonusEffect(JSONObject bonus, double reward) {
-        String impact = bonus.getString(IMPACT);
-        if (impact.equals(MULTIPLY_REWARD)) {
-            return reward * bonus.getInt(REWARD_MULTIPLIER);
-        } else if (impact.equals(EXTRA_BONUS)) {
-            return reward + bonus.getInt(EXTRA);
+    private double applyBonusEffect(int bonusSymbol, double reward) {
+        Impact impact = model.getImpact(bonusSymbol);
+        if (impact == Impact.MULTIPLY_REWARD) {
+            return reward * model.getIntRewardMultiplier(bonusSymbol);
+        } else if (impact == Impact.EXTRA_BONUS) {
+            return reward + model.getExtra(bonusSymbol);
         }
         return reward;
     }
 
     public String getSelectedBonusSymbol() {
+        return selectedBonusSymbol < 0 ? null : model.getSymbolName(selectedBonusSymbol);
+    }
+
+    /**
+     * Symbol id of the applied bonus symbol, or -1 when none was applied.
+     */
+    public int getSelectedBonusSymbolId() {
         return selectedBonusSymbol;
     }
 
+    /**
+     * Total reward of the last round before the bonus symbol was applied.
+     */
+    public double getBaseReward() {
+        return baseReward;
+    }
+
+    public int getAppliedCount() {
+        return appliedCount;
+    }
+
+    public int getAppliedSymbolId(int index) {
+        return appliedSymbols[index];
+    }
+
+    public int getAppliedCombinationId(int index) {
+        return appliedCombinations[index];
+    }
+
     public Map<String, List<String>> getAppliedWinningCombinations() {
+        Map<String, List<String>> appliedWinningCombinations = new HashMap<>();
+        for (int i = 0; i < appliedCount; i++) {
+            appliedWinningCombinations.computeIfAbsent(model.getSymbolName(appliedSymbols[i]), k -> new ArrayList<>())
+                    .add(model.getCombination(appliedCombinations[i]).getName());
+        }
         return appliedWinningCombinations;
     }
 }
@@ -0,0 +1,101 @@
+package com.cyberspeed;
+
+/**
+ * Grids of many rounds in structure-of-arrays form: the symbol ids of cell k for every round of the
+ * batch are contiguous ({@code cells[k * capacity + round]}, one byte each), so a
+ * {@link BatchEvaluator} compares a cell across many rounds at once. The evaluator marks the rounds
+ * that hit at least one win combination; {@link RewardCalculator#calculate(RoundBatch, int, int)}
+ * then only evaluates those in full.
+ */
+public final class RoundBatch {
+
+    static final int DEFAULT_CAPACITY = 1024;
+    // -- ids and counts are compared as unsigned bytes
+    static final int MAX_SYMBOLS = 256;
+    static final int MAX_CELLS = 255;
+    // -- the capacity is padded to this many rounds, a multiple of every vector length;
+    // rounds past the size are evaluated with the others and never read back
+    static final int ALIGNMENT = 64;
+
+    private final GameModel model;
+    private final int capacity;
+    private final int cellCount;
+    final byte[] cells;
+    final boolean[] hits;
+    private final int[] grid;
+    private int size;
+
+    public RoundBatch(GameModel model) {
+        this(model, DEFAULT_CAPACITY);
+    }
+
+    public RoundBatch(GameModel model, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Batch capacity must be positive.");
+        }
+        if (!supports(model)) {
+            throw new IllegalArgumentException("Batches support up to " + MAX_SYMBOLS + " symbols and " + MAX_CELLS + " cells.");
+        }
+        this.model = model;
+        this.capacity = (capacity + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+        this.cellCount = model.getRows() * model.getColumns();
+        this.cells = new byte[cellCount * this.capacity];
+        this.hits = new boolean[this.capacity];
+        this.grid = new int[cellCount];
+    }
+
+    /**
+     * Draws the grids of the next 'rounds' rounds, in order, replacing the batch.
+     */
+    public void generate(SymbolGenerator generator, int rounds) {
+        if (rounds < 0 || rounds > capacity) {
+            throw new IllegalArgumentException("A batch holds up to " + capacity + " rounds.");
+        }
+        for (int round = 0; round < rounds; round++) {
+            generator.generateSymbolIds(grid);
+            for (int cell = 0; cell < cellCount; cell++) {
+                cells[cell * capacity + round] = (byte) grid[cell];
+            }
+        }
+        size = rounds;
+    }
+
+    /**
+     * Whether the symbol ids and cell counts of the model fit the byte-wide batches.
+     */
+    public static boolean supports(GameModel model) {
+        return model.getSymbolCount() <= MAX_SYMBOLS && model.getRows() * model.getColumns() <= MAX_CELLS;
+    }
+
+    GameModel getModel() {
+        return model;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getSymbolId(int round, int cell) {
+        return cells[cell * capacity + round] & 0xFF;
+    }
+
+    /**
+     * Copies the grid of a round into a flat (row-major) buffer of symbol ids.
+     */
+    public void copyRound(int round, int[] symbolIds) {
+        for (int cell = 0; cell < cellCount; cell++) {
+            symbolIds[cell] = cells[cell * capacity + round] & 0xFF;
+        }
+    }
+
+    /**
+     * Whether the round hits at least one win combination, as found by the last evaluation.
+     */
+    public boolean isHit(int round) {
+        return hits[round];
+    }
+}
@@ -0,0 +1,164 @@
+package com.cyberspeed;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Header of a binary round log, and the fixed-width record layout it implies.
+ * <pre>
+ * header (64 bytes, little endian)
+ *   int   magic 'SCRL'       short version        byte cellBytes     byte maskWords
+ *   int   rows               int   columns        int  symbolCount   int  combinationCount
+ *   long  configHash         long  seed           int  recordSize    byte rngAlgorithm  (zero padding)
+ * record (recordSize bytes)
+ *   long   round             double reward        int  bet           short bonusSymbol (unsigned, 0xFFFF: none)
+ *   short  (reserved)        long[maskWords] applied combination bitmask
+ *   byte/short[rows * columns] symbol id grid     (zero padding to a multiple of 8)
+ * </pre>
+ */
+public final class RoundLogHeader {
+    static final int MAGIC = 0x5343524C;
+    static final short VERSION = 1;
+    static final int HEADER_SIZE = 64;
+    static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    // -- offsets inside a record
+    static final int ROUND_OFFSET = 0;
+    static final int REWARD_OFFSET = 8;
+    static final int BET_OFFSET = 16;
+    static final int BONUS_OFFSET = 20;
+    static final int MASK_OFFSET = 24;
+
+    // -- symbol ids are unsigned shorts, the last one meaning "no bonus symbol"; the mask word count is an unsigned byte
+    static final int NO_BONUS_SYMBOL = 0xFFFF;
+    static final int MAX_SYMBOLS = NO_BONUS_SYMBOL;
+    static final int MAX_COMBINATIONS = 0xFF * 64;
+
+    private final int cellBytes;
+    private final int maskWords;
+    private final int rows;
+    private final int columns;
+    private final int symbolCount;
+    private final int combinationCount;
+    private final long configHash;
+    private final long seed;
+    private final GameRandom.Algorithm algorithm;
+    private final int recordSize;
+
+    RoundLogHeader(GameModel model, GameRandom.Algorithm algorithm, long seed) {
+        this(model.getSymbolCount() <= 256 ? 1 : 2, (model.getCombinationCount() + 63) / 64,
+                model.getRows(), model.getColumns(), model.getSymbolCount(), model.getCombinationCount(),
+                model.getConfigHash(), seed, algorithm);
+    }
+
+    private RoundLogHeader(int cellBytes, int maskWords, int rows, int columns, int symbolCount,
+                           int combinationCount, long configHash, long seed, GameRandom.Algorithm algorithm) {
+        if (symbolCount > MAX_SYMBOLS || combinationCount > MAX_COMBINATIONS) {
+            throw new IllegalArgumentException("Round logs support up to " + MAX_SYMBOLS + " symbols and " + MAX_COMBINATIONS
+                    + " win combinations, the config has " + symbolCount + " and " + combinationCount + ".");
+        }
+        this.cellBytes = cellBytes;
+        this.maskWords = maskWords;
+        this.rows = rows;
+        this.columns = columns;
+        this.symbolCount = symbolCount;
+        this.combinationCount = combinationCount;
+        this.configHash = configHash;
+        this.seed = seed;
+        this.algorithm = algorithm;
+        int size = MASK_OFFSET + maskWords * 8 + rows * columns * cellBytes;
+        this.recordSize = (size + 7) & ~7;
+    }
+
+    static RoundLogHeader read(ByteBuffer buffer) {
+        buffer.order(BYTE_ORDER);
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("Not a round log file.");
+        }
+        if (buffer.getShort(4) != VERSION) {
+            throw new IllegalArgumentException("Unsupported round log version: " + buffer.getShort(4));
+        }
+        final int algorithm = buffer.get(44);
+        if (algorithm < 0 || algorithm >= GameRandom.Algorithm.values().length) {
+            throw new IllegalArgumentException("Unknown random algorithm in round log: " + algorithm);
+        }
+        RoundLogHeader header = new RoundLogHeader(buffer.get(6), buffer.get(7) & 0xFF, buffer.getInt(8), buffer.getInt(12),
+                buffer.getInt(16), buffer.getInt(20), buffer.getLong(24), buffer.getLong(32),
+                GameRandom.Algorithm.values()[algorithm]);
+        if (header.recordSize != buffer.getInt(40)) {
+            throw new IllegalArgumentException("Corrupted round log header.");
+        }
+        return header;
+    }
+
+    void write(ByteBuffer buffer) {
+        buffer.order(BYTE_ORDER);
+        buffer.putInt(MAGIC);
+        buffer.putShort(VERSION);
+        buffer.put((byte) cellBytes);
+        buffer.put((byte) maskWords);
+        buffer.putInt(rows);
+        buffer.putInt(columns);
+        buffer.putInt(symbolCount);
+        buffer.putInt(combinationCount);
+        buffer.putLong(configHash);
+        buffer.putLong(seed);
+        buffer.putInt(recordSize);
+        buffer.put((byte) algorithm.ordinal());
+        while (buffer.position() < HEADER_SIZE) {
+            buffer.put((byte) 0);
+        }
+    }
+
+    /**
+     * True when records of this log can be read with the model.
+     */
+    public boolean matches(GameModel model) {
+        return configHash == model.getConfigHash() && rows == model.getRows() && columns == model.getColumns()
+                && symbolCount == model.getSymbolCount() && combinationCount == model.getCombinationCount();
+    }
+
+    int getCellBytes() {
+        return cellBytes;
+    }
+
+    int getMaskWords() {
+        return maskWords;
+    }
+
+    int getGridOffset() {
+        return MASK_OFFSET + maskWords * 8;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public int getSymbolCount() {
+        return symbolCount;
+    }
+
+    public int getCombinationCount() {
+        return combinationCount;
+    }
+
+    public long getConfigHash() {
+        return configHash;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public GameRandom.Algorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    public int getRecordSize() {
+        return recordSize;
+    }
+}
@@ -0,0 +1,208 @@
+package com.cyberspeed;
+
+import org.json.JSONObject;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+import static com.cyberspeed.RoundLogHeader.*;
+import static com.cyberspeed.SimulationReport.*;
+
+/**
+ * Reads a binary round log written by {@link RoundLogWriter} through memory-mapped chunks.
+ * Records are exposed through a reusable {@link Record} view over the mapping, so scanning
+ * does not allocate per record. A trailing partial record is ignored.
+ * Scans can run concurrently; each call uses its own mappings and view.
+ */
+public class RoundLogReader implements Closeable {
+
+    // -- a mapping cannot exceed 2 GiB, records are mapped in whole-record chunks of about this size
+    static final long CHUNK_SIZE = 1L << 30;
+
+    private final FileChannel channel;
+    private final RoundLogHeader header;
+    private final long recordCount;
+
+    public RoundLogReader(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            if (channel.size() < HEADER_SIZE) {
+                throw new IllegalArgumentException("Round log header is truncated.");
+            }
+            this.header = RoundLogHeader.read(channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE));
+            this.recordCount = (channel.size() - HEADER_SIZE) / header.getRecordSize();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public RoundLogHeader getHeader() {
+        return header;
+    }
+
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Visits every record in file order. The record passed to the action is only valid during the call.
+     */
+    public void forEach(Consumer<Record> action) throws IOException {
+        forEach(0, recordCount, action);
+    }
+
+    /**
+     * Visits records [from, to) in file order. The record passed to the action is only valid during the call.
+     */
+    public void forEach(long from, long to, Consumer<Record> action) throws IOException {
+        if (from < 0 || to > recordCount || from > to) {
+            throw new IllegalArgumentException("Invalid record range: [" + from + ", " + to + ")");
+        }
+        final int recordSize = header.getRecordSize();
+        final long recordsPerChunk = Math.max(1, CHUNK_SIZE / recordSize);
+        final Record record = new Record(header);
+
+        for (long first = from; first < to; first += recordsPerChunk) {
+            final int count = (int) Math.min(recordsPerChunk, to - first);
+            MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY,
+                    HEADER_SIZE + first * recordSize, (long) count * recordSize);
+            chunk.order(BYTE_ORDER);
+            record.buffer = chunk;
+            for (int i = 0; i < count; i++) {
+                record.offset = i * recordSize;
+                action.accept(record);
+            }
+        }
+    }
+
+    /**
+     * Aggregates the whole log: rounds, total bet and reward, RTP, hit frequency, combination triggers
+     * and applied bonus symbols. Names are resolved with the model the log was written for.
+     */
+    public JSONObject summarize(GameModel model) throws IOException {
+        if (!header.matches(model)) {
+            throw new IllegalArgumentException("Round log was written for another config.");
+        }
+        final long[] combinationTriggers = new long[header.getCombinationCount()];
+        final long[] bonusApplied = new long[header.getSymbolCount()];
+        // -- {rounds, hits} and {total bet, total reward, max reward}, updated from the scan lambda
+        final long[] counters = new long[2];
+        final double[] sums = new double[3];
+
+        forEach(record -> {
+            final double reward = record.getReward();
+            counters[0]++;
+            if (reward > 0) {
+                counters[1]++;
+            }
+            sums[0] += record.getBet();
+            sums[1] += reward;
+            sums[2] = Math.max(sums[2], reward);
+            for (int i = 0; i < combinationTriggers.length; i++) {
+                if (record.hasCombination(i)) {
+                    combinationTriggers[i]++;
+                }
+            }
+            final int bonusSymbol = record.getBonusSymbolId();
+            if (bonusSymbol >= 0) {
+                bonusApplied[bonusSymbol]++;
+            }
+        });
+
+        JSONObject json = new JSONObject();
+        json.put(SEED, header.getSeed());
+        json.put(ROUNDS, counters[0]);
+        json.put(TOTAL_BET, sums[0]);
+        json.put(TOTAL_REWARD, sums[1]);
+        json.put(RTP, sums[0] == 0 ? 0 : sums[1] / sums[0]);
+        json.put(HIT_FREQUENCY, counters[0] == 0 ? 0 : (double) counters[1] / counters[0]);
+        json.put(MAX_REWARD, sums[2]);
+
+        JSONObject triggers = new JSONObject();
+        for (int i = 0; i < combinationTriggers.length; i++) {
+            triggers.put(model.getCombination(i).getName(), combinationTriggers[i]);
+        }
+        json.put(COMBINATION_TRIGGERS, triggers);
+
+        JSONObject bonuses = new JSONObject();
+        for (int i = 0; i < bonusApplied.length; i++) {
+            if (model.isBonusCandidate(i)) {
+                bonuses.put(model.getSymbolName(i), bonusApplied[i]);
+            }
+        }
+        json.put(BONUS_SYMBOLS, bonuses);
+        return json;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * View of one record of the log.
+     */
+    public static final class Record {
+        private final int cellBytes;
+        private final int gridOffset;
+        private final int cellCount;
+        private ByteBuffer buffer;
+        private int offset;
+
+        private Record(RoundLogHeader header) {
+            this.cellBytes = header.getCellBytes();
+            this.gridOffset = header.getGridOffset();
+            this.cellCount = header.getRows() * header.getColumns();
+        }
+
+        public long getRound() {
+            return buffer.getLong(offset + ROUND_OFFSET);
+        }
+
+        public double getReward() {
+            return buffer.getDouble(offset + REWARD_OFFSET);
+        }
+
+        public int getBet() {
+            return buffer.getInt(offset + BET_OFFSET);
+        }
+
+        /**
+         * Id of the applied bonus symbol, -1 when none was applied.
+         */
+        public int getBonusSymbolId() {
+            final int bonusSymbol = buffer.getShort(offset + BONUS_OFFSET) & 0xFFFF;
+            return bonusSymbol == NO_BONUS_SYMBOL ? -1 : bonusSymbol;
+        }
+
+        public boolean hasCombination(int combinationId) {
+            long word = buffer.getLong(offset + MASK_OFFSET + (combinationId >>> 6) * 8);
+            return (word & (1L << combinationId)) != 0;
+        }
+
+        public int getCellCount() {
+            return cellCount;
+        }
+
+        /**
+         * Symbol id of a cell, in row-major order.
+         */
+        public int getSymbolId(int cell) {
+            final int position = offset + gridOffset + cell * cellBytes;
+            return cellBytes == 1 ? buffer.get(position) & 0xFF : buffer.getShort(position) & 0xFFFF;
+        }
+
+        public void getSymbolIds(int[] symbolIds) {
+            for (int i = 0; i < cellCount; i++) {
+                symbolIds[i] = getSymbolId(i);
+            }
+        }
+    }
+}
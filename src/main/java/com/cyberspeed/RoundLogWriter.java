@@ -0,0 +1,148 @@
+package com.cyberspeed;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static com.cyberspeed.RoundLogHeader.*;
+
+/**
+ * Append-only writer of the binary round log described in {@link RoundLogHeader}.
+ * Records are batched in a direct buffer and written through a FileChannel when it fills up.
+ * Opening an existing log checks that it was written for the same config and random seed, drops a
+ * trailing partial record (e.g. after a crash) and appends after the last complete one.
+ * An instance is not thread safe.
+ */
+public class RoundLogWriter implements Closeable {
+
+    static final int BUFFER_SIZE = 1 << 20;
+
+    private final RoundLogHeader header;
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final int cellBytes;
+    private final int gridOffset;
+    private long recordCount;
+
+    public RoundLogWriter(Path path, GameModel model, long seed) throws IOException {
+        this(path, model, new GameRandom(seed));
+    }
+
+    /**
+     * @param random the seed and algorithm rounds are drawn with, recorded in the header for replays
+     */
+    public RoundLogWriter(Path path, GameModel model, GameRandom random) throws IOException {
+        this.header = new RoundLogHeader(model, random.getAlgorithm(), random.getSeed());
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.buffer = ByteBuffer.allocateDirect(Math.max(BUFFER_SIZE, header.getRecordSize())).order(BYTE_ORDER);
+        this.cellBytes = header.getCellBytes();
+        this.gridOffset = header.getGridOffset();
+
+        try {
+            if (channel.size() == 0) {
+                header.write(buffer);
+                flush();
+            } else {
+                openExisting(model);
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private void openExisting(GameModel model) throws IOException {
+        ByteBuffer existing = ByteBuffer.allocate(HEADER_SIZE);
+        while (existing.hasRemaining() && channel.read(existing, existing.position()) >= 0) {
+            // -- read the whole header
+        }
+        if (existing.hasRemaining()) {
+            throw new IllegalArgumentException("Round log header is truncated.");
+        }
+        RoundLogHeader existingHeader = RoundLogHeader.read(existing);
+        if (!existingHeader.matches(model) || existingHeader.getSeed() != header.getSeed()
+                || existingHeader.getAlgorithm() != header.getAlgorithm()) {
+            throw new IllegalArgumentException("Round log was written for another config or seed.");
+        }
+
+        recordCount = (channel.size() - HEADER_SIZE) / header.getRecordSize();
+        long end = HEADER_SIZE + recordCount * header.getRecordSize();
+        channel.truncate(end);
+        channel.position(end);
+    }
+
+    /**
+     * Appends the round last evaluated by the calculator.
+     */
+    public void append(long round, int betAmount, int[] symbolIds, RewardCalculator calculator, double reward) throws IOException {
+        if (buffer.remaining() < header.getRecordSize()) {
+            flush();
+        }
+        final int start = buffer.position();
+        buffer.putLong(start + ROUND_OFFSET, round);
+        buffer.putDouble(start + REWARD_OFFSET, reward);
+        buffer.putInt(start + BET_OFFSET, betAmount);
+        final int bonusSymbol = calculator.getSelectedBonusSymbolId();
+        buffer.putShort(start + BONUS_OFFSET, (short) (bonusSymbol < 0 ? NO_BONUS_SYMBOL : bonusSymbol));
+        buffer.putShort(start + BONUS_OFFSET + 2, (short) 0);
+
+        for (int word = 0; word < header.getMaskWords(); word++) {
+            buffer.putLong(start + MASK_OFFSET + word * 8, 0L);
+        }
+        for (int i = 0; i < calculator.getAppliedCount(); i++) {
+            final int combination = calculator.getAppliedCombinationId(i);
+            final int index = start + MASK_OFFSET + (combination >>> 6) * 8;
+            buffer.putLong(index, buffer.getLong(index) | (1L << combination));
+        }
+
+        int position = start + gridOffset;
+        for (int symbol : symbolIds) {
+            if (cellBytes == 1) {
+                buffer.put(position, (byte) symbol);
+            } else {
+                buffer.putShort(position, (short) symbol);
+            }
+            position += cellBytes;
+        }
+        for (; position < start + header.getRecordSize(); position++) {
+            buffer.put(position, (byte) 0);
+        }
+
+        buffer.position(start + header.getRecordSize());
+        recordCount++;
+    }
+
+    /**
+     * Writes the batched records to the file.
+     */
+    public final void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Number of records in the log, including the ones still batched.
+     */
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    public RoundLogHeader getHeader() {
+        return header;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.cyberspeed;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Replays rounds from the seed and their number: round r draws from {@link GameRandom#startRound(long)},
+ * as played by {@link BatchPlayer} and by the games of a {@link GameRegistry}, so its grid and reward are
+ * regenerated exactly by {@link SymbolGenerator} and {@link RewardCalculator} with the config of that round.
+ * A replayed round can be printed or checked against a record of a {@link RoundLogReader round log}.
+ * An instance is not thread safe; {@link #verifyLog(RoundLogReader, GameModel, int)} uses one per task.
+ */
+public class RoundVerifier {
+
+    static final String CONFIG_HASH = "config_hash";
+    static final String VERIFIED = "verified";
+    static final String MISMATCHES = "mismatches";
+    static final String MISMATCHED_ROUNDS = "mismatched_rounds";
+    static final String ROUND = "round";
+    static final String REASON = "reason";
+
+    static final String GRID_DIFFERS = "grid differs";
+    static final String REWARD_DIFFERS = "reward differs";
+    static final String BONUS_SYMBOL_DIFFERS = "bonus symbol differs";
+    static final String COMBINATIONS_DIFFER = "winning combinations differ";
+
+    // -- only the first mismatches (in log order) are listed in the report, all are counted
+    static final int MAX_REPORTED_MISMATCHES = 100;
+    // -- records verified by one task of a parallel verification
+    static final int TASK_RECORDS = 1 << 16;
+
+    private final GameModel model;
+    private final GameRandom random;
+    private final SymbolGenerator generator;
+    private final RewardCalculator calculator;
+    private final int[] symbolIds;
+    private final int[] loggedSymbolIds;
+    private final boolean[] applied;
+    private double reward;
+
+    public RoundVerifier(GameModel model, GameRandom random) {
+        this.model = model;
+        this.random = random;
+        this.generator = new SymbolGenerator(model, random);
+        this.calculator = new RewardCalculator(model, random);
+        this.symbolIds = new int[model.getRows() * model.getColumns()];
+        this.loggedSymbolIds = new int[symbolIds.length];
+        this.applied = new boolean[model.getCombinationCount()];
+    }
+
+    /**
+     * Regenerates the grid of a round and calculates its reward for the bet.
+     */
+    public double replay(long round, int betAmount) {
+        random.startRound(round);
+        generator.generateSymbolIds(symbolIds);
+        reward = calculator.calculate(symbolIds, betAmount);
+        return reward;
+    }
+
+    /**
+     * Replays a round and writes its JSON document, as the CLI prints it, on one line.
+     */
+    public void replay(long round, int betAmount, OutputStream out) throws IOException {
+        replay(round, betAmount);
+        JsonRoundWriter writer = new JsonRoundWriter(model);
+        writer.writeLine(symbolIds, calculator, reward);
+        writer.writeTo(out);
+        out.flush();
+    }
+
+    /**
+     * Replays the round of a log record with its bet and compares the outcome with the record.
+     *
+     * @return null when the record is the replayed round, else what differs first
+     */
+    public String verify(RoundLogReader.Record record) {
+        replay(record.getRound(), record.getBet());
+
+        record.getSymbolIds(loggedSymbolIds);
+        for (int cell = 0; cell < symbolIds.length; cell++) {
+            if (symbolIds[cell] != loggedSymbolIds[cell]) {
+                return GRID_DIFFERS;
+            }
+        }
+        // -- the same draws give the same double, so rewards are compared bit for bit
+        if (Double.doubleToLongBits(reward) != Double.doubleToLongBits(record.getReward())) {
+            return REWARD_DIFFERS;
+        }
+        if (calculator.getSelectedBonusSymbolId() != record.getBonusSymbolId()) {
+            return BONUS_SYMBOL_DIFFERS;
+        }
+        for (int i = 0; i < calculator.getAppliedCount(); i++) {
+            applied[calculator.getAppliedCombinationId(i)] = true;
+        }
+        boolean same = true;
+        for (int combination = 0; combination < applied.length; combination++) {
+            same &= applied[combination] == record.hasCombination(combination);
+            applied[combination] = false;
+        }
+        return same ? null : COMBINATIONS_DIFFER;
+    }
+
+    /**
+     * Replays every record of a log with the seed and generator of its header, on 'threads' threads.
+     * The report counts the verified records and the mismatches, and lists the first mismatched rounds
+     * in log order whatever the number of threads.
+     *
+     * @param model the config the log was written for
+     */
+    public static JSONObject verifyLog(RoundLogReader reader, GameModel model, int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("threads must be positive");
+        }
+        final RoundLogHeader header = reader.getHeader();
+        if (!header.matches(model)) {
+            throw new IllegalArgumentException("Round log was written for another config.");
+        }
+
+        Result result;
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            result = pool.invoke(new VerifyTask(reader, model, 0, reader.getRecordCount()));
+        } catch (UncheckedIOException e) {
+            throw new IllegalArgumentException("Round log cannot be read: " + e.getCause().getMessage(), e);
+        } finally {
+            pool.shutdown();
+        }
+
+        JSONObject json = new JSONObject();
+        json.put(SimulationReport.SEED, header.getSeed());
+        json.put(CONFIG_HASH, Long.toHexString(header.getConfigHash()));
+        json.put(SimulationReport.ROUNDS, reader.getRecordCount());
+        json.put(VERIFIED, reader.getRecordCount() - result.mismatches);
+        json.put(MISMATCHES, result.mismatches);
+        JSONArray rounds = new JSONArray();
+        for (JSONObject mismatch : result.reported) {
+            rounds.put(mismatch);
+        }
+        json.put(MISMATCHED_ROUNDS, rounds);
+        return json;
+    }
+
+    private static final class Result {
+        private long mismatches;
+        private final List<JSONObject> reported = new ArrayList<>();
+
+        private void add(long round, String reason) {
+            if (reported.size() < MAX_REPORTED_MISMATCHES) {
+                reported.add(new JSONObject().put(ROUND, round).put(REASON, reason));
+            }
+            mismatches++;
+        }
+
+        private Result merge(Result next) {
+            for (JSONObject mismatch : next.reported) {
+                if (reported.size() == MAX_REPORTED_MISMATCHES) {
+                    break;
+                }
+                reported.add(mismatch);
+            }
+            mismatches += next.mismatches;
+            return this;
+        }
+    }
+
+    /**
+     * Splits the record range in halves down to {@link #TASK_RECORDS}, merging left then right.
+     */
+    @SuppressWarnings("serial") // -- fork/join tasks are never serialized
+    private static final class VerifyTask extends RecursiveTask<Result> {
+        private final RoundLogReader reader;
+        private final GameModel model;
+        private final long from;
+        private final long to;
+
+        VerifyTask(RoundLogReader reader, GameModel model, long from, long to) {
+            this.reader = reader;
+            this.model = model;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Result compute() {
+            if (to - from <= TASK_RECORDS) {
+                final RoundLogHeader header = reader.getHeader();
+                final RoundVerifier verifier = new RoundVerifier(model, new GameRandom(header.getAlgorithm(), header.getSeed()));
+                final Result result = new Result();
+                try {
+                    reader.forEach(from, to, record -> {
+                        final String reason = verifier.verify(record);
+                        if (reason != null) {
+                            result.add(record.getRound(), reason);
+                        }
+                    });
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return result;
+            }
+
+            long middle = (from + to) >>> 1;
+            VerifyTask left = new VerifyTask(reader, model, from, middle);
+            VerifyTask right = new VerifyTask(reader, model, middle, to);
+            right.fork();
+            Result result = left.compute();
+            return result.merge(right.join());
+        }
+    }
+}
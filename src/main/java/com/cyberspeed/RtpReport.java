@@ -0,0 +1,129 @@
+package com.cyberspeed;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * Result of an {@link RtpCalculator} run: expected reward, RTP, variance, hit frequency and the
+ * distribution of final rewards. Exact methods give exact values (up to floating point rounding);
+ * sampled ones also carry the standard error of the RTP estimate.
+ */
+public class RtpReport {
+    static final String METHOD = "method";
+    static final String EXACT = "exact";
+    static final String BET_AMOUNT = "bet_amount";
+    static final String EXPECTED_REWARD = "expected_reward";
+    static final String RTP = "rtp";
+    static final String RTP_STANDARD_ERROR = "rtp_standard_error";
+    static final String REWARD_VARIANCE = "reward_variance";
+    static final String REWARD_STD_DEV = "reward_std_dev";
+    static final String HIT_FREQUENCY = "hit_frequency";
+    static final String STATES = "states";
+    static final String SAMPLES = "samples";
+    static final String WIN_DISTRIBUTION = "win_distribution";
+
+    private final RtpCalculator.Method method;
+    private final int betAmount;
+    private final double expectedReward;
+    private final double expectedSquare;
+    private final double hitFrequency;
+    private final double rtpStandardError;
+    private final long states;
+    private final long samples;
+    private final SortedMap<Double, Double> distribution;
+
+    RtpReport(RtpCalculator.Method method, int betAmount, double expectedReward, double expectedSquare,
+              double hitFrequency, double rtpStandardError, long states, long samples,
+              SortedMap<Double, Double> distribution) {
+        this.method = method;
+        this.betAmount = betAmount;
+        this.expectedReward = expectedReward;
+        this.expectedSquare = expectedSquare;
+        this.hitFrequency = hitFrequency;
+        this.rtpStandardError = rtpStandardError;
+        this.states = states;
+        this.samples = samples;
+        this.distribution = distribution;
+    }
+
+    public RtpCalculator.Method getMethod() {
+        return method;
+    }
+
+    public boolean isExact() {
+        return samples == 0;
+    }
+
+    public double getExpectedReward() {
+        return expectedReward;
+    }
+
+    public double getRtp() {
+        return expectedReward / betAmount;
+    }
+
+    /**
+     * Standard error of the RTP, 0 for exact methods.
+     */
+    public double getRtpStandardError() {
+        return rtpStandardError;
+    }
+
+    public double getVariance() {
+        return Math.max(0, expectedSquare - expectedReward * expectedReward);
+    }
+
+    public double getStdDev() {
+        return Math.sqrt(getVariance());
+    }
+
+    public double getHitFrequency() {
+        return hitFrequency;
+    }
+
+    /**
+     * Number of count states or grids evaluated exactly.
+     */
+    public long getStates() {
+        return states;
+    }
+
+    public long getSamples() {
+        return samples;
+    }
+
+    /**
+     * Probability of each final reward, in ascending reward order. Estimated for sampled methods.
+     */
+    public SortedMap<Double, Double> getDistribution() {
+        return distribution;
+    }
+
+    public JSONObject toJson() {
+        JSONObject json = new JSONObject();
+        json.put(METHOD, method.name().toLowerCase());
+        json.put(EXACT, isExact());
+        json.put(BET_AMOUNT, betAmount);
+        json.put(EXPECTED_REWARD, expectedReward);
+        json.put(RTP, getRtp());
+        if (!isExact()) {
+            json.put(RTP_STANDARD_ERROR, rtpStandardError);
+        }
+        json.put(REWARD_VARIANCE, getVariance());
+        json.put(REWARD_STD_DEV, getStdDev());
+        json.put(HIT_FREQUENCY, hitFrequency);
+        json.put(STATES, states);
+        json.put(SAMPLES, samples);
+
+        // -- [reward, probability] pairs, ascending
+        JSONArray pairs = new JSONArray();
+        for (Map.Entry<Double, Double> entry : distribution.entrySet()) {
+            pairs.put(new JSONArray().put(entry.getKey()).put(entry.getValue()));
+        }
+        json.put(WIN_DISTRIBUTION, pairs);
+        return json;
+    }
+}
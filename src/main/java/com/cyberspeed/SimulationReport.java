@@ -0,0 +1,252 @@
+package com.cyberspeed;
+
+import org.json.JSONObject;
+
+/**
+ * Primitive accumulators of a simulation run: return to player, hit frequency, win distribution,
+ * per-combination trigger counts and bonus symbol impact. Recording a round does not allocate.
+ */
+public class SimulationReport {
+    static final String SEED = "seed";
+    static final String ROUNDS = "rounds";
+    static final String BET_AMOUNT = "bet_amount";
+    static final String TOTAL_BET = "total_bet";
+    static final String TOTAL_REWARD = "total_reward";
+    static final String RTP = "rtp";
+    static final String HIT_FREQUENCY = "hit_frequency";
+    static final String MAX_REWARD = "max_reward";
+    static final String REWARD_STD_DEV = "reward_std_dev";
+    static final String WIN_DISTRIBUTION = "win_distribution";
+    static final String COMBINATION_TRIGGERS = "combination_triggers";
+    static final String BONUS_SYMBOLS = "bonus_symbols";
+    static final String APPLIED = "applied";
+    static final String REWARD_IMPACT = "reward_impact";
+    static final String REWARD_CACHE = "reward_cache";
+    static final String HITS = "hits";
+    static final String MISSES = "misses";
+    static final String HIT_RATE = "hit_rate";
+    static final String BATCH_EVALUATION = "batch_evaluation";
+
+    // -- upper bounds (inclusive) of the win distribution buckets, as multiples of the bet
+    static final double[] WIN_BUCKETS = {0, 1, 2, 5, 10, 20, 50, 100, 500, 1000};
+
+    private final GameModel model;
+    private final int betAmount;
+    private final long seed;
+
+    private long rounds;
+    private long hits;
+    private double totalReward;
+    private double totalRewardSquares;
+    private double maxReward;
+    private final long[] winDistribution = new long[WIN_BUCKETS.length + 1];
+    private final long[] combinationTriggers;
+    private final long[] bonusApplied;
+    private final double[] bonusImpact;
+    private long cacheHits;
+    private long cacheMisses;
+    private BatchEvaluator.Method batchEvaluation;
+
+    public SimulationReport(GameModel model, int betAmount, long seed) {
+        this.model = model;
+        this.betAmount = betAmount;
+        this.seed = seed;
+        this.combinationTriggers = new long[model.getCombinationCount()];
+        this.bonusApplied = new long[model.getSymbolCount()];
+        this.bonusImpact = new double[model.getSymbolCount()];
+    }
+
+    /**
+     * Records the round last evaluated by the calculator.
+     */
+    public void record(double reward, RewardCalculator calculator) {
+        rounds++;
+        totalReward += reward;
+        totalRewardSquares += reward * reward;
+        if (reward > 0) {
+            hits++;
+        }
+        if (reward > maxReward) {
+            maxReward = reward;
+        }
+        winDistribution[bucketOf(reward / betAmount)]++;
+
+        for (int i = 0; i < calculator.getAppliedCount(); i++) {
+            combinationTriggers[calculator.getAppliedCombinationId(i)]++;
+        }
+
+        final int bonusSymbol = calculator.getSelectedBonusSymbolId();
+        if (bonusSymbol >= 0) {
+            bonusApplied[bonusSymbol]++;
+            bonusImpact[bonusSymbol] += reward - calculator.getBaseReward();
+        }
+    }
+
+    /**
+     * Adds the hit and miss counters of a shard's reward cache.
+     */
+    public void recordCache(RewardCache cache) {
+        cacheHits += cache.getHits();
+        cacheMisses += cache.getMisses();
+    }
+
+    /**
+     * Notes the batch evaluation the rounds were played with (null for round by round): it changes the rounds of a seed.
+     */
+    public void recordBatchEvaluation(BatchEvaluator.Method method) {
+        batchEvaluation = method;
+    }
+
+    private static int bucketOf(double multiple) {
+        for (int i = 0; i < WIN_BUCKETS.length; i++) {
+            if (multiple <= WIN_BUCKETS[i]) {
+                return i;
+            }
+        }
+        return WIN_BUCKETS.length;
+    }
+
+    /**
+     * Adds the accumulators of another report into this one.
+     */
+    public void merge(SimulationReport other) {
+        rounds += other.rounds;
+        hits += other.hits;
+        totalReward += other.totalReward;
+        totalRewardSquares += other.totalRewardSquares;
+        maxReward = Math.max(maxReward, other.maxReward);
+        for (int i = 0; i < winDistribution.length; i++) {
+            winDistribution[i] += other.winDistribution[i];
+        }
+        for (int i = 0; i < combinationTriggers.length; i++) {
+            combinationTriggers[i] += other.combinationTriggers[i];
+        }
+        for (int i = 0; i < bonusApplied.length; i++) {
+            bonusApplied[i] += other.bonusApplied[i];
+            bonusImpact[i] += other.bonusImpact[i];
+        }
+        cacheHits += other.cacheHits;
+        cacheMisses += other.cacheMisses;
+        if (batchEvaluation == null) {
+            batchEvaluation = other.batchEvaluation;
+        }
+    }
+
+    public long getRounds() {
+        return rounds;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public double getTotalReward() {
+        return totalReward;
+    }
+
+    public double getTotalRewardSquares() {
+        return totalRewardSquares;
+    }
+
+    public double getMaxReward() {
+        return maxReward;
+    }
+
+    public double getRtp() {
+        return rounds == 0 ? 0 : totalReward / ((double) rounds * betAmount);
+    }
+
+    public double getHitFrequency() {
+        return rounds == 0 ? 0 : (double) hits / rounds;
+    }
+
+    public long getCombinationTriggers(int combinationId) {
+        return combinationTriggers[combinationId];
+    }
+
+    public long getBonusApplied(int symbolId) {
+        return bonusApplied[symbolId];
+    }
+
+    public double getBonusImpact(int symbolId) {
+        return bonusImpact[symbolId];
+    }
+
+    public long getWinDistribution(int bucket) {
+        return winDistribution[bucket];
+    }
+
+    public long getCacheHits() {
+        return cacheHits;
+    }
+
+    public long getCacheMisses() {
+        return cacheMisses;
+    }
+
+    public JSONObject toJson() {
+        JSONObject json = new JSONObject();
+        json.put(SEED, seed);
+        json.put(ROUNDS, rounds);
+        json.put(BET_AMOUNT, betAmount);
+        json.put(TOTAL_BET, (double) rounds * betAmount);
+        json.put(TOTAL_REWARD, totalReward);
+        json.put(RTP, getRtp());
+        json.put(HIT_FREQUENCY, getHitFrequency());
+        json.put(MAX_REWARD, maxReward);
+        if (rounds > 0) {
+            double mean = totalReward / rounds;
+            json.put(REWARD_STD_DEV, Math.sqrt(Math.max(0, totalRewardSquares / rounds - mean * mean)));
+        }
+
+        JSONObject distribution = new JSONObject();
+        for (int i = 0; i < winDistribution.length; i++) {
+            distribution.put(bucketName(i), winDistribution[i]);
+        }
+        json.put(WIN_DISTRIBUTION, distribution);
+
+        JSONObject triggers = new JSONObject();
+        for (int i = 0; i < combinationTriggers.length; i++) {
+            triggers.put(model.getCombination(i).getName(), combinationTriggers[i]);
+        }
+        json.put(COMBINATION_TRIGGERS, triggers);
+
+        JSONObject bonuses = new JSONObject();
+        for (int i = 0; i < bonusApplied.length; i++) {
+            if (model.isBonusCandidate(i)) {
+                JSONObject bonus = new JSONObject();
+                bonus.put(APPLIED, bonusApplied[i]);
+                bonus.put(REWARD_IMPACT, bonusImpact[i]);
+                bonuses.put(model.getSymbolName(i), bonus);
+            }
+        }
+        json.put(BONUS_SYMBOLS, bonuses);
+
+        if (cacheHits + cacheMisses > 0) {
+            JSONObject cache = new JSONObject();
+            cache.put(HITS, cacheHits);
+            cache.put(MISSES, cacheMisses);
+            cache.put(HIT_RATE, (double) cacheHits / (cacheHits + cacheMisses));
+            json.put(REWARD_CACHE, cache);
+        }
+        if (batchEvaluation != null) {
+            json.put(BATCH_EVALUATION, batchEvaluation.name().toLowerCase());
+        }
+        return json;
+    }
+
+    // -- e.g. "0x", "(0x,1x]", ..., ">1000x"
+    private static String bucketName(int bucket) {
+        if (bucket == 0) {
+            return "0x";
+        }
+        if (bucket == WIN_BUCKETS.length) {
+            return ">" + formatMultiple(WIN_BUCKETS[bucket - 1]);
+        }
+        return "(" + formatMultiple(WIN_BUCKETS[bucket - 1]) + "," + formatMultiple(WIN_BUCKETS[bucket]) + "]";
+    }
+
+    private static String formatMultiple(double multiple) {
+        return (long) multiple + "x";
+    }
+}
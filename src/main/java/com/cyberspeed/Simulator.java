@@ -0,0 +1,166 @@
+package com.cyberspeed;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.random.RandomGenerator;
+
+/**
+ * Headless, high-throughput round loop for RTP and hit frequency estimation.
+ * Rounds go straight from {@link SymbolGenerator} to {@link RewardCalculator} over reusable
+ * buffers and are only aggregated into a {@link SimulationReport}; nothing is printed or
+ * serialized per round.
+ * <p>
+ * The round space is cut into fixed-size shards. Each shard owns its random stream
+ * ({@link GameRandom#forStream(long)} of the master seed and the shard index), its buffers and
+ * its report, and shard reports are merged in a fixed tree order. Results are therefore
+ * bit-identical for a given seed and shard size, whatever the number of threads.
+ * <p>
+ * With a batch evaluation, a shard draws the grids of {@link RoundBatch#DEFAULT_CAPACITY} rounds
+ * at once, lets a {@link BatchEvaluator} find the rounds that hit, and only evaluates those in full.
+ * Bonus symbols are then picked after the grids of the batch were drawn, so the rounds differ from
+ * a round by round simulation with the same seed; both evaluators give the same rounds.
+ */
+public class Simulator {
+
+    static final int DEFAULT_SHARD_SIZE = 1 << 20;
+
+    private final GameModel model;
+    private final int betAmount;
+    private final int threads;
+    private final int shardSize;
+    private final GameRandom.Algorithm algorithm;
+    private final int cacheSize;
+    private final BatchEvaluator.Method batchEvaluation;
+
+    public Simulator(GameModel model, int betAmount) {
+        this(model, betAmount, Runtime.getRuntime().availableProcessors(), DEFAULT_SHARD_SIZE);
+    }
+
+    public Simulator(GameModel model, int betAmount, int threads, int shardSize) {
+        this(model, betAmount, threads, shardSize, GameRandom.Algorithm.SPLITTABLE);
+    }
+
+    public Simulator(GameModel model, int betAmount, int threads, int shardSize, GameRandom.Algorithm algorithm) {
+        this(model, betAmount, threads, shardSize, algorithm, 0);
+    }
+
+    /**
+     * @param cacheSize entries of the {@link RewardCache} of each shard, 0 for no cache
+     */
+    public Simulator(GameModel model, int betAmount, int threads, int shardSize, GameRandom.Algorithm algorithm, int cacheSize) {
+        this(model, betAmount, threads, shardSize, algorithm, cacheSize, null);
+    }
+
+    /**
+     * @param batchEvaluation evaluator of the batches of rounds, null to play round by round; the model must fit
+     *                        a {@link RoundBatch} (see {@link BatchEvaluator.Method#auto(GameModel)})
+     */
+    public Simulator(GameModel model, int betAmount, int threads, int shardSize, GameRandom.Algorithm algorithm, int cacheSize,
+                     BatchEvaluator.Method batchEvaluation) {
+        if (threads <= 0 || shardSize <= 0) {
+            throw new IllegalArgumentException("threads and shard size must be positive");
+        }
+        if (batchEvaluation != null && !RoundBatch.supports(model)) {
+            throw new IllegalArgumentException("Batch evaluation supports up to " + RoundBatch.MAX_SYMBOLS + " symbols and "
+                    + RoundBatch.MAX_CELLS + " cells, the config has " + model.getSymbolCount() + " symbols and "
+                    + model.getRows() * model.getColumns() + " cells; simulate it round by round.");
+        }
+        if (batchEvaluation == BatchEvaluator.Method.VECTOR && !BatchEvaluator.isVectorAvailable()) {
+            throw new IllegalArgumentException("The vector evaluator needs the JVM option --add-modules " + BatchEvaluator.VECTOR_MODULE);
+        }
+        this.model = model;
+        this.betAmount = betAmount;
+        this.threads = threads;
+        this.shardSize = shardSize;
+        this.algorithm = algorithm;
+        this.cacheSize = cacheSize;
+        this.batchEvaluation = batchEvaluation;
+    }
+
+    public SimulationReport run(long rounds, long seed) {
+        final long shards = (rounds + shardSize - 1) / shardSize;
+        if (shards == 0) {
+            return new SimulationReport(model, betAmount, seed);
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            return pool.invoke(new ShardTask(rounds, new GameRandom(algorithm, seed), 0, shards));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Plays the rounds with the given random stream and records them into the report.
+     */
+    void runShard(long rounds, RandomGenerator rand, SimulationReport report) {
+        SymbolGenerator generator = new SymbolGenerator(model, rand);
+        RewardCache cache = cacheSize > 0 ? new RewardCache(model, cacheSize) : null;
+        RewardCalculator calculator = new RewardCalculator(model, rand, cache);
+        if (batchEvaluation != null) {
+            runBatches(rounds, generator, calculator, report);
+        } else {
+            int[] symbolIds = new int[model.getRows() * model.getColumns()];
+            for (long round = 0; round < rounds; round++) {
+                generator.generateSymbolIds(symbolIds);
+                double reward = calculator.calculate(symbolIds, betAmount);
+                report.record(reward, calculator);
+            }
+        }
+        if (cache != null) {
+            report.recordCache(cache);
+        }
+    }
+
+    private void runBatches(long rounds, SymbolGenerator generator, RewardCalculator calculator, SimulationReport report) {
+        RoundBatch batch = new RoundBatch(model);
+        BatchEvaluator evaluator = BatchEvaluator.create(batchEvaluation, model);
+        for (long played = 0; played < rounds; played += batch.getSize()) {
+            batch.generate(generator, (int) Math.min(batch.getCapacity(), rounds - played));
+            evaluator.evaluate(batch);
+            for (int round = 0; round < batch.getSize(); round++) {
+                double reward = calculator.calculate(batch, round, betAmount);
+                report.record(reward, calculator);
+            }
+        }
+    }
+
+    /**
+     * Splits the shard range in halves down to single shards, merging left then right.
+     * The tree only depends on the shard count, which keeps the merge order deterministic.
+     */
+    @SuppressWarnings("serial") // -- fork/join tasks are never serialized
+    private class ShardTask extends RecursiveTask<SimulationReport> {
+        private final long rounds;
+        private final GameRandom random;
+        private final long fromShard;
+        private final long toShard;
+
+        ShardTask(long rounds, GameRandom random, long fromShard, long toShard) {
+            this.rounds = rounds;
+            this.random = random;
+            this.fromShard = fromShard;
+            this.toShard = toShard;
+        }
+
+        @Override
+        protected SimulationReport compute() {
+            if (toShard - fromShard == 1) {
+                SimulationReport report = new SimulationReport(model, betAmount, random.getSeed());
+                report.recordBatchEvaluation(batchEvaluation);
+                long shardRounds = Math.min(shardSize, rounds - fromShard * shardSize);
+                runShard(shardRounds, random.forStream(fromShard), report);
+                return report;
+            }
+
+            long middle = (fromShard + toShard) >>> 1;
+            ShardTask left = new ShardTask(rounds, random, fromShard, middle);
+            ShardTask right = new ShardTask(rounds, random, middle, toShard);
+            right.fork();
+            SimulationReport report = left.compute();
+            report.merge(right.join());
+            return report;
+        }
+    }
+}
@@ -1,75 +1,42 @@
 package com.cyberspeed;
 
-import org.json.JSONArray;
-import org.json.JSONObject;
-
-import java.util.*;
-
-import static com.cyberspeed.ConfigConst.*;
+import java.util.random.RandomGenerator;
 
 public class SymbolGenerator {
-    private JSONObject config;
-    private Random rand;
+    private GameModel model;
+    private RandomGenerator rand;
 
-    public SymbolGenerator(JSONObject config, Random rand) {
-        this.config = config;
+    public SymbolGenerator(GameModel model, RandomGenerator rand) {
+        this.model = model;
         this.rand = rand;
     }
 
     public String[][] generateMatrix(int rows, int columns) {
         String[][] matrix = new String[rows][columns];
 
-        JSONObject probabilities = config.getJSONObject(PROBABILITIES);
-        JSONArray standardSymbols = probabilities.getJSONArray(STANDARD_SYMBOLS);
-        JSONObject bonusSymbols = probabilities.getJSONObject(BONUS_SYMBOLS).getJSONObject(SYMBOLS);
-
         for (int i = 0; i < rows; i++) {
             for (int j = 0; j < columns; j++) {
-                matrix[i][j] = getRandomSymbol(standardSymbols, i, j, bonusSymbols);
+                matrix[i][j] = model.getSymbolName(getRandomSymbol(i, j));
             }
         }
         return matrix;
     }
 
     /**
-     * This will derive Probabilities and symbols from both 'symbols' & 'bonusSymbols'.
-     * It will forward those 'symbolWeights' hash map into 'weightedRandomChoice()'
-     * method to get random symbol according to the weights.
+     * Fills a reusable flat (row-major) buffer of symbol ids instead of allocating a new matrix of names.
      */
-    private String getRandomSymbol(JSONArray standardSymbols, int row, int col, JSONObject bonusSymbols) {
-
-
-        Map<String, Integer> symbolWeights = new HashMap<>();
-        JSONObject cellProbabilities = standardSymbols.optJSONObject(row * col);
-
-        if (cellProbabilities == null) {
-            cellProbabilities = standardSymbols.getJSONObject(0); // Default to first entry if not found
+    public void generateSymbolIds(int[] symbolIds) {
+        final SymbolSampler[] cellSamplers = model.getCellSamplers();
+        for (int cell = 0; cell < cellSamplers.length; cell++) {
+            symbolIds[cell] = cellSamplers[cell].sample(rand);
         }
-
-        JSONObject symbols = cellProbabilities.getJSONObject(SYMBOLS);
-        for (String key : symbols.keySet()) {
-            symbolWeights.put(key, symbols.getInt(key));
-        }
-
-        for (String key : bonusSymbols.keySet()) {
-            symbolWeights.put(key, bonusSymbols.getInt(key));
-        }
-
-        return weightedRandomChoice(symbolWeights);
     }
 
     /**
-     * This will create weighted pool like bellow
-     * ["A", "A", "A", "A", "A", "B", "B", "B", "C", "C"]
-     * and pick and return one of them randomly
+     * This will pick the precomputed sampler (standard symbols merged with bonus symbols)
+     * of the cell and draw a random symbol id according to the weights.
      */
-    private String weightedRandomChoice(Map<String, Integer> symbolWeights) {
-        List<String> pool = new ArrayList<>();
-        for (Map.Entry<String, Integer> entry : symbolWeights.entrySet()) {
-            for (int i = 0; i < entry.getValue(); i++) {
-                pool.add(entry.getKey());
-            }
-        }
-        return pool.get(rand.nextInt(pool.size()));
+    private int getRandomSymbol(int row, int col) {
+        return model.getCellSamplers()[row * model.getColumns() + col].sample(rand);
     }
 }
@@ -0,0 +1,132 @@
+package com.cyberspeed;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.random.RandomGenerator;
+
+/**
+ * Precomputed weighted choice over a fixed set of symbol ids.
+ * Built once per weight table, a draw does not allocate and returns a symbol id.
+ */
+public abstract class SymbolSampler {
+
+    public enum Method {
+        /**
+         * Walker/Vose alias table, O(1) per draw.
+         */
+        ALIAS,
+        /**
+         * Cumulative weights with binary search, O(log n) per draw.
+         */
+        CUMULATIVE
+    }
+
+    final int[] symbols;
+    final long totalWeight;
+
+    private SymbolSampler(int[] symbols, int[] weights) {
+        if (symbols.length != weights.length || symbols.length == 0) {
+            throw new IllegalArgumentException("Symbols and weights must be non-empty and of the same length.");
+        }
+        long total = 0;
+        for (int weight : weights) {
+            if (weight < 0) {
+                throw new IllegalArgumentException("Symbol weights cannot be negative.");
+            }
+            total += weight;
+        }
+        if (total <= 0) {
+            throw new IllegalArgumentException("Symbol weights must add up to a positive value.");
+        }
+        this.symbols = symbols.clone();
+        this.totalWeight = total;
+    }
+
+    public static SymbolSampler create(Method method, int[] symbols, int[] weights) {
+        return method == Method.ALIAS ? new AliasSampler(symbols, weights) : new CumulativeSampler(symbols, weights);
+    }
+
+    public abstract int sample(RandomGenerator rand);
+
+    private static final class AliasSampler extends SymbolSampler {
+        // -- thresholds are scaled by 'totalWeight' so the table stays exact for integer weights
+        private final long[] thresholds;
+        private final int[] aliases;
+
+        private AliasSampler(int[] symbols, int[] weights) {
+            super(symbols, weights);
+            final int n = weights.length;
+            thresholds = new long[n];
+            aliases = new int[n];
+
+            long[] scaled = new long[n];
+            Deque<Integer> small = new ArrayDeque<>();
+            Deque<Integer> large = new ArrayDeque<>();
+            for (int i = 0; i < n; i++) {
+                scaled[i] = (long) weights[i] * n;
+                aliases[i] = i;
+                if (scaled[i] < totalWeight) {
+                    small.push(i);
+                } else {
+                    large.push(i);
+                }
+            }
+
+            while (!small.isEmpty() && !large.isEmpty()) {
+                int less = small.pop();
+                int more = large.pop();
+                thresholds[less] = scaled[less];
+                aliases[less] = more;
+                scaled[more] = scaled[more] + scaled[less] - totalWeight;
+                if (scaled[more] < totalWeight) {
+                    small.push(more);
+                } else {
+                    large.push(more);
+                }
+            }
+            while (!large.isEmpty()) {
+                thresholds[large.pop()] = totalWeight;
+            }
+            while (!small.isEmpty()) {
+                thresholds[small.pop()] = totalWeight;
+            }
+        }
+
+        @Override
+        public int sample(RandomGenerator rand) {
+            int column = rand.nextInt(thresholds.length);
+            return rand.nextLong(totalWeight) < thresholds[column] ? symbols[column] : symbols[aliases[column]];
+        }
+    }
+
+    private static final class CumulativeSampler extends SymbolSampler {
+        private final long[] cumulativeWeights;
+
+        private CumulativeSampler(int[] symbols, int[] weights) {
+            super(symbols, weights);
+            cumulativeWeights = new long[weights.length];
+            long sum = 0;
+            for (int i = 0; i < weights.length; i++) {
+                sum += weights[i];
+                cumulativeWeights[i] = sum;
+            }
+        }
+
+        @Override
+        public int sample(RandomGenerator rand) {
+            long target = rand.nextLong(totalWeight);
+            // -- first index whose cumulative weight is above the target
+            int low = 0;
+            int high = cumulativeWeights.length - 1;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (cumulativeWeights[mid] > target) {
+                    high = mid;
+                } else {
+                    low = mid + 1;
+                }
+            }
+            return symbols[low];
+        }
+    }
+}
@@ -0,0 +1,130 @@
+import com.cyberspeed.BatchEvaluator;
+import com.cyberspeed.GameModel;
+import com.cyberspeed.GameRandom;
+import com.cyberspeed.RewardCalculator;
+import com.cyberspeed.RoundBatch;
+import com.cyberspeed.SimulationReport;
+import com.cyberspeed.Simulator;
+import com.cyberspeed.SymbolGenerator;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BatchEvaluatorTest {
+
+    private static String CONFIG_3x3_FILE_PATH = "src/test/resources/config_3x3.json";
+
+    private static GameModel resized(Path directory, int rows, int columns) throws Exception {
+        JSONObject config = new JSONObject(Files.readString(Path.of(CONFIG_3x3_FILE_PATH)));
+        config.put("rows", rows).put("columns", columns);
+        Path path = directory.resolve("config_" + rows + "x" + columns + ".json");
+        Files.writeString(path, config.toString());
+        return GameModel.load(path.toString());
+    }
+
+    // Test 1: Both evaluators mark exactly the rounds a full evaluation finds a combination in
+    @Test
+    public void testEvaluatorsMarkWinningRounds(@TempDir Path directory) throws Exception {
+        assertTrue(BatchEvaluator.isVectorAvailable(), "tests run with --add-modules jdk.incubator.vector");
+
+        for (GameModel model : new GameModel[]{GameModel.load(CONFIG_3x3_FILE_PATH), resized(directory, 4, 4), resized(directory, 10, 10)}) {
+            // -- a capacity that is not a multiple of the vector length, and a last batch that is not full
+            RoundBatch batch = new RoundBatch(model, 300);
+            BatchEvaluator scalar = BatchEvaluator.create(BatchEvaluator.Method.SCALAR, model);
+            BatchEvaluator vector = BatchEvaluator.create(BatchEvaluator.Method.VECTOR, model);
+            SymbolGenerator generator = new SymbolGenerator(model, new SplittableRandom(model.getRows()));
+            RewardCalculator calculator = new RewardCalculator(model, new SplittableRandom(1));
+            int[] grid = new int[model.getRows() * model.getColumns()];
+
+            long hits = 0;
+            for (int rounds : new int[]{batch.getCapacity(), batch.getCapacity(), 77}) {
+                batch.generate(generator, rounds);
+                assertEquals(rounds, batch.getSize());
+
+                scalar.evaluate(batch);
+                boolean[] scalarHits = new boolean[rounds];
+                for (int round = 0; round < rounds; round++) {
+                    scalarHits[round] = batch.isHit(round);
+                }
+                vector.evaluate(batch);
+                for (int round = 0; round < rounds; round++) {
+                    assertEquals(scalarHits[round], batch.isHit(round), model.getRows() + "x" + model.getColumns() + " round " + round);
+
+                    batch.copyRound(round, grid);
+                    calculator.calculate(grid, 100);
+                    assertEquals(calculator.getAppliedCount() > 0, batch.isHit(round));
+                    hits += batch.isHit(round) ? 1 : 0;
+                }
+            }
+            assertTrue(hits > 0);
+        }
+    }
+
+    // Test 2: Batched simulations agree between evaluators and thread counts, and with round by round play
+    @Test
+    public void testBatchedSimulation() throws Exception {
+        GameModel model = GameModel.load(CONFIG_3x3_FILE_PATH);
+        final long rounds = 1_000_000;
+
+        SimulationReport scalar = new Simulator(model, 100, 1, 100_000, GameRandom.Algorithm.SPLITTABLE, 0,
+                BatchEvaluator.Method.SCALAR).run(rounds, 11);
+        SimulationReport vector = new Simulator(model, 100, 4, 100_000, GameRandom.Algorithm.SPLITTABLE, 0,
+                BatchEvaluator.Method.VECTOR).run(rounds, 11);
+        SimulationReport plain = new Simulator(model, 100, 4, 100_000).run(rounds, 11);
+
+        JSONObject scalarJson = scalar.toJson();
+        JSONObject vectorJson = vector.toJson();
+        assertEquals("scalar", scalarJson.remove("batch_evaluation"));
+        assertEquals("vector", vectorJson.remove("batch_evaluation"));
+        assertEquals(scalarJson.toString(), vectorJson.toString());
+        assertFalse(plain.toJson().has("batch_evaluation"));
+
+        assertEquals(rounds, vector.getRounds());
+        // -- the bonus draws come in another order, so only the statistics agree (reward std dev about 33.5 bets)
+        assertEquals(plain.getRtp(), vector.getRtp(), 5 * 33.5 / Math.sqrt(rounds) * Math.sqrt(2));
+        assertEquals(plain.getHitFrequency(), vector.getHitFrequency(), 0.005);
+    }
+
+    // Test 3: Batches refuse grids beyond byte counters, and evaluation names are parsed
+    @Test
+    public void testLimitsAndNames(@TempDir Path directory) throws Exception {
+        GameModel large = resized(directory, 16, 16);
+        assertThrows(IllegalArgumentException.class, () -> new RoundBatch(large));
+
+        GameModel model = GameModel.load(CONFIG_3x3_FILE_PATH);
+        RoundBatch batch = new RoundBatch(model, 10);
+        assertEquals(64, batch.getCapacity());
+        assertThrows(IllegalArgumentException.class,
+                () -> batch.generate(new SymbolGenerator(model, new SplittableRandom(1)), 65));
+
+        assertEquals(BatchEvaluator.Method.SCALAR, BatchEvaluator.Method.of("scalar"));
+        assertEquals(BatchEvaluator.Method.VECTOR, BatchEvaluator.Method.of("auto"));
+        assertEquals(BatchEvaluator.Method.VECTOR, BatchEvaluator.create(model).getMethod());
+        assertThrows(IllegalArgumentException.class, () -> BatchEvaluator.Method.of("gpu"));
+    }
+
+    // Test 4: A grid over the batch limits is refused when the simulator is built, and "auto" plays it round by round
+    @Test
+    public void testAutoFallsBackForLargeGrids(@TempDir Path directory) throws Exception {
+        GameModel large = resized(directory, 16, 16);
+        for (BatchEvaluator.Method method : BatchEvaluator.Method.values()) {
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                    () -> new Simulator(large, 100, 2, 1000, GameRandom.Algorithm.SPLITTABLE, 0, method));
+            assertTrue(e.getMessage().contains("256 cells"), e.getMessage());
+        }
+
+        assertNull(BatchEvaluator.Method.auto(large));
+        assertEquals(BatchEvaluator.Method.VECTOR, BatchEvaluator.Method.auto(GameModel.load(CONFIG_3x3_FILE_PATH)));
+        SimulationReport report = new Simulator(large, 100, 2, 1000, GameRandom.Algorithm.SPLITTABLE, 0,
+                BatchEvaluator.Method.auto(large)).run(3000, 4);
+        assertEquals(3000, report.getRounds());
+        assertEquals(new Simulator(large, 100, 1, 1000).run(3000, 4).toJson().toString(), report.toJson().toString());
+        assertFalse(report.toJson().has("batch_evaluation"));
+    }
+}
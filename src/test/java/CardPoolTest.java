@@ -0,0 +1,110 @@
+import com.cyberspeed.CardPool;
+import com.cyberspeed.GameModel;
+import com.cyberspeed.GameRandom;
+import com.cyberspeed.GameRegistry;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CardPoolTest {
+
+    private static String CONFIG_3x3_FILE_PATH = "src/test/resources/config_3x3.json";
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + 20_000_000_000L;
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertTrue(condition.getAsBoolean(), "Timed out");
+    }
+
+    // Test 1: A card served from the pool is the round replayed from the seed, the game and its number
+    @Test
+    public void testCardsAreReplayableRounds() throws Exception {
+        GameModel model = GameModel.load(CONFIG_3x3_FILE_PATH);
+        try (GameRegistry pooled = new GameRegistry(new GameRandom(GameRandom.Algorithm.L64X128_MIX, 11));
+             GameRegistry reference = new GameRegistry(new GameRandom(GameRandom.Algorithm.L64X128_MIX, 11))) {
+            GameRegistry.Variant variant = pooled.register("classic", model);
+            GameRegistry.Variant replayed = reference.register("classic", model);
+            pooled.enableCardPools(new int[]{100}, 64, 16, 2);
+            CardPool pool = variant.getCardPool(100);
+            await(() -> pool.getSize() == 64);
+
+            Set<Long> rounds = new HashSet<>();
+            for (int i = 0; i < 300; i++) {
+                CardPool.Card card = variant.deal(100);
+                assertTrue(rounds.add(card.round()), "Round dealt twice: " + card.round());
+                JSONObject expected = new JSONObject(replayed.play(model, card.round(), 100));
+                assertTrue(expected.similar(new JSONObject(card.output())), expected + "\n" + card.output());
+            }
+            assertEquals(300, pool.getServed() + pool.getMisses());
+            assertEquals(300, variant.getMetrics().getRounds());
+            assertEquals(300 * 100, variant.getMetrics().getTotalBet());
+        }
+    }
+
+    // Test 2: Taking below the low-water mark refills the pool, bets without a pool are played on request
+    @Test
+    public void testRefillAtLowWater() throws Exception {
+        try (GameRegistry registry = new GameRegistry(new GameRandom(3))) {
+            registry.enableCardPools(new int[]{10, 100}, 200, 50, 1);
+            GameRegistry.Variant variant = registry.register("classic", GameModel.load(CONFIG_3x3_FILE_PATH));
+            CardPool pool = variant.getCardPool(10);
+            await(() -> pool.getSize() == 200 && variant.getCardPool(100).getSize() == 200);
+
+            for (int i = 0; i < 160; i++) {
+                registry.play("classic", 10);
+            }
+            // -- 40 cards would be left without a refill; takes after the refill ends may leave fewer than 200
+            await(() -> pool.getSize() >= 50);
+            assertEquals(160, pool.getServed());
+            assertEquals(0, pool.getMisses());
+
+            assertNull(variant.getCardPool(50));
+            registry.play("classic", 50);
+            assertEquals(161, variant.getMetrics().getRounds());
+            assertEquals(160, variant.toJson().getJSONObject("card_pools").getJSONObject("10").getLong("served"));
+            assertThrows(IllegalArgumentException.class, () -> new CardPool(variant, 10, 10, 11, Runnable::run));
+        }
+    }
+
+    // Test 3: Cards of a config that was reloaded are drained on reload and their rounds reported, only the new version is served
+    @Test
+    public void testReloadDropsCards(@TempDir Path directory) throws Exception {
+        JSONObject config = new JSONObject(Files.readString(Path.of(CONFIG_3x3_FILE_PATH)));
+        Path configPath = directory.resolve("classic.json");
+        Files.writeString(configPath, config.toString());
+
+        try (GameRegistry registry = new GameRegistry(new GameRandom(5))) {
+            GameRegistry.Variant variant = registry.watch("classic", configPath);
+            registry.enableCardPools(new int[]{100}, 32, 0, 1);
+            CardPool pool = variant.getCardPool(100);
+            await(() -> pool.getSize() == 32);
+
+            config.getJSONObject("symbols").getJSONObject("A").put("reward_multiplier", 50);
+            Files.writeString(configPath, config.toString());
+            await(() -> variant.getModel().getVersion() == 2);
+
+            // -- drained by the reload, not by a take
+            await(() -> pool.getDiscarded() == 32 && pool.getSize() == 32);
+            assertEquals(1, pool.getDiscardedRounds().size());
+            assertArrayEquals(new long[]{0, 31}, pool.getDiscardedRounds().getFirst());
+
+            CardPool.Card card = variant.deal(100);
+            assertEquals(2, card.model().getVersion());
+            assertEquals(2, new JSONObject(card.output()).getInt("config_version"));
+            assertTrue(card.round() >= 32);
+            assertEquals(32, pool.getDiscarded());
+            assertEquals(1, pool.getServed());
+            assertEquals("[[0,31]]", pool.toJson().getJSONArray("discarded_rounds").toString());
+        }
+    }
+}
@@ -0,0 +1,164 @@
+import com.cyberspeed.ConfigError;
+import com.cyberspeed.ConfigException;
+import com.cyberspeed.ConfigValidator;
+import com.cyberspeed.GameModel;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConfigValidatorTest {
+
+    private static String CONFIG_3x3_FILE_PATH = "src/test/resources/config_3x3.json";
+
+    private static JSONObject config3x3() throws Exception {
+        return new JSONObject(Files.readString(Path.of(CONFIG_3x3_FILE_PATH)));
+    }
+
+    // Test 1: Every error is reported at once, with the JSON path of the value
+    @Test
+    public void testErrorsHaveJsonPaths(@TempDir Path directory) throws Exception {
+        JSONObject config = config3x3();
+        config.getJSONObject("symbols").getJSONObject("A").put("reward_multiplier", "5");
+        config.getJSONObject("symbols").getJSONObject("10x").put("impact", "divide_reward");
+        config.getJSONObject("probabilities").getJSONArray("standard_symbols").getJSONObject(4)
+                .getJSONObject("symbols").put("Z", 1).put("A", -1);
+        config.getJSONObject("win_combinations").getJSONObject("same_symbols_vertically")
+                .getJSONArray("covered_areas").getJSONArray(1).put(2, "3:1");
+        config.getJSONObject("win_combinations").put("same symbols twice", new JSONObject()
+                .put("reward_multiplier", 1).put("when", "same_symbols"));
+
+        List<ConfigError> expected = List.of(
+                new ConfigError("$.symbols.A.reward_multiplier", "must be a number"),
+                new ConfigError("$.symbols['10x'].impact", "invalid bonus impact: divide_reward"),
+                new ConfigError("$.probabilities.standard_symbols[4].symbols.Z", "is not in symbols"),
+                new ConfigError("$.probabilities.standard_symbols[4].symbols.A", "cannot be negative"),
+                new ConfigError("$.win_combinations.same_symbols_vertically.covered_areas[1][2]", "3:1 is out of bounds."),
+                new ConfigError("$.win_combinations['same symbols twice'].count", "is missing"));
+
+        ConfigValidator validator = new ConfigValidator(config.toString());
+        ConfigException exception = assertThrows(ConfigException.class, validator::validate);
+        assertEquals(expected.size(), exception.getErrors().size(), exception.getMessage());
+        assertTrue(exception.getErrors().containsAll(expected), exception.getMessage());
+        assertEquals(exception.getErrors(), validator.getErrors());
+
+        // -- loading goes through the same checks
+        Path path = directory.resolve("config.json");
+        Files.writeString(path, config.toString());
+        assertEquals(exception.getErrors(), assertThrows(ConfigException.class, () -> GameModel.load(path.toString())).getErrors());
+        assertThrows(ConfigException.class, () -> new GameModel(config));
+
+        ConfigValidator valid = new ConfigValidator(config3x3());
+        valid.validate();
+        assertTrue(valid.getErrors().isEmpty());
+    }
+
+    // Test 2: Syntax errors are reported at the path of the value being read, with its line and column
+    @Test
+    public void testSyntaxErrors() {
+        String text = """
+                {
+                  "rows": 3,
+                  "symbols": {
+                    "A": {"reward_multiplier": 5, "type": standard}
+                  }
+                }""";
+        ConfigValidator validator = new ConfigValidator(text);
+        ConfigException exception = assertThrows(ConfigException.class, validator::validate);
+        assertEquals(List.of(new ConfigError("$.symbols.A.type", "Expected a value at line 4, column 43")), exception.getErrors());
+
+        ConfigError duplicate = assertThrows(ConfigException.class,
+                () -> new ConfigValidator("{\"rows\": 3, \"rows\": 4}").validate()).getErrors().get(0);
+        assertEquals("$.rows", duplicate.path());
+        assertEquals(List.of(new ConfigError("$", "A config must be a JSON object at line 1, column 1")),
+                assertThrows(ConfigException.class, () -> new ConfigValidator("[]").validate()).getErrors());
+    }
+
+    // Test 3: Read and compiled in one pass, a config gives the model org.json gives, and a hash of its content
+    @Test
+    public void testCompiledModel(@TempDir Path directory) throws Exception {
+        JSONObject config = config3x3();
+        Path pretty = directory.resolve("pretty.json");
+        Files.writeString(pretty, config.toString(4));
+        GameModel model = GameModel.load(pretty.toString());
+        GameModel reference = new GameModel(config);
+
+        assertEquals(reference.getSymbolCount(), model.getSymbolCount());
+        for (int symbol = 0; symbol < model.getSymbolCount(); symbol++) {
+            assertEquals(reference.getSymbolName(symbol), model.getSymbolName(symbol));
+            assertEquals(reference.getRewardMultiplier(symbol), model.getRewardMultiplier(symbol));
+        }
+        for (int combination = 0; combination < model.getCombinationCount(); combination++) {
+            assertEquals(reference.getCombination(combination).getName(), model.getCombination(combination).getName());
+            assertEquals(reference.getCombination(combination).getLineCount(), model.getCombination(combination).getLineCount());
+        }
+        // -- formatting does not change the hash, content does
+        assertEquals(reference.getConfigHash(), model.getConfigHash());
+        config.getJSONObject("win_combinations").getJSONObject("same_symbols_horizontally")
+                .getJSONArray("covered_areas").put(0, new JSONArray().put("0:0").put("0:2").put("0:1"));
+        assertNotEquals(reference.getConfigHash(), new GameModel(config).getConfigHash());
+    }
+
+    // Test 4: A dimension that is not positive is reported, the rest of the config is still checked against an empty grid
+    @Test
+    public void testNonPositiveDimensions() throws Exception {
+        JSONObject config = config3x3();
+        config.put("rows", -1);
+        for (ConfigValidator validator : new ConfigValidator[]{new ConfigValidator(config.toString()), new ConfigValidator(config)}) {
+            ConfigException exception = assertThrows(ConfigException.class, validator::validate);
+            assertTrue(exception.getErrors().contains(new ConfigError("$.rows", "must be positive")), exception.getMessage());
+        }
+
+        config.put("rows", 3).put("columns", 0);
+        ConfigException exception = assertThrows(ConfigException.class, () -> new ConfigValidator(config.toString()).validate());
+        assertTrue(exception.getErrors().contains(new ConfigError("$.columns", "must be positive")), exception.getMessage());
+    }
+
+    // Test 5: Text org.json accepts but strict JSON does not is a syntax error, and still validates once read by org.json
+    @Test
+    public void testStrictJson() throws Exception {
+        String text = config3x3().toString();
+        String[] lenient = {
+                text.replace("\"rows\":3", "rows:3"),
+                text.replace("\"rows\":3", "'rows':3"),
+                text.substring(0, text.length() - 1) + ",}",
+                text.replace("\"type\":\"standard\"", "\"type\":standard")};
+        for (String config : lenient) {
+            List<ConfigError> errors = assertThrows(ConfigException.class, () -> new ConfigValidator(config).validate()).getErrors();
+            assertEquals(1, errors.size());
+            assertTrue(errors.get(0).message().matches(".* at line 1, column \\d+"), errors.toString());
+
+            new ConfigValidator(new JSONObject(config)).validate();
+        }
+    }
+
+    // Test 6: A config given as text or as org.json values is read into the same values, so its errors come in the same order
+    @Test
+    public void testTextAndObjectAgree() throws Exception {
+        JSONObject config = config3x3();
+        config.put("rows", 3L).put("columns", new BigInteger("3"));
+        config.getJSONObject("symbols").getJSONObject("A").put("reward_multiplier", new BigDecimal("5.5"));
+        config.getJSONObject("symbols").getJSONObject("B").put("reward_multiplier", "3");
+        config.getJSONObject("symbols").getJSONObject("MISS").put("type", 3);
+        config.getJSONObject("symbols").getJSONObject("10x").put("impact", "divide_reward");
+        config.getJSONObject("probabilities").getJSONArray("standard_symbols").getJSONObject(2)
+                .getJSONObject("symbols").put("A", 2.5).put("B", 4L).put("Z", 1);
+        config.getJSONObject("win_combinations").getJSONObject("same_symbol_3_times").put("count", 3L);
+        config.getJSONObject("win_combinations").getJSONObject("same_symbol_5_times").put("count", "5");
+        config.getJSONObject("win_combinations").getJSONObject("same_symbols_vertically").put("reward_multiplier", JSONObject.NULL);
+
+        List<ConfigError> fromText = assertThrows(ConfigException.class, () -> new ConfigValidator(config.toString()).validate()).getErrors();
+        List<ConfigError> fromObject = assertThrows(ConfigException.class, () -> new ConfigValidator(config).validate()).getErrors();
+        assertEquals(7, fromText.size(), fromText.toString());
+        assertEquals(fromText, fromObject);
+        assertTrue(fromText.contains(new ConfigError("$.probabilities.standard_symbols[2].symbols.A", "must be an integer")), fromText.toString());
+    }
+}
@@ -0,0 +1,98 @@
+import com.cyberspeed.ConfigError;
+import com.cyberspeed.ConfigWatcher;
+import com.cyberspeed.GameModel;
+import com.cyberspeed.PuzzleGame;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConfigWatcherTest {
+
+    private static String CONFIG_3x3_FILE_PATH = "src/test/resources/config_3x3.json";
+
+    // -- config_3x3 with another reward multiplier for symbol A
+    private static String withMultiplierOfA(double multiplier) throws Exception {
+        JSONObject config = new JSONObject(Files.readString(Path.of(CONFIG_3x3_FILE_PATH)));
+        config.getJSONObject("symbols").getJSONObject("A").put("reward_multiplier", multiplier);
+        return config.toString();
+    }
+
+    // Test 1: A reload swaps in a new version while snapshots taken before keep the old one
+    @Test
+    public void testReloadSwapsVersion(@TempDir Path directory) throws Exception {
+        Path configPath = directory.resolve("config.json");
+        Files.writeString(configPath, withMultiplierOfA(5));
+
+        try (ConfigWatcher watcher = new ConfigWatcher(configPath)) {
+            GameModel before = watcher.getModel();
+            assertEquals(1, watcher.getVersion());
+            assertFalse(watcher.reload(), "An unchanged config is not a new version");
+
+            Files.writeString(configPath, withMultiplierOfA(50));
+            assertTrue(watcher.reload());
+
+            GameModel after = watcher.getModel();
+            assertEquals(2, after.getVersion());
+            assertEquals(1, before.getVersion());
+            assertEquals(5, before.getRewardMultiplier(before.getSymbolId("A")));
+            assertEquals(50, after.getRewardMultiplier(after.getSymbolId("A")));
+
+            JSONObject oldRound = new JSONObject(new PuzzleGame(before, new SplittableRandom(1)).playRound(100));
+            JSONObject newRound = new JSONObject(new PuzzleGame(after, new SplittableRandom(1)).playRound(100));
+            assertEquals(1, oldRound.getInt("config_version"));
+            assertEquals(2, newRound.getInt("config_version"));
+        }
+    }
+
+    // Test 2: An invalid config is refused with its errors by JSON path and the current version stays in service
+    @Test
+    public void testInvalidConfigKeepsVersion(@TempDir Path directory) throws Exception {
+        Path configPath = directory.resolve("config.json");
+        Files.writeString(configPath, withMultiplierOfA(5));
+
+        try (ConfigWatcher watcher = new ConfigWatcher(configPath)) {
+            GameModel before = watcher.getModel();
+
+            Files.writeString(configPath, "{\"rows\": 3");
+            assertFalse(watcher.reload());
+            assertEquals(List.of(new ConfigError("$", "Unexpected end of text at line 1, column 11")), watcher.getLastErrors());
+
+            JSONObject config = new JSONObject(withMultiplierOfA(5));
+            config.put("rows", -1);
+            Files.writeString(configPath, config.toString());
+            assertFalse(watcher.reload());
+            assertEquals(List.of(new ConfigError("$.rows", "must be positive")), watcher.getLastErrors());
+            assertEquals("[$.rows: must be positive]", watcher.getLastError());
+
+            assertSame(before, watcher.getModel());
+            assertEquals(1, watcher.getVersion());
+        }
+    }
+
+    // Test 3: The watch thread picks up a change of the file
+    @Test
+    public void testWatchPicksUpChange(@TempDir Path directory) throws Exception {
+        Path configPath = directory.resolve("config.json");
+        Files.writeString(configPath, withMultiplierOfA(5));
+
+        try (ConfigWatcher watcher = new ConfigWatcher(configPath)) {
+            watcher.start();
+            Files.writeString(configPath, withMultiplierOfA(7));
+
+            long deadline = System.nanoTime() + 20_000_000_000L;
+            while (watcher.getVersion() == 1 && System.nanoTime() < deadline) {
+                Thread.sleep(20);
+            }
+            assertEquals(2, watcher.getVersion());
+            assertNull(watcher.getLastError());
+            assertTrue(watcher.getLastErrors().isEmpty());
+        }
+    }
+}
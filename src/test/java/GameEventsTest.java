@@ -0,0 +1,120 @@
+import com.cyberspeed.BatchPlayer;
+import com.cyberspeed.GameModel;
+import com.cyberspeed.GameRandom;
+import com.cyberspeed.GameRegistry;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameEventsTest {
+
+    private static String CONFIG_3x3_FILE_PATH = "src/test/resources/config_3x3.json";
+
+    // -- records every com.cyberspeed event emitted by the action and returns them
+    private static List<RecordedEvent> record(Path directory, ThrowingRunnable action) throws Exception {
+        Path file = directory.resolve("game.jfr");
+        try (Recording recording = new Recording()) {
+            for (String name : List.of("com.cyberspeed.Round", "com.cyberspeed.RoundPhase", "com.cyberspeed.ConfigLoad")) {
+                recording.enable(name).withThreshold(Duration.ZERO);
+            }
+            recording.start();
+            action.run();
+            recording.stop();
+            recording.dump(file);
+        }
+        return RecordingFile.readAllEvents(file);
+    }
+
+    private static List<RecordedEvent> ofType(List<RecordedEvent> events, String name) {
+        return events.stream().filter(event -> event.getEventType().getName().equals(name)).toList();
+    }
+
+    private interface ThrowingRunnable {
+        void run() throws Exception;
+    }
+
+    // Test 1: Every round of a registry game is recorded with its game, round, bet and reward
+    @Test
+    public void testRoundEvents(@TempDir Path directory) throws Exception {
+        GameModel model = GameModel.load(CONFIG_3x3_FILE_PATH);
+        StringBuilder outputs = new StringBuilder();
+        List<RecordedEvent> events = record(directory, () -> {
+            try (GameRegistry registry = new GameRegistry(new GameRandom(6))) {
+                registry.register("classic", model);
+                for (int i = 0; i < 20; i++) {
+                    outputs.append(registry.play("classic", 100)).append('\n');
+                }
+            }
+        });
+
+        List<RecordedEvent> rounds = ofType(events, "com.cyberspeed.Round");
+        assertEquals(20, rounds.size());
+        List<String> lines = outputs.toString().lines().toList();
+        for (RecordedEvent round : rounds) {
+            assertEquals("classic", round.getString("game"));
+            assertEquals(100, round.getInt("betAmount"));
+            assertEquals(3, round.getInt("rows"));
+            assertEquals(3, round.getInt("columns"));
+            JSONObject output = new JSONObject(lines.get((int) round.getLong("round")));
+            assertEquals(output.getDouble("reward"), round.getDouble("reward"), 1e-9);
+        }
+        assertEquals(20, rounds.stream().map(round -> round.getLong("round")).distinct().count());
+    }
+
+    // Test 2: Each round of a batch is split into the four phases, nested in the round
+    @Test
+    public void testPhaseEvents(@TempDir Path directory) throws Exception {
+        GameModel model = GameModel.load(CONFIG_3x3_FILE_PATH);
+        List<RecordedEvent> events = record(directory, () ->
+                new BatchPlayer(model, new GameRandom(6)).play(50, 10, new ByteArrayOutputStream()));
+
+        List<RecordedEvent> rounds = ofType(events, "com.cyberspeed.Round");
+        List<RecordedEvent> phases = ofType(events, "com.cyberspeed.RoundPhase");
+        assertEquals(50, rounds.size());
+        assertEquals(4 * 50, phases.size());
+        Set<String> labels = phases.stream().map(phase -> phase.getString("phase")).collect(Collectors.toSet());
+        assertEquals(Set.of("generate", "evaluate", "bonus", "serialize"), labels);
+
+        RecordedEvent first = rounds.stream().filter(round -> round.getLong("round") == 0).findFirst().orElseThrow();
+        long nested = phases.stream()
+                .filter(phase -> !phase.getStartTime().isBefore(first.getStartTime()) && !phase.getEndTime().isAfter(first.getEndTime()))
+                .count();
+        assertEquals(4, nested);
+    }
+
+    // Test 3: A config load reports its durations, and a failed one its error
+    @Test
+    public void testConfigEvents(@TempDir Path directory) throws Exception {
+        Path invalid = directory.resolve("invalid.json");
+        Files.writeString(invalid, "{\"columns\": 3}");
+        List<RecordedEvent> events = record(directory, () -> {
+            GameModel.load(CONFIG_3x3_FILE_PATH);
+            assertThrows(RuntimeException.class, () -> GameModel.load(invalid.toString()));
+        });
+
+        List<RecordedEvent> loads = ofType(events, "com.cyberspeed.ConfigLoad");
+        assertEquals(2, loads.size());
+        RecordedEvent valid = loads.get(0);
+        assertEquals(CONFIG_3x3_FILE_PATH, valid.getString("source"));
+        assertTrue(valid.getBoolean("valid"));
+        assertNull(valid.getString("error"));
+        assertTrue(valid.getDuration("parseDuration").toNanos() > 0);
+        assertTrue(valid.getDuration("compileDuration").toNanos() > 0);
+
+        assertFalse(loads.get(1).getBoolean("valid"));
+        assertNotNull(loads.get(1).getString("error"));
+    }
+}
@@ -0,0 +1,139 @@
+import com.cyberspeed.BatchPlayer;
+import com.cyberspeed.GameMetrics;
+import com.cyberspeed.GameModel;
+import com.cyberspeed.GameRandom;
+import com.cyberspeed.GameRegistry;
+import com.cyberspeed.LatencyHistogram;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.ByteArrayOutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameMetricsTest {
+
+    private static String CONFIG_3x3_FILE_PATH = "src/test/resources/config_3x3.json";
+
+    // Test 1: Percentiles are within the bucket precision of the exact values
+    @Test
+    public void testHistogramPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 100_000; value++) {
+            histogram.record(value);
+        }
+
+        assertEquals(100_000, histogram.getCount());
+        assertEquals(100_000, histogram.getMax());
+        assertEquals(50_000.5, histogram.getMean(), 1e-9);
+        assertEquals(50_000, histogram.getValueAtPercentile(50), 50_000 / 32.0);
+        assertEquals(99_000, histogram.getValueAtPercentile(99), 99_000 / 32.0);
+        assertEquals(100_000, histogram.getValueAtPercentile(100));
+
+        LatencyHistogram single = new LatencyHistogram();
+        single.record(7);
+        assertEquals(7, single.getValueAtPercentile(99.9));
+    }
+
+    // Test 2: Timed metrics do not change the rounds and count exactly what was played
+    @Test
+    public void testMetricsMatchRounds() throws Exception {
+        GameModel model = GameModel.load(CONFIG_3x3_FILE_PATH);
+        GameMetrics metrics = new GameMetrics(true);
+
+        ByteArrayOutputStream plain = new ByteArrayOutputStream();
+        new BatchPlayer(model, new GameRandom(4)).play(5_000, 100, plain);
+        ByteArrayOutputStream measured = new ByteArrayOutputStream();
+        BatchPlayer player = new BatchPlayer(model, new GameRandom(4));
+        player.setMetrics(metrics);
+        player.play(5_000, 100, measured);
+        assertEquals(plain.toString(), measured.toString());
+
+        double totalReward = 0;
+        long hits = 0;
+        Map<String, Long> triggers = new HashMap<>();
+        for (String line : measured.toString().split("\n")) {
+            JSONObject round = new JSONObject(line);
+            totalReward += round.getDouble("reward");
+            hits += round.getDouble("reward") > 0 ? 1 : 0;
+            JSONObject applied = round.getJSONObject("applied_winning_combinations");
+            for (String symbol : applied.keySet()) {
+                for (Object combination : applied.getJSONArray(symbol)) {
+                    triggers.merge((String) combination, 1L, Long::sum);
+                }
+            }
+        }
+
+        assertEquals(5_000, metrics.getRounds());
+        assertEquals(hits, metrics.getHits());
+        assertEquals(5_000 * 100, metrics.getTotalBet());
+        assertEquals(totalReward, metrics.getTotalReward(), 1e-6);
+        assertEquals(triggers, metrics.getCombinationTriggers());
+        for (GameMetrics.Stage stage : GameMetrics.Stage.values()) {
+            assertEquals(5_000, metrics.getLatency(stage).getCount(), stage.getLabel());
+        }
+        assertNull(new GameMetrics(false).getLatency(GameMetrics.Stage.GENERATE));
+    }
+
+    // Test 3: A monitored registry exposes its games as text and over JMX
+    @Test
+    public void testTextAndJmx() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("com.cyberspeed:type=GameMetrics,game=" + ObjectName.quote("classic"));
+
+        try (GameRegistry registry = new GameRegistry(new GameRandom(2), true)) {
+            registry.register("classic", GameModel.load(CONFIG_3x3_FILE_PATH));
+            for (int i = 0; i < 10; i++) {
+                registry.play("classic", 100);
+            }
+
+            List<String> lines = registry.toMetricsText().lines().toList();
+            assertTrue(lines.contains("cyberspeed_rounds_total{game=\"classic\"} 10"), String.join("\n", lines));
+            assertTrue(lines.contains("cyberspeed_bet_total{game=\"classic\"} 1000"));
+            assertTrue(lines.contains("cyberspeed_stage_latency_seconds_count{game=\"classic\",stage=\"serialize\"} 10"));
+            for (String quantile : new String[]{"0.5", "0.9", "0.99", "0.999"}) {
+                assertTrue(lines.stream().anyMatch(line -> line.startsWith("cyberspeed_stage_latency_seconds{game=\"classic\",stage=\"evaluate\",quantile=\"" + quantile + "\"}")), quantile);
+            }
+            assertEquals(4, lines.stream().filter(line -> line.startsWith("cyberspeed_stage_latency_seconds{game=\"classic\",stage=\"evaluate\",quantile=")).count());
+
+            assertEquals(10L, server.getAttribute(name, "Rounds"));
+            assertEquals(registry.get("classic").getMetrics().getRtp(), (Double) server.getAttribute(name, "Rtp"));
+        }
+        assertFalse(server.isRegistered(name));
+    }
+
+    // Test 4: Values recorded from many threads into their stripes merge into the histogram of one thread
+    @Test
+    public void testStripedRecordingMerges() throws Exception {
+        LatencyHistogram sequential = new LatencyHistogram();
+        LatencyHistogram concurrent = new LatencyHistogram();
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            final int offset = t;
+            threads[t] = Thread.ofPlatform().start(() -> {
+                for (long value = offset; value < 200_000; value += threads.length) {
+                    concurrent.record(value * 37);
+                }
+            });
+        }
+        for (long value = 0; value < 200_000; value++) {
+            sequential.record(value * 37);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(sequential.getCount(), concurrent.getCount());
+        assertEquals(sequential.getSum(), concurrent.getSum());
+        assertEquals(199_999 * 37, concurrent.getMax());
+        for (double percentile : new double[]{0, 1, 50, 90, 99, 99.9, 100}) {
+            assertEquals(sequential.getValueAtPercentile(percentile), concurrent.getValueAtPercentile(percentile));
+        }
+    }
+}
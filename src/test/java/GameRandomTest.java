@@ -0,0 +1,57 @@
+import com.cyberspeed.BatchPlayer;
+import com.cyberspeed.GameModel;
+import com.cyberspeed.GameRandom;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.random.RandomGenerator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameRandomTest {
+
+    private static String CONFIG_3x3_FILE_PATH = "src/test/resources/config_3x3.json";
+
+    // Test 1: A round's generator only depends on the seed and the round, for every algorithm
+    @Test
+    public void testRoundsAreReproducible() {
+        for (GameRandom.Algorithm algorithm : GameRandom.Algorithm.values()) {
+            RandomGenerator first = new GameRandom(algorithm, 42).forRound(1_000_000);
+            RandomGenerator second = new GameRandom(algorithm, 42).forRound(1_000_000);
+            RandomGenerator otherRound = new GameRandom(algorithm, 42).forRound(1_000_001);
+            RandomGenerator otherStream = new GameRandom(algorithm, 42).forStream(1_000_000);
+
+            long value = first.nextLong();
+            assertEquals(value, second.nextLong(), algorithm.name());
+            assertNotEquals(value, otherRound.nextLong(), algorithm.name());
+            assertNotEquals(value, otherStream.nextLong(), algorithm.name());
+        }
+    }
+
+    // Test 2: A batch round can be replayed on its own from the seed and its number
+    @Test
+    public void testReplaySingleBatchRound() throws Exception {
+        GameModel model = GameModel.load(CONFIG_3x3_FILE_PATH);
+
+        ByteArrayOutputStream all = new ByteArrayOutputStream();
+        new BatchPlayer(model, new GameRandom(GameRandom.Algorithm.L64X128_MIX, 9)).play(50, 100, all);
+        String[] lines = all.toString(StandardCharsets.UTF_8).split("\n");
+
+        ByteArrayOutputStream single = new ByteArrayOutputStream();
+        BatchPlayer player = new BatchPlayer(model, new GameRandom(GameRandom.Algorithm.L64X128_MIX, 9));
+        player.setNextRound(37);
+        player.play(1, 100, single);
+
+        assertEquals(50, lines.length);
+        assertEquals(lines[37] + "\n", single.toString(StandardCharsets.UTF_8));
+    }
+
+    // Test 3: Algorithms are parsed by enum or JDK name, case insensitive
+    @Test
+    public void testAlgorithmNames() {
+        assertEquals(GameRandom.Algorithm.XOSHIRO256_PLUS_PLUS, GameRandom.Algorithm.of("xoshiro256plusplus"));
+        assertEquals(GameRandom.Algorithm.L64X128_MIX, GameRandom.Algorithm.of("l64x128_mix"));
+        assertThrows(IllegalArgumentException.class, () -> GameRandom.Algorithm.of("Random"));
+    }
+}
@@ -0,0 +1,163 @@
+import com.cyberspeed.GameModel;
+import com.cyberspeed.GameRandom;
+import com.cyberspeed.GameRegistry;
+import com.cyberspeed.GameServer;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.lang.ref.WeakReference;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameRegistryTest {
+
+    private static String CONFIG_3x3_FILE_PATH = "src/test/resources/config_3x3.json";
+
+    // -- three variants of config_3x3: as is, another paytable and a 4x4 grid
+    private static void writeVariants(Path directory) throws Exception {
+        JSONObject config = new JSONObject(Files.readString(Path.of(CONFIG_3x3_FILE_PATH)));
+        Files.writeString(directory.resolve("classic.json"), config.toString());
+        config.getJSONObject("symbols").getJSONObject("A").put("reward_multiplier", 50);
+        Files.writeString(directory.resolve("jackpot.json"), config.toString());
+        config.put("rows", 4).put("columns", 4);
+        Files.writeString(directory.resolve("large.json"), config.toString());
+    }
+
+    // Test 1: Variants share the compiled parts they have in common
+    @Test
+    public void testVariantsShareParts(@TempDir Path directory) throws Exception {
+        writeVariants(directory);
+        try (GameRegistry registry = new GameRegistry(new GameRandom(1))) {
+            registry.loadDirectory(directory, false);
+
+            assertEquals(List.of("classic", "jackpot", "large"), new ArrayList<>(registry.getGameIds()));
+            GameModel classic = registry.get("classic").getModel();
+            GameModel jackpot = registry.get("jackpot").getModel();
+            GameModel large = registry.get("large").getModel();
+            assertEquals(50, jackpot.getRewardMultiplier(jackpot.getSymbolId("A")));
+            assertEquals(5, classic.getRewardMultiplier(classic.getSymbolId("A")));
+            assertEquals(4, large.getRows());
+
+            for (int i = 0; i < classic.getCombinationCount(); i++) {
+                assertSame(classic.getCombination(i), jackpot.getCombination(i));
+            }
+            assertTrue(registry.getSharedPartCount() > 0);
+        }
+    }
+
+    // Test 2: Each variant has its own rounds, whatever the other variants play
+    @Test
+    public void testVariantsAreIndependent(@TempDir Path directory) throws Exception {
+        writeVariants(directory);
+        try (GameRegistry alone = new GameRegistry(new GameRandom(GameRandom.Algorithm.L64X128_MIX, 7));
+             GameRegistry mixed = new GameRegistry(new GameRandom(GameRandom.Algorithm.L64X128_MIX, 7))) {
+            alone.loadDirectory(directory, false);
+            mixed.loadDirectory(directory, false);
+
+            for (int round = 0; round < 50; round++) {
+                mixed.play("large", 10);
+                mixed.play("jackpot", 10);
+                assertEquals(alone.play("classic", 100), mixed.play("classic", 100));
+            }
+            assertEquals(50, mixed.get("classic").getMetrics().getRounds());
+            assertEquals(50 * 100, mixed.get("classic").getMetrics().getTotalBet());
+            assertEquals(50, mixed.get("large").getMetrics().getRounds());
+            assertNotEquals(mixed.get("classic").getSeed(), mixed.get("jackpot").getSeed());
+            assertThrows(IllegalArgumentException.class, () -> mixed.play("missing", 100));
+        }
+    }
+
+    // Test 3: The server dispatches by game id and reports the counters of every game
+    @Test
+    public void testServerDispatchesByGame(@TempDir Path directory) throws Exception {
+        writeVariants(directory);
+        try (GameRegistry registry = new GameRegistry(new GameRandom(3))) {
+            registry.loadDirectory(directory, false);
+            GameServer server = new GameServer(registry, 0);
+            server.start();
+            try {
+                HttpClient client = HttpClient.newHttpClient();
+                URI base = URI.create("http://localhost:" + server.getPort());
+
+                HttpResponse<String> play = client.send(HttpRequest.newBuilder(base.resolve("/play"))
+                        .POST(HttpRequest.BodyPublishers.ofString("{\"game\": \"large\", \"betting_amount\": 100}")).build(),
+                        HttpResponse.BodyHandlers.ofString());
+                assertEquals(200, play.statusCode());
+                assertEquals(4, new JSONObject(play.body()).getJSONArray("matrix").length());
+
+                HttpResponse<String> unknown = client.send(HttpRequest.newBuilder(base.resolve("/play"))
+                        .POST(HttpRequest.BodyPublishers.ofString("{\"game\": \"missing\", \"betting_amount\": 100}")).build(),
+                        HttpResponse.BodyHandlers.ofString());
+                assertEquals(404, unknown.statusCode());
+
+                HttpResponse<String> batch = client.send(HttpRequest.newBuilder(base.resolve("/batch"))
+                        .POST(HttpRequest.BodyPublishers.ofString("{\"game\": \"classic\", \"betting_amount\": 10, \"count\": 25}")).build(),
+                        HttpResponse.BodyHandlers.ofString());
+                assertEquals(25, batch.body().lines().count());
+
+                JSONObject games = new JSONObject(client.send(HttpRequest.newBuilder(base.resolve("/games")).GET().build(),
+                        HttpResponse.BodyHandlers.ofString()).body()).getJSONObject("games");
+                assertEquals(1, games.getJSONObject("large").getLong("rounds"));
+                assertEquals(25, games.getJSONObject("classic").getLong("rounds"));
+                assertEquals(0, games.getJSONObject("jackpot").getLong("rounds"));
+            } finally {
+                server.stop();
+            }
+        }
+    }
+
+    // Test 4: A reload releases the parts only the previous version used (the vertical lines of the 3x3 grid), so they can be collected
+    @Test
+    public void testReloadReleasesParts(@TempDir Path directory) throws Exception {
+        writeVariants(directory);
+        JSONObject config = new JSONObject(Files.readString(directory.resolve("classic.json")));
+        config.getJSONObject("win_combinations").getJSONObject("same_symbols_vertically").put("reward_multiplier", 7);
+        Path reloaded = directory.resolve("reloaded");
+        Files.createDirectory(reloaded);
+        Files.writeString(reloaded.resolve("classic.json"), config.toString());
+
+        try (GameRegistry registry = new GameRegistry(new GameRandom(1));
+             GameRegistry reference = new GameRegistry(new GameRandom(1))) {
+            GameRegistry.Variant classic = registry.watch("classic", directory.resolve("classic.json"));
+            registry.load("large", directory.resolve("large.json"));
+            reference.load("classic", reloaded.resolve("classic.json"));
+            reference.load("large", directory.resolve("large.json"));
+
+            WeakReference<GameModel.WinCombination> replaced = new WeakReference<>(combination(classic.getModel(), "same_symbols_vertically"));
+            WeakReference<GameModel.WinCombination> kept = new WeakReference<>(combination(classic.getModel(), "same_symbol_4_times"));
+            Files.writeString(directory.resolve("classic.json"), config.toString());
+            long deadline = System.nanoTime() + 20_000_000_000L;
+            while (classic.getModel().getVersion() == 1 && System.nanoTime() < deadline) {
+                Thread.sleep(20);
+            }
+            assertEquals(2, classic.getModel().getVersion());
+
+            // -- the pool holds what the current versions use, as if they had been loaded that way
+            assertEquals(reference.getPartCount(), registry.getPartCount());
+            while (replaced.get() != null && System.nanoTime() < deadline) {
+                System.gc();
+                Thread.sleep(20);
+            }
+            assertNull(replaced.get());
+            assertSame(kept.get(), combination(classic.getModel(), "same_symbol_4_times"));
+        }
+    }
+
+    private static GameModel.WinCombination combination(GameModel model, String name) {
+        for (int id = 0; id < model.getCombinationCount(); id++) {
+            if (model.getCombination(id).getName().equals(name)) {
+                return model.getCombination(id);
+            }
+        }
+        throw new AssertionError(name);
+    }
+}
@@ -0,0 +1,276 @@
+import com.cyberspeed.GameModel;
+import com.cyberspeed.GameRandom;
+import com.cyberspeed.GameRegistry;
+import com.cyberspeed.GameServer;
+import com.cyberspeed.RoundVerifier;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameServerTest {
+
+    private static String CONFIG_3x3_FILE_PATH = "src/test/resources/config_3x3.json";
+    private static String CONFIG_FILE_PATH = "src/main/resources/config.json";
+
+    private static final HttpClient client = HttpClient.newHttpClient();
+
+    private static HttpResponse<String> post(GameServer server, String path, String body) throws Exception {
+        return client.send(HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + path))
+                .POST(HttpRequest.BodyPublishers.ofString(body)).build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static HttpResponse<String> get(GameServer server, String path) throws Exception {
+        return client.send(HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + path)).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static JSONObject replay(GameModel model, GameRandom random, long round, int betAmount) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new RoundVerifier(model, random).replay(round, betAmount, out);
+        return new JSONObject(out.toString(StandardCharsets.UTF_8));
+    }
+
+    // Test 1: POST /play answers with the round of the X-Round header, numbered from 0 and replayable from the seed
+    @Test
+    public void testPlayNumbersRounds() throws Exception {
+        GameModel model = GameModel.load(CONFIG_3x3_FILE_PATH);
+        GameServer server = new GameServer(model, 0, new GameRandom(GameRandom.Algorithm.L64X128_MIX, 17));
+        server.start();
+        try {
+            for (int round = 0; round < 20; round++) {
+                HttpResponse<String> play = post(server, "/play", "{\"betting_amount\": 100}");
+                assertEquals(200, play.statusCode());
+                assertEquals("application/json", play.headers().firstValue("Content-Type").orElseThrow());
+                assertEquals(Integer.toString(round), play.headers().firstValue("X-Round").orElseThrow());
+                assertTrue(play.headers().firstValue("X-Config-Version").isEmpty());
+
+                JSONObject expected = replay(model, new GameRandom(GameRandom.Algorithm.L64X128_MIX, 17), round, 100);
+                JSONObject actual = new JSONObject(play.body());
+                assertTrue(expected.similar(actual), expected + "\n" + actual);
+            }
+        } finally {
+            server.stop();
+        }
+    }
+
+    // Test 2: Bad requests are refused with their status and a JSON error, without using a round
+    @Test
+    public void testPlayRejectsBadRequests() throws Exception {
+        GameServer server = new GameServer(GameModel.load(CONFIG_3x3_FILE_PATH), 0, new GameRandom(3));
+        server.start();
+        try {
+            HttpResponse<String> method = get(server, "/play");
+            assertEquals(405, method.statusCode());
+            assertEquals("POST", method.headers().firstValue("Allow").orElseThrow());
+
+            for (String body : new String[]{"not json", "{}", "{\"betting_amount\": \"ten\"}", "{\"betting_amount\": 0}", "{\"betting_amount\": -5}"}) {
+                HttpResponse<String> play = post(server, "/play", body);
+                assertEquals(400, play.statusCode(), body);
+                assertTrue(new JSONObject(play.body()).has("error"), play.body());
+            }
+
+            HttpResponse<String> unknown = post(server, "/play", "{\"game\": \"missing\", \"betting_amount\": 100}");
+            assertEquals(404, unknown.statusCode());
+            assertEquals("Unknown game: missing", new JSONObject(unknown.body()).getString("error"));
+
+            HttpResponse<String> play = post(server, "/play", "{\"betting_amount\": 100}");
+            assertEquals(200, play.statusCode());
+            assertEquals("0", play.headers().firstValue("X-Round").orElseThrow());
+        } finally {
+            server.stop();
+        }
+    }
+
+    // Test 3: Each game of a registry numbers its rounds and draws them from its own stream
+    @Test
+    public void testPlayRoutesByGame() throws Exception {
+        GameModel classic = GameModel.load(CONFIG_3x3_FILE_PATH);
+        GameModel large = GameModel.load(CONFIG_FILE_PATH);
+        try (GameRegistry registry = new GameRegistry(new GameRandom(GameRandom.Algorithm.L64X128_MIX, 23))) {
+            registry.register("classic", classic);
+            registry.register("large", large);
+            GameServer server = new GameServer(registry, 0);
+            server.start();
+            try {
+                String[] games = {"classic", "large", "large", "classic", "large"};
+                long[] rounds = {0, 0, 1, 1, 2};
+                for (int i = 0; i < games.length; i++) {
+                    HttpResponse<String> play = post(server, "/play", "{\"game\": \"" + games[i] + "\", \"betting_amount\": 10}");
+                    assertEquals(200, play.statusCode());
+                    assertEquals(Long.toString(rounds[i]), play.headers().firstValue("X-Round").orElseThrow());
+
+                    GameRandom random = GameRegistry.randomOf(new GameRandom(GameRandom.Algorithm.L64X128_MIX, 23), games[i]);
+                    JSONObject expected = replay(games[i].equals("classic") ? classic : large, random, rounds[i], 10);
+                    JSONObject actual = new JSONObject(play.body());
+                    assertTrue(expected.similar(actual), expected + "\n" + actual);
+                }
+
+                // -- without a game id the request goes to the default game, not registered here
+                assertEquals(404, post(server, "/play", "{\"betting_amount\": 10}").statusCode());
+            } finally {
+                server.stop();
+            }
+        }
+    }
+
+    // Test 4: POST /batch streams NDJSON rounds numbered from X-First-Round, each the single round played with that number
+    @Test
+    public void testBatchEqualsSingleRounds() throws Exception {
+        GameModel model = GameModel.load(CONFIG_3x3_FILE_PATH);
+        int[] betAmounts = new int[12];
+        for (int i = 0; i < betAmounts.length; i++) {
+            betAmounts[i] = 10 * (i % 4 + 1);
+        }
+        String[] batched;
+        String last;
+        GameServer server = new GameServer(model, 0, new GameRandom(GameRandom.Algorithm.XOSHIRO256_PLUS_PLUS, 29));
+        server.start();
+        try {
+            for (int i = 0; i < 3; i++) {
+                post(server, "/play", "{\"betting_amount\": 100}");
+            }
+            HttpResponse<String> batch = post(server, "/batch", new JSONObject().put("betting_amounts", betAmounts).toString());
+            assertEquals(200, batch.statusCode());
+            assertEquals("application/x-ndjson", batch.headers().firstValue("Content-Type").orElseThrow());
+            assertEquals("3", batch.headers().firstValue("X-First-Round").orElseThrow());
+            batched = batch.body().split("\n");
+            assertEquals(betAmounts.length, batched.length);
+
+            HttpResponse<String> play = post(server, "/play", "{\"betting_amount\": 100}");
+            assertEquals("15", play.headers().firstValue("X-Round").orElseThrow());
+            last = play.body();
+
+            HttpResponse<String> counted = post(server, "/batch", "{\"betting_amount\": 50, \"count\": 7}");
+            assertEquals("16", counted.headers().firstValue("X-First-Round").orElseThrow());
+            assertEquals(7, counted.body().lines().count());
+        } finally {
+            server.stop();
+        }
+
+        // -- the same rounds played one by one on a server with the same seed
+        GameServer single = new GameServer(model, 0, new GameRandom(GameRandom.Algorithm.XOSHIRO256_PLUS_PLUS, 29));
+        single.start();
+        try {
+            for (int round = 0; round < 16; round++) {
+                final int betAmount = round >= 3 && round < 15 ? betAmounts[round - 3] : 100;
+                HttpResponse<String> play = post(single, "/play", "{\"betting_amount\": " + betAmount + "}");
+                assertEquals(Integer.toString(round), play.headers().firstValue("X-Round").orElseThrow());
+                if (round >= 3) {
+                    JSONObject expected = new JSONObject(play.body());
+                    JSONObject actual = new JSONObject(round < 15 ? batched[round - 3] : last);
+                    assertTrue(expected.similar(actual), round + ": " + expected + "\n" + actual);
+                }
+            }
+        } finally {
+            single.stop();
+        }
+    }
+
+    // Test 5: Batches are numbered per game and bad batches are refused before any round is reserved
+    @Test
+    public void testBatchRoutesByGameAndRejectsBadRequests() throws Exception {
+        GameModel classic = GameModel.load(CONFIG_3x3_FILE_PATH);
+        try (GameRegistry registry = new GameRegistry(new GameRandom(31))) {
+            registry.register("classic", classic);
+            registry.register("large", GameModel.load(CONFIG_FILE_PATH));
+            GameServer server = new GameServer(registry, 0);
+            server.start();
+            try {
+                assertEquals(405, get(server, "/batch").statusCode());
+                for (String body : new String[]{"{\"game\": \"classic\"}", "{\"game\": \"classic\", \"betting_amount\": 10, \"count\": -1}",
+                        "{\"game\": \"classic\", \"betting_amount\": 10, \"count\": 1000001}",
+                        "{\"game\": \"classic\", \"betting_amounts\": [10, 0]}", "{\"game\": \"classic\", \"betting_amounts\": 10}"}) {
+                    HttpResponse<String> batch = post(server, "/batch", body);
+                    assertEquals(400, batch.statusCode(), body);
+                    assertTrue(new JSONObject(batch.body()).has("error"), batch.body());
+                }
+                assertEquals(404, post(server, "/batch", "{\"game\": \"missing\", \"betting_amount\": 10, \"count\": 5}").statusCode());
+
+                HttpResponse<String> large = post(server, "/batch", "{\"game\": \"large\", \"betting_amount\": 10, \"count\": 5}");
+                assertEquals("0", large.headers().firstValue("X-First-Round").orElseThrow());
+                assertEquals(5, large.body().lines().count());
+
+                HttpResponse<String> batch = post(server, "/batch", "{\"game\": \"classic\", \"betting_amount\": 10, \"count\": 4}");
+                assertEquals("0", batch.headers().firstValue("X-First-Round").orElseThrow());
+                String[] lines = batch.body().split("\n");
+                assertEquals(4, lines.length);
+                RoundVerifier verifier = new RoundVerifier(classic, GameRegistry.randomOf(new GameRandom(31), "classic"));
+                for (int round = 0; round < lines.length; round++) {
+                    assertEquals(verifier.replay(round, 10), new JSONObject(lines[round]).getDouble("reward"));
+                }
+
+                HttpResponse<String> empty = post(server, "/batch", "{\"game\": \"classic\", \"betting_amount\": 10, \"count\": 0}");
+                assertEquals(200, empty.statusCode());
+                assertEquals("", empty.body());
+                assertEquals("4", post(server, "/play", "{\"game\": \"classic\", \"betting_amount\": 10}").headers().firstValue("X-Round").orElseThrow());
+
+                JSONObject games = new JSONObject(get(server, "/games").body()).getJSONObject("games");
+                assertEquals(5, games.getJSONObject("classic").getLong("rounds"));
+                assertEquals(5, games.getJSONObject("large").getLong("rounds"));
+            } finally {
+                server.stop();
+            }
+        }
+    }
+
+    // Test 6: Oversized bodies are refused with 413, fractional and out-of-range amounts with 400
+    @Test
+    public void testRejectsLargeBodiesAndInexactNumbers() throws Exception {
+        GameServer server = new GameServer(GameModel.load(CONFIG_3x3_FILE_PATH), 0, new GameRandom(37));
+        server.start();
+        try {
+            // -- refused by its Content-Length, before a byte of the body is sent
+            try (Socket socket = new Socket("localhost", server.getPort())) {
+                socket.setSoTimeout(10_000);
+                OutputStream out = socket.getOutputStream();
+                out.write(("POST /play HTTP/1.1\r\nHost: localhost\r\nContent-Length: " + (16 * 1024 * 1024 + 1) + "\r\n\r\n")
+                        .getBytes(StandardCharsets.US_ASCII));
+                out.flush();
+                InputStream in = socket.getInputStream();
+                String status = new String(in.readNBytes("HTTP/1.1 413".length()), StandardCharsets.US_ASCII);
+                assertEquals("HTTP/1.1 413", status);
+            }
+
+            // -- a chunked body without a length is read no further than the limit
+            byte[] large = new byte[16 * 1024 * 1024 + 1];
+            Arrays.fill(large, (byte) ' ');
+            HttpResponse<String> chunked = client.send(HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + "/batch"))
+                    .POST(HttpRequest.BodyPublishers.ofInputStream(() -> new ByteArrayInputStream(large))).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(413, chunked.statusCode());
+            assertTrue(new JSONObject(chunked.body()).has("error"), chunked.body());
+
+            for (String body : new String[]{"{\"betting_amount\": 2.5}", "{\"betting_amount\": 2147483648}", "{\"betting_amount\": 1e400}"}) {
+                HttpResponse<String> play = post(server, "/play", body);
+                assertEquals(400, play.statusCode(), body);
+                assertTrue(new JSONObject(play.body()).getString("error").startsWith("betting_amount must be a whole number"), play.body());
+            }
+            for (String body : new String[]{"{\"betting_amount\": 2.5, \"count\": 3}", "{\"betting_amount\": 10, \"count\": 4294967297}",
+                    "{\"betting_amount\": 10, \"count\": 1.5}", "{\"betting_amounts\": [10, 2147483648]}", "{\"betting_amounts\": [10, 0.5]}"}) {
+                HttpResponse<String> batch = post(server, "/batch", body);
+                assertEquals(400, batch.statusCode(), body);
+                assertTrue(new JSONObject(batch.body()).getString("error").contains("must be a whole number"), batch.body());
+            }
+
+            // -- whole numbers written as decimals are still accepted, and nothing was played before
+            HttpResponse<String> play = post(server, "/play", "{\"betting_amount\": 100.0}");
+            assertEquals(200, play.statusCode());
+            assertEquals("0", play.headers().firstValue("X-Round").orElseThrow());
+        } finally {
+            server.stop();
+        }
+    }
+}
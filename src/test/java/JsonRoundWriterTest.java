@@ -0,0 +1,106 @@
+import com.cyberspeed.GameModel;
+import com.cyberspeed.JsonRoundWriter;
+import com.cyberspeed.OutputFormatter;
+import com.cyberspeed.RewardCalculator;
+import com.cyberspeed.SymbolGenerator;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JsonRoundWriterTest {
+
+    private static String CONFIG_3x3_FILE_PATH = "src/test/resources/config_3x3.json";
+
+    // Builds the matrix of names OutputFormatter expects from a flat symbol id grid
+    private String[][] toMatrix(GameModel model, int[] symbolIds) {
+        String[][] matrix = new String[model.getRows()][model.getColumns()];
+        for (int i = 0; i < model.getRows(); i++) {
+            for (int j = 0; j < model.getColumns(); j++) {
+                matrix[i][j] = model.getSymbolName(symbolIds[i * model.getColumns() + j]);
+            }
+        }
+        return matrix;
+    }
+
+    // Test 1: Same document as OutputFormatter, for winning and losing rounds
+    @Test
+    public void testSameOutputAsOutputFormatter() throws Exception {
+        GameModel model = GameModel.load(CONFIG_3x3_FILE_PATH);
+        SplittableRandom rand = new SplittableRandom(3);
+        SymbolGenerator generator = new SymbolGenerator(model, rand);
+        RewardCalculator calculator = new RewardCalculator(model, rand);
+        JsonRoundWriter writer = new JsonRoundWriter(model);
+        int[] symbolIds = new int[model.getRows() * model.getColumns()];
+
+        int wins = 0;
+        for (int round = 0; round < 2_000; round++) {
+            generator.generateSymbolIds(symbolIds);
+            double reward = calculator.calculate(symbolIds, 100 + round);
+            if (reward > 0) {
+                wins++;
+            }
+
+            String expected = new OutputFormatter(toMatrix(model, symbolIds), calculator.getSelectedBonusSymbol(),
+                    calculator.getAppliedWinningCombinations(), reward).formatOutput();
+            writer.reset();
+            writer.write(symbolIds, calculator, reward);
+
+            assertTrue(new JSONObject(expected).similar(new JSONObject(writer.toString())),
+                    "Mismatch:\n" + expected + "\n" + writer);
+        }
+        assertTrue(wins > 0, "Expected some winning rounds");
+    }
+
+    // Test 2: Rewards are printed the way org.json prints them
+    @Test
+    public void testRewardFormatting() throws Exception {
+        GameModel model = GameModel.load(CONFIG_3x3_FILE_PATH);
+        RewardCalculator calculator = new RewardCalculator(model, new SplittableRandom(1));
+        JsonRoundWriter writer = new JsonRoundWriter(model);
+        int[] symbolIds = new int[model.getRows() * model.getColumns()];
+        // -- D, E, F, A, ... never lines up a combination, so the calculator holds an empty round
+        for (int i = 0; i < symbolIds.length; i++) {
+            symbolIds[i] = model.getSymbolId(new String[]{"D", "E", "F", "A", "B", "C", "MISS", "5x", "F"}[i]);
+        }
+        calculator.calculate(symbolIds, 100);
+
+        for (double reward : new double[]{0, 740, 62.5, 3000000, 12345678, 1.2345678901E10, 0.1 + 0.2}) {
+            writer.reset();
+            writer.write(symbolIds, calculator, reward);
+            String expected = new JSONObject().put("reward", reward).toString();
+            String actual = writer.toString();
+            String rewardText = actual.substring(actual.indexOf(':') + 1, actual.indexOf(','));
+            assertEquals(expected.substring(expected.indexOf(':') + 1, expected.length() - 1), rewardText);
+        }
+    }
+
+    // Test 3: NDJSON lines drained into a stream
+    @Test
+    public void testNdjsonOutput() throws Exception {
+        GameModel model = GameModel.load(CONFIG_3x3_FILE_PATH);
+        SplittableRandom rand = new SplittableRandom(5);
+        SymbolGenerator generator = new SymbolGenerator(model, rand);
+        RewardCalculator calculator = new RewardCalculator(model, rand);
+        JsonRoundWriter writer = new JsonRoundWriter(model);
+        int[] symbolIds = new int[model.getRows() * model.getColumns()];
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        for (int round = 0; round < 10; round++) {
+            generator.generateSymbolIds(symbolIds);
+            writer.writeLine(symbolIds, calculator, calculator.calculate(symbolIds, 100));
+        }
+        writer.writeTo(out);
+
+        assertEquals(0, writer.size(), "Buffer should be drained");
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(10, lines.length);
+        for (String line : lines) {
+            assertEquals(3, new JSONObject(line).getJSONArray("matrix").length());
+        }
+    }
+}
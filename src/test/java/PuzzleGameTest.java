@@ -11,11 +11,17 @@ public class PuzzleGameTest {
 
     private static String CONFIG_3x3_FILE_PATH = "src/test/resources/config_3x3.json";
 
-    // Helper method to inject a predefined matrix into the com.cyberspeed.PuzzleGame instance
+    // Helper method to inject a predefined matrix into the com.cyberspeed.PuzzleGame instance, as its flat grid of symbol ids
     private void setMatrix(PuzzleGame game, String[][] matrix) throws Exception {
-        Field matrixField = PuzzleGame.class.getDeclaredField("matrix");
-        matrixField.setAccessible(true);
-        matrixField.set(game, matrix);
+        int[] grid = new int[matrix.length * matrix[0].length];
+        for (int i = 0; i < matrix.length; i++) {
+            for (int j = 0; j < matrix[0].length; j++) {
+                grid[i * matrix[0].length + j] = game.getModel().getSymbolId(matrix[i][j]);
+            }
+        }
+        Field gridField = PuzzleGame.class.getDeclaredField("grid");
+        gridField.setAccessible(true);
+        gridField.set(game, grid);
 
         Field rowsField = PuzzleGame.class.getDeclaredField("rows");
         rowsField.setAccessible(true);
@@ -0,0 +1,79 @@
+import com.cyberspeed.GameModel;
+import com.cyberspeed.GameRandom;
+import com.cyberspeed.RewardCache;
+import com.cyberspeed.RewardCalculator;
+import com.cyberspeed.SimulationReport;
+import com.cyberspeed.Simulator;
+import com.cyberspeed.SymbolGenerator;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RewardCacheTest {
+
+    private static String CONFIG_3x3_FILE_PATH = "src/test/resources/config_3x3.json";
+
+    // Test 1: A cached simulation gives bit-identical results
+    @Test
+    public void testSimulationUnchangedByCache() throws Exception {
+        GameModel model = GameModel.load(CONFIG_3x3_FILE_PATH);
+
+        SimulationReport plain = new Simulator(model, 100, 2, 50_000, GameRandom.Algorithm.SPLITTABLE, 0).run(200_000, 3);
+        SimulationReport cached = new Simulator(model, 100, 2, 50_000, GameRandom.Algorithm.SPLITTABLE, 1 << 16).run(200_000, 3);
+
+        assertEquals(Double.doubleToLongBits(plain.getTotalReward()), Double.doubleToLongBits(cached.getTotalReward()));
+        assertEquals(plain.getHits(), cached.getHits());
+        for (int i = 0; i < model.getCombinationCount(); i++) {
+            assertEquals(plain.getCombinationTriggers(i), cached.getCombinationTriggers(i));
+        }
+        assertEquals(200_000, cached.getCacheHits() + cached.getCacheMisses());
+        assertTrue(cached.getCacheHits() > 0);
+    }
+
+    // Test 2: A small cache evicts but keeps every round identical, including the applied combinations
+    @Test
+    public void testEvictionKeepsResults() throws Exception {
+        GameModel model = GameModel.load(CONFIG_3x3_FILE_PATH);
+        RewardCache cache = new RewardCache(model, 64);
+        SplittableRandom plainRandom = new SplittableRandom(8);
+        SplittableRandom cachedRandom = new SplittableRandom(8);
+        SymbolGenerator generator = new SymbolGenerator(model, new SplittableRandom(1));
+        RewardCalculator plain = new RewardCalculator(model, plainRandom);
+        RewardCalculator cached = new RewardCalculator(model, cachedRandom, cache);
+        int[] symbolIds = new int[9];
+
+        for (int round = 0; round < 100_000; round++) {
+            // -- odd rounds replay the previous grid and bet, so lookups hit as well
+            if (round % 2 == 0) {
+                generator.generateSymbolIds(symbolIds);
+            }
+            int betAmount = (round / 2) % 3 == 0 ? 100 : 10;
+            assertEquals(plain.calculate(symbolIds, betAmount), cached.calculate(symbolIds, betAmount));
+            assertEquals(plain.getBaseReward(), cached.getBaseReward());
+            assertEquals(plain.getSelectedBonusSymbolId(), cached.getSelectedBonusSymbolId());
+            assertEquals(plain.getAppliedWinningCombinations(), cached.getAppliedWinningCombinations());
+        }
+
+        assertEquals(64, cache.getSize());
+        assertTrue(cache.getEvictions() > 0);
+        assertEquals(100_000, cache.getHits() + cache.getMisses());
+        assertTrue(cache.getHits() >= 50_000);
+    }
+
+    // Test 3: Grids that do not fit a 64-bit key are refused
+    @Test
+    public void testUnsupportedGrid() throws Exception {
+        JSONObject config = new JSONObject(Files.readString(Path.of(CONFIG_3x3_FILE_PATH)));
+        config.put("rows", 5);
+        config.put("columns", 5);
+        GameModel model = new GameModel(config);
+
+        assertFalse(RewardCache.supports(model));
+        assertThrows(IllegalArgumentException.class, () -> new RewardCache(model, 1024));
+    }
+}
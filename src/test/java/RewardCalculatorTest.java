@@ -0,0 +1,200 @@
+import com.cyberspeed.GameModel;
+import com.cyberspeed.GameRandom;
+import com.cyberspeed.GameRegistry;
+import com.cyberspeed.RewardCalculator;
+import com.cyberspeed.RtpCalculator;
+import com.cyberspeed.SymbolGenerator;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RewardCalculatorTest {
+
+    private static String CONFIG_3x3_FILE_PATH = "src/test/resources/config_3x3.json";
+
+    // -- config_3x3 resized to a square grid, with a line over the four corners of the grid
+    private static Path writeConfig(Path directory, int size) throws Exception {
+        JSONObject config = new JSONObject(Files.readString(Path.of(CONFIG_3x3_FILE_PATH)));
+        config.put("rows", size).put("columns", size);
+        final int last = size - 1;
+        config.getJSONObject("win_combinations").put("same_symbols_on_corners", new JSONObject()
+                .put("reward_multiplier", 3)
+                .put("when", "linear_symbols")
+                .put("group", "corner_linear_symbols")
+                .put("covered_areas", new JSONArray().put(new JSONArray()
+                        .put("0:0").put("0:" + last).put(last + ":0").put(last + ":" + last))));
+        Path path = directory.resolve("config_" + size + "x" + size + ".json");
+        Files.writeString(path, config.toString());
+        return path;
+    }
+
+    // -- applied combinations of a grid, found cell by cell from the config itself
+    private static Map<String, List<String>> referenceCombinations(JSONObject config, GameModel model, int[] grid) {
+        final int columns = config.getInt("columns");
+        Map<String, Integer> counts = new HashMap<>();
+        for (int symbol : grid) {
+            counts.merge(model.getSymbolName(symbol), 1, Integer::sum);
+        }
+
+        Map<String, List<String>> applied = new HashMap<>();
+        JSONObject combinations = config.getJSONObject("win_combinations");
+        for (String name : combinations.keySet()) {
+            JSONObject combination = combinations.getJSONObject(name);
+            if (combination.getString("when").equals("same_symbols")) {
+                counts.forEach((symbol, count) -> {
+                    if (symbol.length() == 1 && count == combination.getInt("count")) {
+                        applied.computeIfAbsent(symbol, key -> new ArrayList<>()).add(name);
+                    }
+                });
+                continue;
+            }
+            for (Object area : combination.getJSONArray("covered_areas")) {
+                String first = null;
+                boolean matched = true;
+                for (Object position : (JSONArray) area) {
+                    String[] rowColumn = ((String) position).split(":");
+                    String symbol = model.getSymbolName(grid[Integer.parseInt(rowColumn[0]) * columns + Integer.parseInt(rowColumn[1])]);
+                    first = first == null ? symbol : first;
+                    matched &= symbol.equals(first);
+                }
+                if (matched) {
+                    applied.computeIfAbsent(first, key -> new ArrayList<>()).add(name);
+                }
+            }
+        }
+        applied.values().forEach(names -> names.sort(null));
+        return applied;
+    }
+
+    // Test 1: A line through the last cell of an 8x8 grid (bit 63 of the bitboard) is matched exactly
+    @Test
+    public void testLineThroughLastBitboardCell(@TempDir Path directory) throws Exception {
+        GameModel model = GameModel.load(writeConfig(directory, 8).toString());
+        RewardCalculator calculator = new RewardCalculator(model, new SplittableRandom(1));
+        final int a = model.getSymbolId("A");
+        final int b = model.getSymbolId("B");
+
+        int[] grid = new int[64];
+        for (int cell = 0; cell < grid.length; cell++) {
+            grid[cell] = cell % 2 == 0 ? b : a;
+        }
+        grid[0] = a;
+        grid[7] = a;
+        grid[56] = a;
+        grid[63] = a;
+        calculator.calculate(grid, 100);
+        assertTrue(calculator.getAppliedWinningCombinations().get("A").contains("same_symbols_on_corners"));
+
+        grid[63] = b;
+        calculator.calculate(grid, 100);
+        assertFalse(calculator.getAppliedWinningCombinations().getOrDefault("A", List.of()).contains("same_symbols_on_corners"));
+    }
+
+    // Test 2: Bitboard (3x3, 8x8) and cell by cell (9x9) evaluation match a reference scan of the grid
+    @Test
+    public void testMatchesReference(@TempDir Path directory) throws Exception {
+        for (int size : new int[]{3, 8, 9}) {
+            Path path = writeConfig(directory, size);
+            JSONObject config = new JSONObject(Files.readString(path));
+            GameModel model = GameModel.load(path.toString());
+            SymbolGenerator generator = new SymbolGenerator(model, new SplittableRandom(size));
+            RewardCalculator calculator = new RewardCalculator(model, new SplittableRandom(7));
+            SplittableRandom bonusRandom = new SplittableRandom(7);
+
+            int[] grid = new int[size * size];
+            for (int round = 0; round < 2_000; round++) {
+                generator.generateSymbolIds(grid);
+                // -- every other round a single symbol, so the lines and the large counts are hit too
+                if (round % 2 == 1) {
+                    for (int cell = 0; cell < grid.length; cell += 1 + round % 3) {
+                        grid[cell] = grid[0];
+                    }
+                }
+                calculator.calculate(grid, 100);
+
+                Map<String, List<String>> applied = calculator.getAppliedWinningCombinations();
+                applied.values().forEach(names -> names.sort(null));
+                assertEquals(referenceCombinations(config, model, grid), applied, size + "x" + size + " round " + round);
+
+                String bonus = null;
+                if (calculator.getBaseReward() > 0) {
+                    List<String> bonusCells = new ArrayList<>();
+                    for (int symbol : grid) {
+                        String name = model.getSymbolName(symbol);
+                        if (name.length() > 1 && !name.equals("MISS")) {
+                            bonusCells.add(name);
+                        }
+                    }
+                    bonus = bonusCells.isEmpty() ? null : bonusCells.get(bonusRandom.nextInt(bonusCells.size()));
+                }
+                assertEquals(bonus, calculator.getSelectedBonusSymbol(), size + "x" + size + " round " + round);
+            }
+        }
+    }
+
+    // Test 3: Variants above and below 64 cells with the same top row line keep their own combinations
+    @Test
+    public void testPooledVariantsAcrossBitboardLimit(@TempDir Path directory) throws Exception {
+        Map<Integer, Path> paths = new HashMap<>();
+        for (int size : new int[]{9, 3}) {
+            JSONObject config = new JSONObject(Files.readString(Path.of(CONFIG_3x3_FILE_PATH)));
+            config.put("rows", size).put("columns", size);
+            // -- the top row is cells 0, 1 and 2 in either grid
+            config.getJSONObject("win_combinations").put("same_symbols_on_top_row", new JSONObject()
+                    .put("reward_multiplier", 3)
+                    .put("when", "linear_symbols")
+                    .put("group", "top_linear_symbols")
+                    .put("covered_areas", new JSONArray().put(new JSONArray().put("0:0").put("0:1").put("0:2"))));
+            paths.put(size, directory.resolve("config_" + size + ".json"));
+            Files.writeString(paths.get(size), config.toString());
+        }
+
+        try (GameRegistry registry = new GameRegistry(new GameRandom(3));
+             GameRegistry alone = new GameRegistry(new GameRandom(3))) {
+            registry.load("large", paths.get(9));
+            registry.load("small", paths.get(3));
+            alone.load("small", paths.get(3));
+            for (int round = 0; round < 200; round++) {
+                registry.play("large", 100);
+                assertEquals(alone.play("small", 100), registry.play("small", 100));
+            }
+        }
+    }
+
+    // Test 4: A same_symbols combination with a count of 0 never pays, symbols absent from the grid are not counted
+    @Test
+    public void testZeroCountNeverMatches() throws Exception {
+        JSONObject config = new JSONObject(Files.readString(Path.of(CONFIG_3x3_FILE_PATH)));
+        GameModel plain = new GameModel(config);
+        config.getJSONObject("win_combinations").put("same_symbol_0_times", new JSONObject()
+                .put("reward_multiplier", 100)
+                .put("when", "same_symbols")
+                .put("count", 0)
+                .put("group", "same_symbols"));
+        GameModel zero = new GameModel(config);
+
+        SymbolGenerator generator = new SymbolGenerator(zero, new GameRandom(8));
+        RewardCalculator expected = new RewardCalculator(plain, new SplittableRandom(8));
+        RewardCalculator actual = new RewardCalculator(zero, new SplittableRandom(8));
+        int[] grid = new int[9];
+        for (int round = 0; round < 2_000; round++) {
+            generator.generateSymbolIds(grid);
+            assertEquals(expected.calculate(grid, 100), actual.calculate(grid, 100));
+            for (List<String> combinations : actual.getAppliedWinningCombinations().values()) {
+                assertFalse(combinations.contains("same_symbol_0_times"), combinations.toString());
+            }
+        }
+        assertEquals(new RtpCalculator(plain).calculate(100).getRtp(), new RtpCalculator(zero).calculate(100).getRtp());
+    }
+}
@@ -0,0 +1,154 @@
+import com.cyberspeed.GameModel;
+import com.cyberspeed.RewardCalculator;
+import com.cyberspeed.RoundLogReader;
+import com.cyberspeed.RoundLogWriter;
+import com.cyberspeed.SymbolGenerator;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RoundLogTest {
+
+    private static String CONFIG_3x3_FILE_PATH = "src/test/resources/config_3x3.json";
+
+    @TempDir
+    Path tempDir;
+
+    // Test 1: Every field written is read back, in order
+    @Test
+    public void testRoundTrip() throws Exception {
+        GameModel model = GameModel.load(CONFIG_3x3_FILE_PATH);
+        Path path = tempDir.resolve("rounds.log");
+        List<int[]> grids = new ArrayList<>();
+        List<Double> rewards = new ArrayList<>();
+        List<Integer> bonuses = new ArrayList<>();
+
+        SplittableRandom rand = new SplittableRandom(3);
+        SymbolGenerator generator = new SymbolGenerator(model, rand);
+        RewardCalculator calculator = new RewardCalculator(model, rand);
+        try (RoundLogWriter writer = new RoundLogWriter(path, model, 3)) {
+            for (int round = 0; round < 500; round++) {
+                int[] symbolIds = new int[model.getRows() * model.getColumns()];
+                generator.generateSymbolIds(symbolIds);
+                double reward = calculator.calculate(symbolIds, 10 + round);
+                writer.append(round, 10 + round, symbolIds, calculator, reward);
+                grids.add(symbolIds);
+                rewards.add(reward);
+                bonuses.add(calculator.getSelectedBonusSymbolId());
+            }
+        }
+
+        try (RoundLogReader reader = new RoundLogReader(path)) {
+            assertEquals(500, reader.getRecordCount());
+            assertEquals(3, reader.getHeader().getSeed());
+            assertTrue(reader.getHeader().matches(model));
+
+            int[] symbolIds = new int[model.getRows() * model.getColumns()];
+            reader.forEach(record -> {
+                int round = (int) record.getRound();
+                assertEquals(10 + round, record.getBet());
+                assertEquals(rewards.get(round), record.getReward());
+                assertEquals(bonuses.get(round), record.getBonusSymbolId());
+                record.getSymbolIds(symbolIds);
+                assertArrayEquals(grids.get(round), symbolIds);
+            });
+        }
+    }
+
+    // Test 2: Reopening a log drops a partial trailing record and appends after the last complete one
+    @Test
+    public void testAppendAfterPartialRecord() throws Exception {
+        GameModel model = GameModel.load(CONFIG_3x3_FILE_PATH);
+        Path path = tempDir.resolve("rounds.log");
+        SplittableRandom rand = new SplittableRandom(5);
+        RewardCalculator calculator = new RewardCalculator(model, rand);
+        int[] symbolIds = new int[model.getRows() * model.getColumns()];
+        double reward = calculator.calculate(symbolIds, 100);
+
+        try (RoundLogWriter writer = new RoundLogWriter(path, model, 5)) {
+            writer.append(0, 100, symbolIds, calculator, reward);
+            writer.append(1, 100, symbolIds, calculator, reward);
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+        try (RoundLogWriter writer = new RoundLogWriter(path, model, 5)) {
+            assertEquals(1, writer.getRecordCount());
+            writer.append(1, 100, symbolIds, calculator, reward);
+        }
+
+        try (RoundLogReader reader = new RoundLogReader(path)) {
+            assertEquals(2, reader.getRecordCount());
+            assertEquals(2L, reader.summarize(model).getLong("rounds"));
+        }
+        assertThrows(IllegalArgumentException.class, () -> new RoundLogWriter(path, model, 6));
+    }
+
+    // Test 3: Symbol ids past a signed short read back as they were written, configs past the limits are refused
+    @Test
+    public void testLargeIdsAndLimits() throws Exception {
+        // -- a 1x4 grid of A and a 10x bonus among 33000 unused symbols; ids follow the hash order of the names
+        // and "BAX" hashes past every "S" symbol, so its id needs all 16 bits
+        JSONObject symbols = new JSONObject();
+        for (int i = 0; i < 33_000; i++) {
+            symbols.put("S" + i, new JSONObject().put("reward_multiplier", 1).put("type", "standard"));
+        }
+        symbols.put("A", new JSONObject().put("reward_multiplier", 1).put("type", "standard"));
+        symbols.put("BAX", new JSONObject().put("reward_multiplier", 10).put("type", "bonus").put("impact", "multiply_reward"));
+        JSONObject config = new JSONObject()
+                .put("rows", 1).put("columns", 4).put("symbols", symbols)
+                .put("probabilities", new JSONObject()
+                        .put("standard_symbols", new JSONArray().put(new JSONObject().put("row", 0).put("column", 0)
+                                .put("symbols", new JSONObject().put("A", 1))))
+                        .put("bonus_symbols", new JSONObject().put("symbols", new JSONObject().put("BAX", 1))))
+                .put("win_combinations", new JSONObject().put("same_symbol_3_times", new JSONObject()
+                        .put("reward_multiplier", 1).put("when", "same_symbols").put("count", 3).put("group", "same_symbols")));
+        GameModel model = new GameModel(config);
+        final int bonusSymbol = model.getSymbolId("BAX");
+        assertTrue(bonusSymbol > Short.MAX_VALUE, "BAX has id " + bonusSymbol);
+
+        Path path = tempDir.resolve("rounds.log");
+        SplittableRandom rand = new SplittableRandom(1);
+        SymbolGenerator generator = new SymbolGenerator(model, rand);
+        RewardCalculator calculator = new RewardCalculator(model, rand);
+        int[] symbolIds = new int[4];
+        try (RoundLogWriter writer = new RoundLogWriter(path, model, 1)) {
+            for (int round = 0; writer.getRecordCount() < 2; round++) {
+                generator.generateSymbolIds(symbolIds);
+                double reward = calculator.calculate(symbolIds, 100);
+                if (writer.getRecordCount() == 0 ? calculator.getSelectedBonusSymbolId() == bonusSymbol
+                        : calculator.getSelectedBonusSymbolId() < 0) {
+                    writer.append(round, 100, symbolIds, calculator, reward);
+                }
+            }
+        }
+        List<Integer> bonuses = new ArrayList<>();
+        try (RoundLogReader reader = new RoundLogReader(path)) {
+            reader.forEach(record -> {
+                bonuses.add(record.getBonusSymbolId());
+                for (int cell = 0; cell < record.getCellCount(); cell++) {
+                    assertTrue(record.getSymbolId(cell) == model.getSymbolId("A") || record.getSymbolId(cell) == bonusSymbol);
+                }
+            });
+        }
+        assertEquals(List.of(bonusSymbol, -1), bonuses);
+
+        // -- the mask word count is one byte: 255 words of 64 combinations
+        JSONObject combinations = config.getJSONObject("win_combinations");
+        for (int i = 0; i < 255 * 64; i++) {
+            combinations.put("c" + i, new JSONObject().put("reward_multiplier", 1).put("when", "same_symbols").put("count", 3).put("group", "g" + i));
+        }
+        GameModel tooMany = new GameModel(config);
+        assertThrows(IllegalArgumentException.class, () -> new RoundLogWriter(tempDir.resolve("too_many.log"), tooMany, 1));
+    }
+}
@@ -0,0 +1,156 @@
+import com.cyberspeed.BatchPlayer;
+import com.cyberspeed.GameModel;
+import com.cyberspeed.GameRandom;
+import com.cyberspeed.GameRegistry;
+import com.cyberspeed.Main;
+import com.cyberspeed.RewardCache;
+import com.cyberspeed.RoundLogReader;
+import com.cyberspeed.RoundLogWriter;
+import com.cyberspeed.RoundVerifier;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RoundVerifierTest {
+
+    private static String CONFIG_3x3_FILE_PATH = "src/test/resources/config_3x3.json";
+
+    @TempDir
+    Path tempDir;
+
+    private static Path writeLog(Path path, GameModel model, GameRandom random, int rounds) throws Exception {
+        try (RoundLogWriter log = new RoundLogWriter(path, model, random)) {
+            new BatchPlayer(model, random, log, new RewardCache(model, 1024)).play(rounds, 100, OutputStream.nullOutputStream());
+        }
+        return path;
+    }
+
+    // -- overwrites the reward of a record, the record of round r being the r-th of the log
+    private static void setReward(Path path, RoundLogReader reader, long round, double reward) throws Exception {
+        final int recordSize = reader.getHeader().getRecordSize();
+        final long headerSize = Files.size(path) - reader.getRecordCount() * recordSize;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            ByteBuffer value = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putDouble(0, reward);
+            channel.write(value, headerSize + round * recordSize + 8);
+        }
+    }
+
+    // Test 1: A replayed round is the round played in a batch, from the seed and the round number only
+    @Test
+    public void testReplayMatchesPlayedRound() throws Exception {
+        GameModel model = GameModel.load(CONFIG_3x3_FILE_PATH);
+        ByteArrayOutputStream played = new ByteArrayOutputStream();
+        new BatchPlayer(model, new GameRandom(GameRandom.Algorithm.L64X128_MIX, 21)).play(40, 100, played);
+        String[] lines = played.toString(StandardCharsets.UTF_8).split("\n");
+
+        RoundVerifier verifier = new RoundVerifier(model, new GameRandom(GameRandom.Algorithm.L64X128_MIX, 21));
+        for (int round : new int[]{39, 0, 17, 17}) {
+            ByteArrayOutputStream replayed = new ByteArrayOutputStream();
+            verifier.replay(round, 100, replayed);
+            assertEquals(lines[round], replayed.toString(StandardCharsets.UTF_8).trim());
+            assertEquals(new JSONObject(lines[round]).getDouble("reward"), verifier.replay(round, 100));
+        }
+    }
+
+    // Test 2: Every logged round verifies, a tampered reward is reported with its round
+    @Test
+    public void testTamperedRecordIsReported() throws Exception {
+        GameModel model = GameModel.load(CONFIG_3x3_FILE_PATH);
+        Path path = writeLog(tempDir.resolve("rounds.log"), model, new GameRandom(7), 2000);
+
+        try (RoundLogReader reader = new RoundLogReader(path)) {
+            JSONObject report = RoundVerifier.verifyLog(reader, model, 2);
+            assertEquals(2000, report.getLong("verified"));
+            assertEquals(0, report.getLong("mismatches"));
+
+            setReward(path, reader, 1234, 1e9);
+        }
+        try (RoundLogReader reader = new RoundLogReader(path)) {
+            JSONObject report = RoundVerifier.verifyLog(reader, model, 2);
+            assertEquals(1999, report.getLong("verified"));
+            assertEquals(1, report.getLong("mismatches"));
+            JSONObject mismatch = report.getJSONArray("mismatched_rounds").getJSONObject(0);
+            assertEquals(1234, mismatch.getLong("round"));
+            assertEquals("reward differs", mismatch.getString("reason"));
+
+            // -- the log cannot be verified against another config
+            GameModel other = GameModel.load("src/main/resources/config.json");
+            assertThrows(IllegalArgumentException.class, () -> RoundVerifier.verifyLog(reader, other, 2));
+        }
+    }
+
+    // Test 3: A log verified on one thread or on many gives the same report, mismatches in log order
+    @Test
+    public void testParallelVerificationIsDeterministic() throws Exception {
+        GameModel model = GameModel.load(CONFIG_3x3_FILE_PATH);
+        Path path = writeLog(tempDir.resolve("rounds.log"), model, new GameRandom(GameRandom.Algorithm.XOSHIRO256_PLUS_PLUS, 9), 200_000);
+
+        try (RoundLogReader reader = new RoundLogReader(path)) {
+            for (long round : new long[]{199_999, 3, 70_000, 131_072}) {
+                setReward(path, reader, round, -1);
+            }
+        }
+        try (RoundLogReader reader = new RoundLogReader(path)) {
+            JSONObject sequential = RoundVerifier.verifyLog(reader, model, 1);
+            JSONObject parallel = RoundVerifier.verifyLog(reader, model, 4);
+            assertEquals(4, sequential.getLong("mismatches"));
+            assertEquals(3, sequential.getJSONArray("mismatched_rounds").getJSONObject(0).getLong("round"));
+            assertEquals(199_999, sequential.getJSONArray("mismatched_rounds").getJSONObject(3).getLong("round"));
+            assertEquals(sequential.toString(), parallel.toString());
+        }
+    }
+
+    // Test 4: A round served by a registry game replays bit for bit from the CLI with the seed, the game id and its number
+    @Test
+    public void testRegistryRoundReplaysFromCli() throws Exception {
+        GameModel model = GameModel.load(CONFIG_3x3_FILE_PATH);
+        String[] played = new String[30];
+        try (GameRegistry registry = new GameRegistry(new GameRandom(GameRandom.Algorithm.L64X128_MIX, 13))) {
+            registry.register("classic", model);
+            for (int round = 0; round < played.length; round++) {
+                played[round] = registry.play("classic", 100);
+            }
+        }
+
+        PrintStream out = System.out;
+        try {
+            for (int round : new int[]{0, 7, 29}) {
+                ByteArrayOutputStream replayed = new ByteArrayOutputStream();
+                System.setOut(new PrintStream(replayed, true, StandardCharsets.UTF_8));
+                Main.main(new String[]{"--config", CONFIG_3x3_FILE_PATH, "--betting-amount", "100", "--seed", "13",
+                        "--rng", "l64x128_mix", "--game", "classic", "--replay", Integer.toString(round)});
+                JSONObject expected = new JSONObject(played[round]);
+                JSONObject actual = new JSONObject(replayed.toString(StandardCharsets.UTF_8));
+                assertTrue(expected.similar(actual), expected + "\n" + actual);
+                assertEquals(Double.doubleToLongBits(expected.getDouble("reward")), Double.doubleToLongBits(actual.getDouble("reward")));
+            }
+        } finally {
+            System.setOut(out);
+        }
+
+        // -- the master stream is not the game's
+        RoundVerifier master = new RoundVerifier(model, new GameRandom(GameRandom.Algorithm.L64X128_MIX, 13));
+        RoundVerifier game = new RoundVerifier(model, GameRegistry.randomOf(new GameRandom(GameRandom.Algorithm.L64X128_MIX, 13), "classic"));
+        int differing = 0;
+        for (int round = 0; round < played.length; round++) {
+            assertEquals(new JSONObject(played[round]).getDouble("reward"), game.replay(round, 100));
+            if (master.replay(round, 100) != game.replay(round, 100)) {
+                differing++;
+            }
+        }
+        assertTrue(differing > 0);
+    }
+}
@@ -0,0 +1,91 @@
+import com.cyberspeed.GameModel;
+import com.cyberspeed.RtpCalculator;
+import com.cyberspeed.RtpReport;
+import com.cyberspeed.SimulationReport;
+import com.cyberspeed.Simulator;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RtpCalculatorTest {
+
+    private static String CONFIG_3x3_FILE_PATH = "src/test/resources/config_3x3.json";
+
+    // -- symbols and weights of config_3x3 on a 2x2 grid, same_symbols combinations plus optional horizontal lines
+    private static GameModel smallModel(boolean lines) throws Exception {
+        JSONObject config = new JSONObject(Files.readString(Path.of(CONFIG_3x3_FILE_PATH)));
+        config.put("rows", 2);
+        config.put("columns", 2);
+        JSONObject combinations = config.getJSONObject("win_combinations");
+        for (String name : new ArrayList<>(combinations.keySet())) {
+            if (!"same_symbols".equals(combinations.getJSONObject(name).getString("when"))) {
+                combinations.remove(name);
+            }
+        }
+        if (lines) {
+            combinations.put("same_symbols_horizontally", new JSONObject()
+                    .put("reward_multiplier", 2)
+                    .put("when", "linear_symbols")
+                    .put("group", "horizontally_linear_symbols")
+                    .put("covered_areas", new JSONArray()
+                            .put(new JSONArray().put("0:0").put("0:1"))
+                            .put(new JSONArray().put("1:0").put("1:1"))));
+        }
+        return new GameModel(config);
+    }
+
+    // Test 1: Walking count vectors and enumerating every grid give the same exact result
+    @Test
+    public void testExactMethodsAgree() throws Exception {
+        RtpCalculator calculator = new RtpCalculator(smallModel(false));
+
+        RtpReport counts = calculator.calculate(100);
+        RtpReport grids = calculator.calculate(100, RtpCalculator.Method.EXACT_ENUMERATION);
+
+        assertEquals(RtpCalculator.Method.EXACT_COUNTS, counts.getMethod());
+        assertTrue(counts.isExact() && grids.isExact());
+        assertTrue(counts.getStates() < grids.getStates());
+        assertEquals(grids.getExpectedReward(), counts.getExpectedReward(), 1e-9);
+        assertEquals(grids.getVariance(), counts.getVariance(), 1e-6);
+        assertEquals(grids.getHitFrequency(), counts.getHitFrequency(), 1e-12);
+        assertEquals(grids.getDistribution().keySet(), counts.getDistribution().keySet());
+        for (Map.Entry<Double, Double> entry : grids.getDistribution().entrySet()) {
+            assertEquals(entry.getValue(), counts.getDistribution().get(entry.getKey()), 1e-12);
+        }
+    }
+
+    // Test 2: The exact RTP with lines agrees with a simulation
+    @Test
+    public void testExactMatchesSimulation() throws Exception {
+        GameModel model = smallModel(true);
+
+        RtpReport exact = new RtpCalculator(model).calculate(100);
+        SimulationReport simulated = new Simulator(model, 100, 2, 100_000).run(1_000_000, 11);
+
+        assertEquals(RtpCalculator.Method.EXACT_ENUMERATION, exact.getMethod());
+        double standardError = exact.getStdDev() / 100 / Math.sqrt(1_000_000);
+        assertEquals(exact.getRtp(), simulated.getRtp(), 5 * standardError);
+        assertEquals(exact.getHitFrequency(), simulated.getHitFrequency(), 0.005);
+    }
+
+    // Test 3: The sampled line correction stays within its standard error of the exact RTP
+    @Test
+    public void testSampledLinesWithinError() throws Exception {
+        GameModel model = smallModel(true);
+
+        RtpReport exact = new RtpCalculator(model).calculate(100, RtpCalculator.Method.EXACT_ENUMERATION);
+        RtpReport sampled = new RtpCalculator(model, 1 << 20, 200_000, 5)
+                .calculate(100, RtpCalculator.Method.COUNTS_WITH_SAMPLED_LINES);
+
+        assertFalse(sampled.isExact());
+        assertTrue(sampled.getRtpStandardError() > 0);
+        assertEquals(exact.getRtp(), sampled.getRtp(), 5 * sampled.getRtpStandardError());
+    }
+}
@@ -0,0 +1,57 @@
+import com.cyberspeed.GameModel;
+import com.cyberspeed.SimulationReport;
+import com.cyberspeed.Simulator;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SimulatorTest {
+
+    private static String CONFIG_3x3_FILE_PATH = "src/test/resources/config_3x3.json";
+
+    // Test 1: Same seed and shard size give bit-identical results for any thread count
+    @Test
+    public void testDeterministicAcrossThreadCounts() throws Exception {
+        GameModel model = GameModel.load(CONFIG_3x3_FILE_PATH);
+
+        SimulationReport single = new Simulator(model, 100, 1, 10_000).run(95_000, 42);
+        SimulationReport parallel = new Simulator(model, 100, 4, 10_000).run(95_000, 42);
+
+        assertEquals(95_000, single.getRounds());
+        assertEquals(single.getRounds(), parallel.getRounds());
+        assertEquals(single.getHits(), parallel.getHits());
+        assertEquals(Double.doubleToLongBits(single.getTotalReward()), Double.doubleToLongBits(parallel.getTotalReward()),
+                "Total reward must be bit-identical");
+        assertEquals(Double.doubleToLongBits(single.getTotalRewardSquares()), Double.doubleToLongBits(parallel.getTotalRewardSquares()),
+                "Sum of squared rewards must be bit-identical");
+        for (int i = 0; i < model.getCombinationCount(); i++) {
+            assertEquals(single.getCombinationTriggers(i), parallel.getCombinationTriggers(i));
+        }
+        for (int i = 0; i < model.getSymbolCount(); i++) {
+            assertEquals(single.getBonusApplied(i), parallel.getBonusApplied(i));
+        }
+    }
+
+    // Test 2: Different seeds give different runs
+    @Test
+    public void testSeedChangesResult() throws Exception {
+        GameModel model = GameModel.load(CONFIG_3x3_FILE_PATH);
+
+        SimulationReport first = new Simulator(model, 100, 2, 10_000).run(20_000, 1);
+        SimulationReport second = new Simulator(model, 100, 2, 10_000).run(20_000, 2);
+
+        assertNotEquals(first.getTotalReward(), second.getTotalReward());
+    }
+
+    // Test 3: Hit frequency and RTP stay consistent with the accumulated totals
+    @Test
+    public void testReportTotals() throws Exception {
+        GameModel model = GameModel.load(CONFIG_3x3_FILE_PATH);
+
+        SimulationReport report = new Simulator(model, 100, 2, 7_000).run(50_000, 7);
+
+        assertEquals(report.getTotalReward() / (50_000.0 * 100), report.getRtp(), 1e-12);
+        assertEquals((double) report.getHits() / 50_000, report.getHitFrequency(), 1e-12);
+        assertTrue(report.getHits() > 0 && report.getHits() < 50_000);
+    }
+}
@@ -0,0 +1,134 @@
+import com.cyberspeed.ConfigException;
+import com.cyberspeed.GameModel;
+import com.cyberspeed.SymbolGenerator;
+import com.cyberspeed.SymbolSampler;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SymbolSamplerTest {
+
+    private static String CONFIG_3x3_FILE_PATH = "src/test/resources/config_3x3.json";
+
+    private static final int DRAWS = 1_000_000;
+
+    // Chi-square critical value for p = 0.001 and the degrees of freedom used below (10)
+    private static final double CHI_SQUARE_CRITICAL_10 = 29.588;
+
+    private static final int[] SYMBOLS = {0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10};
+    // Same shape as config_3x3: A..F standard weights followed by the bonus weights
+    private static final int[] WEIGHTS = {1, 2, 3, 4, 5, 6, 1, 2, 3, 4, 5};
+
+    // Draws from the sampler and returns the chi-square statistic against the configured weights
+    private double chiSquare(SymbolSampler sampler, int[] weights, long seed) {
+        Random rand = new Random(seed);
+        long[] observed = new long[weights.length];
+        for (int i = 0; i < DRAWS; i++) {
+            observed[sampler.sample(rand)]++;
+        }
+
+        long totalWeight = 0;
+        for (int weight : weights) {
+            totalWeight += weight;
+        }
+
+        double statistic = 0;
+        for (int i = 0; i < weights.length; i++) {
+            double expected = (double) DRAWS * weights[i] / totalWeight;
+            statistic += (observed[i] - expected) * (observed[i] - expected) / expected;
+        }
+        return statistic;
+    }
+
+    // Test 1: Alias table matches the configured weights
+    @Test
+    public void testAliasDistribution() {
+        SymbolSampler sampler = SymbolSampler.create(SymbolSampler.Method.ALIAS, SYMBOLS, WEIGHTS);
+        double statistic = chiSquare(sampler, WEIGHTS, 42);
+        assertTrue(statistic < CHI_SQUARE_CRITICAL_10, "Alias distribution deviates from weights, chi2=" + statistic);
+    }
+
+    // Test 2: Cumulative binary search matches the configured weights
+    @Test
+    public void testCumulativeDistribution() {
+        SymbolSampler sampler = SymbolSampler.create(SymbolSampler.Method.CUMULATIVE, SYMBOLS, WEIGHTS);
+        double statistic = chiSquare(sampler, WEIGHTS, 42);
+        assertTrue(statistic < CHI_SQUARE_CRITICAL_10, "Cumulative distribution deviates from weights, chi2=" + statistic);
+    }
+
+    // Test 3: Weights in the thousands (the case that used to blow up the pool)
+    @Test
+    public void testLargeWeights() {
+        int[] weights = {1000, 2500, 7, 4000, 1, 9999, 123, 50, 3000, 777, 5000};
+        for (SymbolSampler.Method method : SymbolSampler.Method.values()) {
+            SymbolSampler sampler = SymbolSampler.create(method, SYMBOLS, weights);
+            double statistic = chiSquare(sampler, weights, 7);
+            assertTrue(statistic < CHI_SQUARE_CRITICAL_10, method + " deviates from large weights, chi2=" + statistic);
+        }
+    }
+
+    // Test 4: Zero weights are never drawn
+    @Test
+    public void testZeroWeightNeverDrawn() {
+        int[] symbols = {3, 5, 8};
+        int[] weights = {0, 1, 0};
+        for (SymbolSampler.Method method : SymbolSampler.Method.values()) {
+            SymbolSampler sampler = SymbolSampler.create(method, symbols, weights);
+            Random rand = new Random(1);
+            for (int i = 0; i < 10_000; i++) {
+                assertEquals(5, sampler.sample(rand), method + " drew a zero weight symbol");
+            }
+        }
+    }
+
+    // Test 5: Invalid weight tables are rejected
+    @Test
+    public void testInvalidWeights() {
+        assertThrows(IllegalArgumentException.class,
+                () -> SymbolSampler.create(SymbolSampler.Method.ALIAS, new int[]{0, 1}, new int[]{0, 0}));
+        assertThrows(IllegalArgumentException.class,
+                () -> SymbolSampler.create(SymbolSampler.Method.CUMULATIVE, new int[]{0, 1}, new int[]{1, -1}));
+    }
+
+    // Test 6: Every cell draws from the probability entry declaring its row and column, the first entry by default
+    @Test
+    public void testCellsDrawFromDeclaredEntry() throws Exception {
+        JSONObject config = new JSONObject(Files.readString(Path.of(CONFIG_3x3_FILE_PATH)));
+        JSONObject bonusSymbols = config.getJSONObject("probabilities").getJSONObject("bonus_symbols").getJSONObject("symbols");
+        for (String bonus : bonusSymbols.keySet()) {
+            bonusSymbols.put(bonus, 0);
+        }
+        // -- a single symbol per entry: cell (row, column) draws "ABCDEF"[row * 3 + column] (mod 6)
+        JSONArray entries = config.getJSONObject("probabilities").getJSONArray("standard_symbols");
+        for (int i = 0; i < entries.length(); i++) {
+            JSONObject entry = entries.getJSONObject(i);
+            final int cell = entry.getInt("row") * 3 + entry.getInt("column");
+            entry.put("symbols", new JSONObject().put(String.valueOf("ABCDEF".charAt(cell % 6)), 1));
+        }
+        // -- cell (2, 2) is not declared any more
+        final int first = entries.getJSONObject(0).getInt("row") * 3 + entries.getJSONObject(0).getInt("column");
+        entries.getJSONObject(entries.length() - 1).put("row", 3);
+
+        GameModel model = new GameModel(config);
+        SymbolGenerator generator = new SymbolGenerator(model, new SplittableRandom(1));
+        int[] grid = new int[9];
+        String[][] matrix = generator.generateMatrix(3, 3);
+        generator.generateSymbolIds(grid);
+        for (int cell = 0; cell < grid.length; cell++) {
+            final String expected = String.valueOf("ABCDEF".charAt((cell == 8 ? first : cell) % 6));
+            assertEquals(expected, model.getSymbolName(grid[cell]), "cell " + cell);
+            assertEquals(expected, matrix[cell / 3][cell % 3], "cell " + cell);
+        }
+
+        // -- two entries for one cell are ambiguous
+        entries.getJSONObject(entries.length() - 1).put("row", 0).put("column", 0);
+        assertThrows(ConfigException.class, () -> new GameModel(config));
+    }
+}